@@ -1,5 +1,7 @@
 package li.cil.circuity.api.bus;
 
+import net.minecraft.util.math.ChunkPos;
+
 import java.util.Collection;
 
 /**
@@ -21,6 +23,10 @@ import java.util.Collection;
  * <li>their list of neighboring devices changes.</li>
  * <li>they are removed from the world.</li>
  * </ul>
+ * When their neighboring devices change, prefer {@link BusController#scheduleScan(BusConnector)},
+ * passing this connector, which only re-queries the connectors that actually
+ * changed instead of the whole bus. Removal always needs a full scan.
+ * <p>
  * There is no need to call this method when being added to the world, as new
  * connectors will be detected via the block change by either adjacent bus
  * connectors or an adjacent bus controller.
@@ -40,4 +46,34 @@ public interface BusConnector extends BusElement {
      * causing the the bus controller to rescan again at later point in time.
      */
     boolean getConnected(final Collection<BusElement> elements);
+
+    /**
+     * Build the list of chunks that caused {@link #getConnected(Collection)}
+     * to fail.
+     * <p>
+     * Called by the scanning {@link BusController} after {@link #getConnected(Collection)}
+     * returned <code>false</code>. If this provides any chunks, the controller
+     * will wait for one of them to be loaded before scanning again. Otherwise
+     * it falls back to re-scanning periodically.
+     *
+     * @param chunks the list into which to put the positions of the unloaded chunks.
+     */
+    default void getUnloadedChunks(final Collection<ChunkPos> chunks) {
+    }
+
+    /**
+     * Build the list of chunks this connector and the elements adjacent to
+     * it are in.
+     * <p>
+     * Called by the {@link BusController} after a successful scan, to track
+     * which chunks the bus spans. A bus lagging behind the server only has to
+     * catch up when one of these chunks unloads.
+     *
+     * @param chunks the list into which to put the positions of the chunks.
+     * @return <code>true</code> if the chunks are known; <code>false</code>
+     * otherwise, in which case the bus is assumed to span any chunk.
+     */
+    default boolean getChunks(final Collection<ChunkPos> chunks) {
+        return false;
+    }
 }
@@ -50,6 +50,94 @@ public interface BusController extends BusConnector {
      */
     void scheduleScan();
 
+    /**
+     * Schedule re-scanning the part of the bus affected by a change in the
+     * connections of the specified connector.
+     * <p>
+     * This is a cheaper alternative to {@link #scheduleScan()} for connectors
+     * that know exactly which of them changed, e.g. when a neighboring block
+     * was placed or removed. Instead of re-querying every connector on the bus,
+     * the controller only re-queries the reported connectors (and any newly
+     * found ones), and reuses the cached connections of all other connectors.
+     * <p>
+     * Connectors should call this when their list of adjacent elements
+     * changes. When they are removed from the world, including when their
+     * chunk unloads, they must call {@link #scheduleScan()} instead, because
+     * the cached connections of their neighbors still refer to them.
+     * <p>
+     * This method is thread safe.
+     *
+     * @param connector the connector whose adjacent elements changed.
+     */
+    default void scheduleScan(final BusConnector connector) {
+        scheduleScan();
+    }
+
+    /**
+     * Get the fraction of their nominal clock rate at which devices on this
+     * bus should currently run.
+     * <p>
+     * Bus controllers may reduce this when updating the bus takes too long,
+     * to limit the impact on the server. Devices that do a fixed amount of work
+     * per update, such as processors, should scale that work accordingly.
+     * <p>
+     * This method is thread safe.
+     *
+     * @return the current clock scale, in (0, 1].
+     */
+    default float getClockScale() {
+        return 1f;
+    }
+
+    /**
+     * Queue a command to be run on the server thread.
+     * <p>
+     * Devices updated from a worker thread must not interact with the world
+     * directly. Instead they queue their side effects, e.g. marking their
+     * container as changed or changing a redstone output, which are then run
+     * in one batch on the server thread at the end of the tick.
+     * <p>
+     * Queuing a command that is already queued does nothing, so commands that
+     * apply a value should read the latest value when run. Also see
+     * {@link li.cil.circuity.api.bus.device.util.CoalescedCommand}, which
+     * avoids queuing commands repeatedly altogether.
+     * <p>
+     * This method is thread safe.
+     *
+     * @param command the command to run on the server thread.
+     */
+    void queueCommand(final Runnable command);
+
+    /**
+     * Wait for any pending updates of the bus to complete.
+     * <p>
+     * Buses may be configured to lag behind the server by a few ticks, i.e.
+     * devices may still be updating in a worker thread while the server ticks.
+     * Code running on the server thread must call this before modifying
+     * state shared with devices on the bus, e.g. when an item is inserted into
+     * or removed from a device.
+     * <p>
+     * When called from the server thread, this also runs the commands queued
+     * via {@link #queueCommand(Runnable)} by the updates waited for.
+     * <p>
+     * Calling this from within an update of the bus does nothing.
+     */
+    default void synchronize() {
+    }
+
+    /**
+     * Wake the bus up in case it is idle.
+     * <p>
+     * Buses on which all {@link li.cil.circuity.api.bus.device.AsyncTickable}s
+     * report being idle are not updated until this is called. Devices must
+     * call this whenever something happens that may make an idle tickable
+     * busy again.
+     * <p>
+     * This method is thread safe.
+     */
+    default void wake() {
+    }
+
     /**
      * Called by sub-systems when their state changes.
      * <p>
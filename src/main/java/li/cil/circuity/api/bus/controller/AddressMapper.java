@@ -16,6 +16,14 @@ import javax.annotation.Nullable;
  * a layout where the starting memory is RAM).
  * <p>
  * Each configuration must be legal for the computer to start.
+ * <p>
+ * While the bus updates its {@link AsyncTickable}s in parallel, accesses
+ * via the <code>mapAnd*</code> methods are arbitrated so that the result
+ * does not depend on thread scheduling, see {@link #isArbitrated()}. Writes
+ * to memory of {@link li.cil.circuity.api.bus.device.DirectMemoryRegion}s
+ * become visible to other tickables at the end of the quantum, in the order
+ * of the tickables. All other devices are accessed by one tickable at a
+ * time, in the order of the tickables.
  */
 public interface AddressMapper extends Subsystem {
     /**
@@ -62,6 +70,48 @@ public interface AddressMapper extends Subsystem {
      */
     void setActiveConfiguration(final int index);
 
+    /**
+     * Get the current generation of the mapping.
+     * <p>
+     * The generation changes whenever the mapping of devices to addresses may
+     * have changed, i.e. after a scan, when a device's address is changed and
+     * when the active configuration is switched. This allows callers to cache
+     * the results of {@link #getDevice(long)} and {@link #getAddressBlock(Addressable)}
+     * for as long as the generation stays the same.
+     * <p>
+     * This method is thread safe.
+     *
+     * @return the current generation of the mapping.
+     */
+    int getGeneration();
+
+    /**
+     * Whether accesses via the <code>mapAnd*</code> methods are currently
+     * arbitrated, because the bus updates its {@link AsyncTickable}s in parallel.
+     * <p>
+     * Callers caching devices to access them directly, instead of via the
+     * <code>mapAnd*</code> methods, must not do so while this returns
+     * <code>true</code>, as that would bypass the arbitration. A change of
+     * this value also changes the {@link #getGeneration()}, so it may be
+     * cached alongside the devices.
+     * <p>
+     * This method is thread safe.
+     *
+     * @return whether accesses are arbitrated.
+     */
+    boolean isArbitrated();
+
+    /**
+     * Change the generation without changing the mapping, so that callers
+     * drop everything they cached about the mapped devices.
+     * <p>
+     * Must be called by {@link li.cil.circuity.api.bus.device.DirectMemoryRegion}s
+     * after replacing their backing array.
+     * <p>
+     * This method is thread safe.
+     */
+    void invalidate();
+
     // --------------------------------------------------------------------- //
 
     /**
@@ -162,4 +212,114 @@ public interface AddressMapper extends Subsystem {
      * @throws IndexOutOfBoundsException if the address is unsupported.
      */
     int mapAndRead(final long address) throws IndexOutOfBoundsException;
+
+    /**
+     * Write a block of values starting at the specified global address.
+     * <p>
+     * This behaves as if {@link #mapAndWrite(long, int)} were called for each
+     * value in the specified range, but splits the range at device boundaries
+     * and passes each part to the respective device via {@link Addressable#write(long, byte[], int, int)},
+     * allowing devices to handle the transfer in bulk.
+     * <p>
+     * The same restrictions as for {@link #mapAndWrite(long, int)} apply.
+     *
+     * @param address the global address to start writing at.
+     * @param buffer  the buffer containing the values to write.
+     * @param offset  the offset into the buffer at which to start reading values.
+     * @param length  the number of values to write.
+     * @throws IndexOutOfBoundsException if the address range is unsupported.
+     */
+    void mapAndWriteBlock(final long address, final byte[] buffer, final int offset, final int length) throws IndexOutOfBoundsException;
+
+    /**
+     * Read a block of values starting at the specified global address.
+     * <p>
+     * This behaves as if {@link #mapAndRead(long)} were called for each value
+     * in the specified range, but splits the range at device boundaries and
+     * passes each part to the respective device via {@link Addressable#read(long, byte[], int, int)},
+     * allowing devices to handle the transfer in bulk.
+     * <p>
+     * The same restrictions as for {@link #mapAndRead(long)} apply.
+     *
+     * @param address the global address to start reading at.
+     * @param buffer  the buffer to store the read values in.
+     * @param offset  the offset into the buffer at which to start storing values.
+     * @param length  the number of values to read.
+     * @throws IndexOutOfBoundsException if the address range is unsupported.
+     */
+    void mapAndReadBlock(final long address, final byte[] buffer, final int offset, final int length) throws IndexOutOfBoundsException;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Read a 16 bit value from the specified global address.
+     * <p>
+     * Multi-word values are composed in little-endian order, one byte per
+     * address. If the whole range is mapped to a single device, the access
+     * is passed to that device via {@link Addressable#read16(long)} in a
+     * single transaction, otherwise it is split into individual reads.
+     * <p>
+     * The same restrictions as for {@link #mapAndRead(long)} apply.
+     *
+     * @param address the global address to read from.
+     * @return the value read.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     */
+    int mapAndRead16(final long address) throws IndexOutOfBoundsException;
+
+    /**
+     * Read a 32 bit value from the specified global address.
+     *
+     * @param address the global address to read from.
+     * @return the value read.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     * @see #mapAndRead16(long)
+     */
+    int mapAndRead32(final long address) throws IndexOutOfBoundsException;
+
+    /**
+     * Read a 64 bit value from the specified global address.
+     *
+     * @param address the global address to read from.
+     * @return the value read.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     * @see #mapAndRead16(long)
+     */
+    long mapAndRead64(final long address) throws IndexOutOfBoundsException;
+
+    /**
+     * Write a 16 bit value to the specified global address.
+     * <p>
+     * Multi-word values are split in little-endian order, one byte per
+     * address. If the whole range is mapped to a single device, the access
+     * is passed to that device via {@link Addressable#write16(long, int)} in
+     * a single transaction, otherwise it is split into individual writes.
+     * <p>
+     * The same restrictions as for {@link #mapAndWrite(long, int)} apply.
+     *
+     * @param address the global address to write to.
+     * @param value   the value to write.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     */
+    void mapAndWrite16(final long address, final int value) throws IndexOutOfBoundsException;
+
+    /**
+     * Write a 32 bit value to the specified global address.
+     *
+     * @param address the global address to write to.
+     * @param value   the value to write.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     * @see #mapAndWrite16(long, int)
+     */
+    void mapAndWrite32(final long address, final int value) throws IndexOutOfBoundsException;
+
+    /**
+     * Write a 64 bit value to the specified global address.
+     *
+     * @param address the global address to write to.
+     * @param value   the value to write.
+     * @throws IndexOutOfBoundsException if the address is unsupported.
+     * @see #mapAndWrite16(long, int)
+     */
+    void mapAndWrite64(final long address, final long value) throws IndexOutOfBoundsException;
 }
@@ -43,4 +43,129 @@ public interface Addressable extends BusDevice {
      * @param value   the value to write to the device.
      */
     void write(final long address, final int value);
+
+    /**
+     * Reads a block of values from this device, starting at the specified
+     * local address.
+     * <p>
+     * Each value read is truncated to a byte and stored in the specified
+     * buffer. Implementations backed by plain memory should override this
+     * to copy the data in bulk; the default implementation reads each value
+     * individually via {@link #read(long)}.
+     *
+     * @param address the local address to start reading from.
+     * @param buffer  the buffer to store the read values in.
+     * @param offset  the offset into the buffer at which to start storing values.
+     * @param length  the number of values to read.
+     */
+    default void read(final long address, final byte[] buffer, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            buffer[offset + i] = (byte) read(address + i);
+        }
+    }
+
+    /**
+     * Writes a block of values to this device, starting at the specified
+     * local address.
+     * <p>
+     * Implementations backed by plain memory should override this to copy the
+     * data in bulk; the default implementation writes each value individually
+     * via {@link #write(long, int)}.
+     *
+     * @param address the local address to start writing to.
+     * @param buffer  the buffer containing the values to write.
+     * @param offset  the offset into the buffer at which to start reading values.
+     * @param length  the number of values to write.
+     */
+    default void write(final long address, final byte[] buffer, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            write(address + i, buffer[offset + i] & 0xFF);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Reads a 16 bit value from this device, starting at the specified local
+     * address.
+     * <p>
+     * Multi-word values are composed in little-endian order, one byte per
+     * address. Implementations backed by plain memory should override this;
+     * the default implementation reads each byte via {@link #read(long)}.
+     *
+     * @param address the local address to read from.
+     * @return the value read.
+     */
+    default int read16(final long address) {
+        return (read(address) & 0xFF) |
+                ((read(address + 1) & 0xFF) << 8);
+    }
+
+    /**
+     * Reads a 32 bit value from this device, starting at the specified local
+     * address.
+     *
+     * @param address the local address to read from.
+     * @return the value read.
+     * @see #read16(long)
+     */
+    default int read32(final long address) {
+        return (read16(address) & 0xFFFF) |
+                (read16(address + 2) << 16);
+    }
+
+    /**
+     * Reads a 64 bit value from this device, starting at the specified local
+     * address.
+     *
+     * @param address the local address to read from.
+     * @return the value read.
+     * @see #read16(long)
+     */
+    default long read64(final long address) {
+        return (read32(address) & 0xFFFFFFFFL) |
+                ((long) read32(address + 4) << 32);
+    }
+
+    /**
+     * Writes a 16 bit value to this device, starting at the specified local
+     * address.
+     * <p>
+     * Multi-word values are split in little-endian order, one byte per
+     * address. Implementations backed by plain memory should override this;
+     * the default implementation writes each byte via {@link #write(long, int)}.
+     *
+     * @param address the local address to write to.
+     * @param value   the value to write to the device.
+     */
+    default void write16(final long address, final int value) {
+        write(address, value & 0xFF);
+        write(address + 1, (value >>> 8) & 0xFF);
+    }
+
+    /**
+     * Writes a 32 bit value to this device, starting at the specified local
+     * address.
+     *
+     * @param address the local address to write to.
+     * @param value   the value to write to the device.
+     * @see #write16(long, int)
+     */
+    default void write32(final long address, final int value) {
+        write16(address, value);
+        write16(address + 2, value >>> 16);
+    }
+
+    /**
+     * Writes a 64 bit value to this device, starting at the specified local
+     * address.
+     *
+     * @param address the local address to write to.
+     * @param value   the value to write to the device.
+     * @see #write16(long, int)
+     */
+    default void write64(final long address, final long value) {
+        write32(address, (int) value);
+        write32(address + 4, (int) (value >>> 32));
+    }
 }
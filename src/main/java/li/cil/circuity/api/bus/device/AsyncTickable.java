@@ -12,4 +12,51 @@ import li.cil.circuity.api.bus.BusDevice;
  */
 public interface AsyncTickable extends BusDevice {
     void updateAsync();
+
+    /**
+     * Called instead of {@link #updateAsync()} if the bus is updated in
+     * parallel mode.
+     * <p>
+     * In parallel mode, each tick is split into a fixed number of quanta, and
+     * all tickables of a bus are updated concurrently for each quantum. All
+     * tickables complete a quantum before any tickable starts the next one,
+     * so no tickable ever runs ahead by more than one quantum.
+     * <p>
+     * Accesses via the {@link li.cil.circuity.api.bus.controller.AddressMapper}
+     * are arbitrated in a fixed order of the tickables, so that the result
+     * does not depend on thread scheduling. Writes to memory of {@link DirectMemoryRegion}s
+     * are only visible to the writing tickable until the end of the quantum,
+     * when they are applied in tickable order. Other devices are accessed by
+     * one tickable at a time, after all tickables before it have completed
+     * the quantum. Interrupts raised during a quantum are delivered at its end.
+     * <p>
+     * The default implementation performs a regular update in the first
+     * quantum of each tick.
+     *
+     * @param quantum      the index of the current quantum, in [0, quantumCount).
+     * @param quantumCount the number of quanta per tick.
+     */
+    default void updateAsync(final int quantum, final int quantumCount) {
+        if (quantum == 0) {
+            updateAsync();
+        }
+    }
+
+    /**
+     * Whether this device currently has nothing to do, e.g. because it is a
+     * processor that halted and waits for an interrupt.
+     * <p>
+     * While all tickables of a bus are idle, the bus controller stops updating
+     * the bus, until it is woken up again via {@link li.cil.circuity.api.bus.BusController#wake()}.
+     * This happens automatically when an interrupt is delivered via the
+     * {@link li.cil.circuity.api.bus.controller.InterruptMapper}. Devices that
+     * become busy for any other reason must call it themselves.
+     * <p>
+     * Called from the worker thread right after updating the bus.
+     *
+     * @return <code>true</code> if the device is idle; <code>false</code> otherwise.
+     */
+    default boolean isIdle() {
+        return false;
+    }
 }
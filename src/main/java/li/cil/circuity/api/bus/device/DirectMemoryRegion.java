@@ -0,0 +1,78 @@
+package li.cil.circuity.api.bus.device;
+
+import li.cil.circuity.api.bus.controller.AddressMapper;
+
+import javax.annotation.Nullable;
+
+/**
+ * May be implemented on {@link Addressable}s that are backed by a plain byte
+ * array, such as RAM and ROM.
+ * <p>
+ * This allows processors to access the backing array directly, instead of
+ * going through {@link Addressable#read(long)} and {@link Addressable#write(long, int)}
+ * for every single access. Local address <code>n</code> of the device maps
+ * to index <code>getDirectMemoryOffset() + n</code> of the array.
+ * <p>
+ * Callers may cache the returned array as long as the {@link AddressMapper#getGeneration()}
+ * does not change. Devices replacing their backing array must therefore
+ * first wait for the bus via {@link li.cil.circuity.api.bus.BusController#synchronize()},
+ * so that no processor is still using the old array, then swap the array
+ * and finally call {@link AddressMapper#invalidate()}. If the size of the
+ * device changed, they must also trigger a scan via {@link li.cil.circuity.api.bus.BusController#scheduleScan()}.
+ */
+public interface DirectMemoryRegion extends Addressable {
+    /**
+     * Get the array backing this device.
+     * <p>
+     * May return <code>null</code> if the device currently cannot provide
+     * direct access, in which case callers must fall back to the regular
+     * access methods.
+     *
+     * @return the array backing this device, if available.
+     */
+    @Nullable
+    byte[] getDirectMemory();
+
+    /**
+     * The index into the array returned by {@link #getDirectMemory()} that
+     * corresponds to local address zero of the device.
+     *
+     * @return the offset of the device's memory in the backing array.
+     */
+    default int getDirectMemoryOffset() {
+        return 0;
+    }
+
+    /**
+     * Whether the memory is read-only.
+     * <p>
+     * If this returns <code>true</code>, callers must not write to the backing
+     * array directly, but pass writes on to {@link Addressable#write(long, int)}.
+     *
+     * @return <code>true</code> if the memory must not be written directly.
+     */
+    boolean isDirectMemoryReadOnly();
+
+    /**
+     * Whether the device needs to be notified of direct writes.
+     * <p>
+     * If this returns <code>true</code>, callers must call {@link #markDirectMemoryDirty()}
+     * after writing to the backing array directly.
+     *
+     * @return <code>true</code> if the device wants to be notified of writes.
+     */
+    default boolean isDirectMemoryWriteNotify() {
+        return true;
+    }
+
+    /**
+     * Called after the backing array was written to directly, if {@link #isDirectMemoryWriteNotify()}
+     * returns <code>true</code>.
+     * <p>
+     * This may be called from the bus controller's worker thread, and at a
+     * high frequency, so implementations should be cheap, e.g. just set a
+     * dirty flag.
+     */
+    default void markDirectMemoryDirty() {
+    }
+}
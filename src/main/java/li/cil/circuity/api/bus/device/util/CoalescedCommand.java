@@ -0,0 +1,68 @@
+package li.cil.circuity.api.bus.device.util;
+
+import li.cil.circuity.api.bus.BusController;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Helper class for side effects devices want to trigger on the server thread
+ * while being updated from a worker thread, e.g. marking their container as
+ * changed or setting a redstone output.
+ * <p>
+ * The command is queued with the bus controller via {@link BusController#queueCommand(Runnable)}
+ * at most once until it runs, so queuing it repeatedly, e.g. on every memory
+ * write, costs no more than a flag check. Commands that apply a value should
+ * read the latest value when run, so that multiple changes between two runs
+ * collapse into one.
+ * <p>
+ * Devices should create one instance per side effect and keep it around.
+ */
+public final class CoalescedCommand implements Runnable {
+    private final Runnable action;
+    private final AtomicBoolean isQueued = new AtomicBoolean();
+
+    // --------------------------------------------------------------------- //
+
+    public CoalescedCommand(final Runnable action) {
+        this.action = action;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Queue this command with the specified bus controller, unless it is
+     * already queued.
+     * <p>
+     * If there is no bus controller, the action is run immediately.
+     * <p>
+     * This method is thread safe.
+     *
+     * @param controller the controller to queue the command with.
+     */
+    public void queue(@Nullable final BusController controller) {
+        if (controller == null) {
+            action.run();
+        } else if (isQueued.compareAndSet(false, true)) {
+            controller.queueCommand(this);
+        }
+    }
+
+    /**
+     * Whether this command is currently queued and has not run yet.
+     *
+     * @return <code>true</code> if the command is queued; <code>false</code> otherwise.
+     */
+    public boolean isQueued() {
+        return isQueued.get();
+    }
+
+    // --------------------------------------------------------------------- //
+    // Runnable
+
+    @Override
+    public void run() {
+        isQueued.set(false);
+        action.run();
+    }
+}
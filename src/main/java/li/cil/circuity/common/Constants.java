@@ -6,6 +6,11 @@ public final class Constants {
      */
     public static final int TICKS_PER_SECOND = 20;
 
+    /**
+     * The nominal clock rate of the built-in processors, in Hz.
+     */
+    public static final int PROCESSOR_CLOCK_RATE = 2_000_000;
+
     // --------------------------------------------------------------------- //
 
     public static final String BUS_CONTROLLER_NAME = "bus_controller";
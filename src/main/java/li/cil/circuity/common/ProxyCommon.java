@@ -8,6 +8,7 @@ import li.cil.circuity.common.capabilities.eeprom.CapabilityEEPROM;
 import li.cil.circuity.common.capabilities.fdd.CapabilityFloppyDisk;
 import li.cil.circuity.common.init.Blocks;
 import li.cil.circuity.common.init.Items;
+import li.cil.circuity.server.command.Commands;
 import li.cil.circuity.server.gui.spatial.SpatialUIProviderServerAddressMapping;
 import li.cil.circuity.server.gui.spatial.SpatialUIProviderServerAddressable;
 import li.cil.circuity.server.gui.spatial.SpatialUIProviderServerInterruptable;
@@ -30,6 +31,8 @@ public abstract class ProxyCommon {
     }
 
     public void init(final FMLInitializationEvent event) {
+        Commands.init();
+
         SillyBeeAPI.spatialUI.register(SpatialUIProviderClientAddressable.INSTANCE, SpatialUIProviderServerAddressable.INSTANCE);
         SillyBeeAPI.spatialUI.register(SpatialUIProviderClientAddressMapping.INSTANCE, SpatialUIProviderServerAddressMapping.INSTANCE);
         SillyBeeAPI.spatialUI.register(SpatialUIProviderClientInterruptable.INSTANCE, SpatialUIProviderServerInterruptable.INSTANCE);
@@ -8,7 +8,74 @@ import java.io.File;
 public enum Settings {
     INSTANCE;
 
+    // --------------------------------------------------------------------- //
+
+    private static final String CATEGORY_BUS = "bus";
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * The number of worker threads used to update buses. Zero means one per
+     * available processor, minus one for the server thread.
+     */
+    public static int busThreads = 0;
+
+    /**
+     * Whether to update the tickables of a single bus in parallel.
+     * <p>
+     * Results do not depend on thread scheduling in this mode: writes to
+     * shared memory become visible at quantum boundaries, and other shared
+     * devices are accessed in a fixed order of the tickables.
+     */
+    public static boolean busParallelUpdates = false;
+
+    /**
+     * The number of quanta a tick is split into when updating in parallel.
+     */
+    public static int busParallelQuanta = 4;
+
+    /**
+     * The time budget for updating all buses per tick, in milliseconds. Zero
+     * disables adjusting clock rates of buses.
+     */
+    public static int busTimeBudget = 25;
+
+    /**
+     * The number of ticks buses may lag behind the server. Zero means buses
+     * are always updated within the same tick.
+     */
+    public static int busMaxLag = 0;
+
+    // --------------------------------------------------------------------- //
+
     public static void init(final File file) {
         final Configuration config = new Configuration(file, CircuityAPI.MOD_VERSION);
+
+        busThreads = config.getInt("threads", CATEGORY_BUS, busThreads, 0, 64,
+                "The number of worker threads used to update buses. Zero means one per available processor, minus one for the server thread.");
+        busParallelUpdates = config.getBoolean("parallelUpdates", CATEGORY_BUS, busParallelUpdates,
+                "Whether to update devices on the same bus, such as multiple processors, in parallel. Writes to shared memory become visible to other devices at the end of each slice, and other shared devices are accessed in a fixed order, so results do not depend on thread scheduling.");
+        busParallelQuanta = config.getInt("parallelQuanta", CATEGORY_BUS, busParallelQuanta, 1, 100,
+                "The number of slices a tick is split into when updating in parallel. Devices synchronize at the end of each slice.");
+        busTimeBudget = config.getInt("timeBudget", CATEGORY_BUS, busTimeBudget, 0, 1000,
+                "The time in milliseconds buses may take to update per tick. When exceeded, buses are slowed down to stay within the budget. Zero disables this.");
+        busMaxLag = config.getInt("maxLag", CATEGORY_BUS, busMaxLag, 0, 20,
+                "The number of ticks buses may lag behind the server, so that the server does not have to wait for slow buses every tick. Buses are fully synchronized when saving, when unloading chunks they span and when devices change due to interaction. Zero means buses always finish updating within the same tick.");
+
+        if (config.hasChanged()) {
+            config.save();
+        }
+    }
+
+    /**
+     * Get the number of bus worker threads to use, resolving the automatic setting.
+     *
+     * @return the number of bus worker threads.
+     */
+    public static int getBusThreadCount() {
+        if (busThreads > 0) {
+            return busThreads;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     }
 }
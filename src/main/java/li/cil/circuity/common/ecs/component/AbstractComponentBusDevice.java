@@ -4,6 +4,7 @@ import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.common.capabilities.CapabilityBusElement;
 import li.cil.lib.api.ecs.manager.EntityComponentManager;
+import li.cil.lib.api.serialization.SerializationListener;
 import li.cil.lib.ecs.component.AbstractComponent;
 import net.minecraft.util.EnumFacing;
 import net.minecraftforge.common.capabilities.Capability;
@@ -11,13 +12,42 @@ import net.minecraftforge.common.capabilities.ICapabilityProvider;
 
 import javax.annotation.Nullable;
 
-public abstract class AbstractComponentBusDevice extends AbstractComponent implements ICapabilityProvider {
+public abstract class AbstractComponentBusDevice extends AbstractComponent implements ICapabilityProvider, SerializationListener {
     protected AbstractComponentBusDevice(final EntityComponentManager manager, final long entity, final long id) {
         super(manager, entity, id);
     }
 
     public abstract BusElement getBusElement();
 
+    // --------------------------------------------------------------------- //
+    // SerializationListener
+
+    @Override
+    public void onBeforeSerialization() {
+        // The bus may lag behind the server, make sure it's not still
+        // updating while we're being saved, and that all changes it made
+        // have been applied.
+        final BusController controller = getBusElement().getBusController();
+        if (controller != null) {
+            controller.synchronize();
+        }
+    }
+
+    @Override
+    public void onAfterSerialization() {
+    }
+
+    @Override
+    public void onBeforeDeserialization() {
+    }
+
+    @Override
+    public void onAfterDeserialization() {
+    }
+
+    // --------------------------------------------------------------------- //
+    // ICapabilityProvider
+
     @Override
     public boolean hasCapability(final Capability<?> capability, @Nullable final EnumFacing facing) {
         return capability == CapabilityBusElement.BUS_ELEMENT_CAPABILITY;
@@ -6,6 +6,7 @@ import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.api.bus.device.AbstractBusElement;
 import li.cil.lib.api.ecs.manager.EntityComponentManager;
 import li.cil.lib.synchronization.value.SynchronizedLong;
+import net.minecraft.util.math.ChunkPos;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
@@ -29,8 +30,12 @@ public final class BusCable extends BusNeighborAware {
     public void onDestroy() {
         super.onDestroy();
 
-        if (connector.getBusController() != null) {
-            connector.getBusController().scheduleScan();
+        // Full scan, not just our connector: this also runs on chunk unload,
+        // where the cached adjacency of our neighbors still contains us and
+        // would otherwise keep the bus looking complete.
+        final BusController controller = connector.getBusController();
+        if (controller != null) {
+            controller.scheduleScan();
         }
     }
 
@@ -64,5 +69,15 @@ public final class BusCable extends BusNeighborAware {
         public boolean getConnected(final Collection<BusElement> devices) {
             return BusCable.this.getConnected(devices);
         }
+
+        @Override
+        public void getUnloadedChunks(final Collection<ChunkPos> chunks) {
+            BusCable.this.getUnloadedChunks(chunks);
+        }
+
+        @Override
+        public boolean getChunks(final Collection<ChunkPos> chunks) {
+            return BusCable.this.getChunks(chunks);
+        }
     }
 }
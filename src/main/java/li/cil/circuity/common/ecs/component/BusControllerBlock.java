@@ -6,6 +6,7 @@ import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.common.Constants;
 import li.cil.circuity.server.bus.controller.AbstractBusController;
 import li.cil.lib.api.ecs.component.LateTickable;
+import li.cil.lib.api.ecs.component.Location;
 import li.cil.lib.api.ecs.component.Redstone;
 import li.cil.lib.api.ecs.component.event.ActivationListener;
 import li.cil.lib.api.ecs.manager.EntityComponentManager;
@@ -18,6 +19,7 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumHand;
 import net.minecraft.util.ITickable;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.World;
 
@@ -176,6 +178,13 @@ public class BusControllerBlock extends BusNeighborAware implements ITickable, L
             return BusControllerBlock.this.getWorld();
         }
 
+        @Override
+        public String getLocationDescription() {
+            return BusControllerBlock.this.getComponent(Location.class).
+                    map(location -> super.getLocationDescription() + " @ " + location.getPosition()).
+                    orElseGet(super::getLocationDescription);
+        }
+
         // --------------------------------------------------------------------- //
         // BusConnector
 
@@ -183,5 +192,15 @@ public class BusControllerBlock extends BusNeighborAware implements ITickable, L
         public boolean getConnected(final Collection<BusElement> devices) {
             return BusControllerBlock.this.getConnected(devices);
         }
+
+        @Override
+        public void getUnloadedChunks(final Collection<ChunkPos> chunks) {
+            BusControllerBlock.this.getUnloadedChunks(chunks);
+        }
+
+        @Override
+        public boolean getChunks(final Collection<ChunkPos> chunks) {
+            return BusControllerBlock.this.getChunks(chunks);
+        }
     }
 }
@@ -3,12 +3,14 @@ package li.cil.circuity.common.ecs.component;
 import io.netty.buffer.ByteBuf;
 import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
+import li.cil.circuity.api.bus.controller.AddressMapper;
 import li.cil.circuity.api.bus.device.AbstractBusDevice;
 import li.cil.circuity.api.bus.device.AddressBlock;
 import li.cil.circuity.api.bus.device.AddressHint;
 import li.cil.circuity.api.bus.device.Addressable;
 import li.cil.circuity.api.bus.device.DeviceInfo;
 import li.cil.circuity.api.bus.device.DeviceType;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
 import li.cil.circuity.api.item.EEPROM;
 import li.cil.circuity.common.Constants;
 import li.cil.circuity.common.capabilities.eeprom.CapabilityEEPROM;
@@ -24,6 +26,7 @@ import net.minecraft.world.World;
 import net.minecraftforge.items.IItemHandler;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 
 @Serializable
 public final class BusDeviceEEPROMReader extends AbstractComponentBusDevice implements InventoryChangeListener {
@@ -89,6 +92,13 @@ public final class BusDeviceEEPROMReader extends AbstractComponentBusDevice impl
 
     private void updateData() {
         scheduledDataUpdate = null;
+
+        // Bus might be lagging behind, don't pull the data out from under it.
+        final BusController controller = device.getBusController();
+        if (controller != null) {
+            controller.synchronize();
+        }
+
         data = null;
 
         final IItemHandler inventory = getComponent(InventoryMutable.class).orElseThrow(IllegalStateException::new);
@@ -100,15 +110,19 @@ public final class BusDeviceEEPROMReader extends AbstractComponentBusDevice impl
             }
         }
 
-        final BusController controller = device.getBusController();
         if (controller != null) {
+            // Processors may have cached the old backing array.
+            final AddressMapper mapper = controller.getSubsystem(AddressMapper.class);
+            if (mapper != null) {
+                mapper.invalidate();
+            }
             controller.scheduleScan();
         }
     }
 
     public static final DeviceInfo DEVICE_INFO = new DeviceInfo(DeviceType.READ_ONLY_MEMORY, Constants.DeviceInfo.EEPROM_READER_NAME);
 
-    public final class EEPROMImpl extends AbstractBusDevice implements Addressable, AddressHint {
+    public final class EEPROMImpl extends AbstractBusDevice implements Addressable, AddressHint, DirectMemoryRegion {
         // --------------------------------------------------------------------- //
         // BusDevice
 
@@ -130,7 +144,7 @@ public final class BusDeviceEEPROMReader extends AbstractComponentBusDevice impl
         @Override
         public int read(final long address) {
             if (data != null) {
-                return data.getByte((int) address);
+                return data.getUnsignedByte((int) address);
             } else {
                 return 0xFFFFFFFF;
             }
@@ -144,6 +158,41 @@ public final class BusDeviceEEPROMReader extends AbstractComponentBusDevice impl
 //            }
         }
 
+        @Override
+        public void read(final long address, final byte[] buffer, final int offset, final int length) {
+            if (data != null) {
+                data.getBytes((int) address, buffer, offset, length);
+            } else {
+                Arrays.fill(buffer, offset, offset + length, (byte) 0xFF);
+            }
+        }
+
+        // --------------------------------------------------------------------- //
+        // DirectMemoryRegion
+
+        @Nullable
+        @Override
+        public byte[] getDirectMemory() {
+            final ByteBuf data = BusDeviceEEPROMReader.this.data;
+            return data != null && data.hasArray() ? data.array() : null;
+        }
+
+        @Override
+        public int getDirectMemoryOffset() {
+            final ByteBuf data = BusDeviceEEPROMReader.this.data;
+            return data != null && data.hasArray() ? data.arrayOffset() : 0;
+        }
+
+        @Override
+        public boolean isDirectMemoryReadOnly() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectMemoryWriteNotify() {
+            return false;
+        }
+
         // --------------------------------------------------------------------- //
         // AddressHint
 
@@ -1,6 +1,7 @@
 package li.cil.circuity.common.ecs.component;
 
 import io.netty.buffer.ByteBuf;
+import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.api.bus.device.AbstractBusDevice;
 import li.cil.circuity.api.bus.device.AddressHint;
@@ -89,9 +90,16 @@ public final class BusDeviceFloppyDiskDrive extends AbstractComponentBusDevice i
     }
 
     private void updateData() {
-        image = null;
         scheduledDataUpdate = null;
 
+        // Bus might be lagging behind, don't pull the disk out from under it.
+        final BusController controller = device.getBusController();
+        if (controller != null) {
+            controller.synchronize();
+        }
+
+        image = null;
+
         final IItemHandler inventory = getComponent(InventoryMutable.class).orElseThrow(IllegalStateException::new);
         final ItemStack stack = inventory.getStackInSlot(0);
         if (!stack.isEmpty()) {
@@ -1,5 +1,6 @@
 package li.cil.circuity.common.ecs.component;
 
+import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.api.bus.controller.AddressMapper;
 import li.cil.circuity.api.bus.device.AbstractBusDevice;
@@ -8,6 +9,7 @@ import li.cil.circuity.api.bus.device.BusStateListener;
 import li.cil.circuity.api.bus.device.InterruptSink;
 import li.cil.circuity.common.Constants;
 import li.cil.circuity.server.processor.BusControllerAccess;
+import li.cil.circuity.server.processor.ProcessorMetricsRegistry;
 import li.cil.circuity.server.processor.mips.Mips3;
 import li.cil.circuity.util.IntelHexLoader;
 import li.cil.lib.api.ecs.manager.EntityComponentManager;
@@ -26,7 +28,8 @@ import java.nio.file.Paths;
  */
 public class BusDeviceProcessorMips3 extends AbstractComponentBusDevice {
 
-    private static final int CYCLES_PER_TICK = 2_000_000 / 20;
+    private static final int CYCLES_PER_TICK = Constants.PROCESSOR_CLOCK_RATE / Constants.TICKS_PER_SECOND;
+    private static final String METRICS_TYPE = "mips3";
 
     @Serialize
     private final BusDeviceProcessorMips3Impl device = new BusDeviceProcessorMips3Impl();
@@ -59,6 +62,19 @@ public class BusDeviceProcessorMips3 extends AbstractComponentBusDevice {
             this.mips = new Mips3(new BusControllerAccess(this::getBusController, 0));
         }
 
+        // --------------------------------------------------------------------- //
+        // BusElement
+
+        @Override
+        public void setBusController(@Nullable final BusController controller) {
+            super.setBusController(controller);
+            if (controller != null) {
+                ProcessorMetricsRegistry.INSTANCE.add(METRICS_TYPE, mips.getMetrics());
+            } else {
+                ProcessorMetricsRegistry.INSTANCE.remove(mips.getMetrics());
+            }
+        }
+
         // --------------------------------------------------------------------- //
         // InterruptSink
 
@@ -91,10 +107,9 @@ public class BusDeviceProcessorMips3 extends AbstractComponentBusDevice {
 
             // TODO Configurable address.
             final int eepromAddress = 0xC100;
-            for (int offset = 0; offset < 4 * 1024; offset++) {
-                final int value = mapper.mapAndRead(eepromAddress + offset);
-                mapper.mapAndWrite(offset, value);
-            }
+            final byte[] bootBlock = new byte[4 * 1024];
+            mapper.mapAndReadBlock(eepromAddress, bootBlock, 0, bootBlock.length);
+            mapper.mapAndWriteBlock(0, bootBlock, 0, bootBlock.length);
 
             if (true) {
                 try {
@@ -119,7 +134,26 @@ public class BusDeviceProcessorMips3 extends AbstractComponentBusDevice {
 
         @Override
         public void updateAsync() {
-            mips.run(CYCLES_PER_TICK);
+            mips.run(getCyclesPerTick());
+        }
+
+        @Override
+        public void updateAsync(final int quantum, final int quantumCount) {
+            // Hand out the remainder in the last quantum, to keep the clock exact.
+            final int cyclesPerTick = getCyclesPerTick();
+            final int cycles = cyclesPerTick / quantumCount;
+            if (quantum == quantumCount - 1) {
+                mips.run(cyclesPerTick - cycles * (quantumCount - 1));
+            } else {
+                mips.run(cycles);
+            }
+        }
+
+        // --------------------------------------------------------------------- //
+
+        private int getCyclesPerTick() {
+            final BusController controller = getBusController();
+            return controller != null ? (int) (CYCLES_PER_TICK * controller.getClockScale()) : CYCLES_PER_TICK;
         }
     }
 }
@@ -20,7 +20,7 @@ import javax.annotation.Nullable;
 
 @Serializable
 public final class BusDeviceProcessorZ80 extends AbstractComponentBusDevice {
-    private static final int CYCLES_PER_TICK = 2_000_000 / 20;
+    private static final int CYCLES_PER_TICK = Constants.PROCESSOR_CLOCK_RATE / Constants.TICKS_PER_SECOND;
 
     @Serialize
     private final BusDeviceProcessorZ80Impl device = new BusDeviceProcessorZ80Impl();
@@ -117,7 +117,31 @@ public final class BusDeviceProcessorZ80 extends AbstractComponentBusDevice {
 
         @Override
         public void updateAsync() {
-            z80.run(CYCLES_PER_TICK);
+            z80.run(getCyclesPerTick());
+        }
+
+        @Override
+        public boolean isIdle() {
+            return z80.isIdle();
+        }
+
+        @Override
+        public void updateAsync(final int quantum, final int quantumCount) {
+            // Hand out the remainder in the last quantum, to keep the clock exact.
+            final int cyclesPerTick = getCyclesPerTick();
+            final int cycles = cyclesPerTick / quantumCount;
+            if (quantum == quantumCount - 1) {
+                z80.run(cyclesPerTick - cycles * (quantumCount - 1));
+            } else {
+                z80.run(cycles);
+            }
+        }
+
+        // --------------------------------------------------------------------- //
+
+        private int getCyclesPerTick() {
+            final BusController controller = getBusController();
+            return controller != null ? (int) (CYCLES_PER_TICK * controller.getClockScale()) : CYCLES_PER_TICK;
         }
     }
 }
@@ -2,6 +2,7 @@ package li.cil.circuity.common.ecs.component;
 
 import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
+import li.cil.circuity.api.bus.controller.AddressMapper;
 import li.cil.circuity.api.bus.device.AbstractBusDevice;
 import li.cil.circuity.api.bus.device.AddressBlock;
 import li.cil.circuity.api.bus.device.AddressHint;
@@ -9,6 +10,8 @@ import li.cil.circuity.api.bus.device.Addressable;
 import li.cil.circuity.api.bus.device.BusStateListener;
 import li.cil.circuity.api.bus.device.DeviceInfo;
 import li.cil.circuity.api.bus.device.DeviceType;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
+import li.cil.circuity.api.bus.device.util.CoalescedCommand;
 import li.cil.circuity.common.Constants;
 import li.cil.lib.api.ecs.manager.EntityComponentManager;
 import li.cil.lib.api.serialization.Serializable;
@@ -28,6 +31,9 @@ public final class BusDeviceRandomAccessMemory extends AbstractComponentBusDevic
     @Serialize
     private byte[] memory = EMPTY;
 
+    // Writes happen in the bus thread, so mark changed on the server thread.
+    private final CoalescedCommand markChangedCommand = new CoalescedCommand(this::markChanged);
+
     // Component ID of controller for client.
     public final SynchronizedLong controllerId = new SynchronizedLong();
 
@@ -44,12 +50,23 @@ public final class BusDeviceRandomAccessMemory extends AbstractComponentBusDevic
     }
 
     public void setSize(final int bytes) {
+        // Processors may have cached the old array, make sure none is using
+        // it while we copy, and that they pick up the new one afterwards.
+        final BusController controller = device.getBusController();
+        if (controller != null) {
+            controller.synchronize();
+        }
+
         final byte[] newMemory = bytes > 0 ? new byte[bytes] : EMPTY;
         System.arraycopy(memory, 0, newMemory, 0, Math.min(memory.length, newMemory.length));
         memory = newMemory;
 
-        if (device.getBusController() != null) {
-            device.getBusController().scheduleScan();
+        if (controller != null) {
+            final AddressMapper mapper = controller.getSubsystem(AddressMapper.class);
+            if (mapper != null) {
+                mapper.invalidate();
+            }
+            controller.scheduleScan();
         }
     }
 
@@ -65,7 +82,7 @@ public final class BusDeviceRandomAccessMemory extends AbstractComponentBusDevic
 
     public static final DeviceInfo DEVICE_INFO = new DeviceInfo(DeviceType.READ_WRITE_MEMORY, Constants.DeviceInfo.RANDOM_ACCESS_MEMORY_NAME);
 
-    public final class RandomAccessMemoryImpl extends AbstractBusDevice implements Addressable, AddressHint, BusStateListener {
+    public final class RandomAccessMemoryImpl extends AbstractBusDevice implements Addressable, AddressHint, BusStateListener, DirectMemoryRegion {
         // --------------------------------------------------------------------- //
         // BusElement
 
@@ -100,7 +117,86 @@ public final class BusDeviceRandomAccessMemory extends AbstractComponentBusDevic
         @Override
         public void write(final long address, final int value) {
             BusDeviceRandomAccessMemory.this.memory[(int) address] = (byte) value;
-            BusDeviceRandomAccessMemory.this.markChanged();
+            markChangedCommand.queue(getBusController());
+        }
+
+        @Override
+        public void read(final long address, final byte[] buffer, final int offset, final int length) {
+            System.arraycopy(BusDeviceRandomAccessMemory.this.memory, (int) address, buffer, offset, length);
+        }
+
+        @Override
+        public void write(final long address, final byte[] buffer, final int offset, final int length) {
+            System.arraycopy(buffer, offset, BusDeviceRandomAccessMemory.this.memory, (int) address, length);
+            markChangedCommand.queue(getBusController());
+        }
+
+        @Override
+        public int read16(final long address) {
+            final byte[] memory = BusDeviceRandomAccessMemory.this.memory;
+            final int index = (int) address;
+            return (memory[index] & 0xFF) |
+                    ((memory[index + 1] & 0xFF) << 8);
+        }
+
+        @Override
+        public int read32(final long address) {
+            final byte[] memory = BusDeviceRandomAccessMemory.this.memory;
+            final int index = (int) address;
+            return (memory[index] & 0xFF) |
+                    ((memory[index + 1] & 0xFF) << 8) |
+                    ((memory[index + 2] & 0xFF) << 16) |
+                    (memory[index + 3] << 24);
+        }
+
+        @Override
+        public long read64(final long address) {
+            return (read32(address) & 0xFFFFFFFFL) |
+                    ((long) read32(address + 4) << 32);
+        }
+
+        @Override
+        public void write16(final long address, final int value) {
+            final byte[] memory = BusDeviceRandomAccessMemory.this.memory;
+            final int index = (int) address;
+            memory[index] = (byte) value;
+            memory[index + 1] = (byte) (value >>> 8);
+            markChangedCommand.queue(getBusController());
+        }
+
+        @Override
+        public void write32(final long address, final int value) {
+            final byte[] memory = BusDeviceRandomAccessMemory.this.memory;
+            final int index = (int) address;
+            memory[index] = (byte) value;
+            memory[index + 1] = (byte) (value >>> 8);
+            memory[index + 2] = (byte) (value >>> 16);
+            memory[index + 3] = (byte) (value >>> 24);
+            markChangedCommand.queue(getBusController());
+        }
+
+        @Override
+        public void write64(final long address, final long value) {
+            write32(address, (int) value);
+            write32(address + 4, (int) (value >>> 32));
+        }
+
+        // --------------------------------------------------------------------- //
+        // DirectMemoryRegion
+
+        @Override
+        public byte[] getDirectMemory() {
+            return BusDeviceRandomAccessMemory.this.memory;
+        }
+
+        @Override
+        public boolean isDirectMemoryReadOnly() {
+            return false;
+        }
+
+        @Override
+        public void markDirectMemoryDirty() {
+            markChangedCommand.queue(getBusController());
         }
 
         // --------------------------------------------------------------------- //
@@ -6,6 +6,7 @@ import li.cil.circuity.api.bus.device.AddressHint;
 import li.cil.circuity.api.bus.device.Addressable;
 import li.cil.circuity.api.bus.device.DeviceInfo;
 import li.cil.circuity.api.bus.device.DeviceType;
+import li.cil.circuity.api.bus.device.util.CoalescedCommand;
 import li.cil.circuity.api.bus.device.util.SerialPortManager;
 import li.cil.circuity.common.Constants;
 import li.cil.circuity.server.bus.util.SerialPortManagerProxy;
@@ -52,6 +53,11 @@ public final class BusDeviceRedstoneController extends AbstractComponentBusDevic
     public final class RedstoneControllerImpl extends AbstractBusDevice implements Addressable, AddressHint, SerialPortManagerProxy {
         private final SerialPortManager serialPortManager = new SerialPortManager();
 
+        // Writes happen in the bus thread, so apply them on the server thread;
+        // the command always applies the most recently written value.
+        private final CoalescedCommand applyOutputCommand = new CoalescedCommand(this::applyOutput);
+        private volatile int pendingOutput;
+
         public RedstoneControllerImpl() {
             serialPortManager.setPreferredAddressOffset(Constants.REDSTONE_CONTROLLER_ADDRESS);
             serialPortManager.addSerialPort(this::readInput, null, null);
@@ -91,13 +97,21 @@ public final class BusDeviceRedstoneController extends AbstractComponentBusDevic
         }
 
         private int readOutput(final long address) {
+            if (applyOutputCommand.isQueued()) {
+                return pendingOutput;
+            }
             final Optional<Redstone> redstone = BusDeviceRedstoneController.this.getComponent(Redstone.class);
             return redstone.map(r -> r.getOutput(null)).orElse(0);
         }
 
         private void writeOutput(final long address, final int value) {
+            pendingOutput = value;
+            applyOutputCommand.queue(getBusController());
+        }
+
+        private void applyOutput() {
             final Optional<Redstone> redstone = BusDeviceRedstoneController.this.getComponent(Redstone.class);
-            redstone.ifPresent(r -> r.setOutput(null, value));
+            redstone.ifPresent(r -> r.setOutput(null, pendingOutput));
         }
     }
 }
@@ -8,6 +8,7 @@ import li.cil.circuity.api.bus.device.BusStateListener;
 import li.cil.circuity.api.bus.device.DeviceInfo;
 import li.cil.circuity.api.bus.device.DeviceType;
 import li.cil.circuity.api.bus.device.ScreenRenderer;
+import li.cil.circuity.api.bus.device.util.CoalescedCommand;
 import li.cil.circuity.api.bus.device.util.SerialPortManager;
 import li.cil.circuity.common.Constants;
 import li.cil.circuity.server.bus.util.SerialPortManagerProxy;
@@ -45,6 +46,9 @@ public final class BusDeviceSerialConsole extends AbstractComponentBusDevice imp
     @Serialize
     private final SynchronizedInt scrOffY = new SynchronizedInt(0); // Range: [0,CONS_HEIGHT)
 
+    // Writes happen in the bus thread, so mark changed on the server thread.
+    private final CoalescedCommand markChangedCommand = new CoalescedCommand(this::markChanged);
+
     // --------------------------------------------------------------------- //
 
     public BusDeviceSerialConsole(final EntityComponentManager manager, final long entity, final long id) {
@@ -256,7 +260,7 @@ public final class BusDeviceSerialConsole extends AbstractComponentBusDevice imp
                 }
             }
 
-            BusDeviceSerialConsole.this.markChanged();
+            markChangedCommand.queue(getBusController());
         }
 
         // --------------------------------------------------------------------- //
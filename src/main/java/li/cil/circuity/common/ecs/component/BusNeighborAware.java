@@ -1,5 +1,6 @@
 package li.cil.circuity.common.ecs.component;
 
+import li.cil.circuity.api.bus.BusConnector;
 import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.BusElement;
 import li.cil.circuity.common.capabilities.CapabilityBusElement;
@@ -9,6 +10,7 @@ import li.cil.lib.api.ecs.manager.EntityComponentManager;
 import li.cil.lib.util.CapabilityUtil;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 
 import javax.annotation.Nullable;
@@ -37,7 +39,7 @@ public abstract class BusNeighborAware extends AbstractComponentBusDevice implem
             final HashSet<BusElement> devices = new HashSet<>();
             getConnected(devices);
             if (neighbors.retainAll(devices) | neighbors.addAll(devices)) {
-                controller.scheduleScan();
+                scheduleScan(controller);
             }
         }
     }
@@ -47,11 +49,54 @@ public abstract class BusNeighborAware extends AbstractComponentBusDevice implem
     @Nullable
     protected abstract BusController getController();
 
+    /**
+     * Notify the specified controller that our connections changed, limiting
+     * the rescan to our own connector if we are one.
+     *
+     * @param controller the controller to notify.
+     */
+    protected void scheduleScan(final BusController controller) {
+        final BusElement element = getBusElement();
+        if (element instanceof BusConnector) {
+            controller.scheduleScan((BusConnector) element);
+        } else {
+            controller.scheduleScan();
+        }
+    }
+
     protected boolean getConnected(final Collection<BusElement> devices) {
         final Optional<Location> location = getComponent(Location.class);
         return !location.isPresent() || getDevicesAt(location.get(), devices);
     }
 
+    protected void getUnloadedChunks(final Collection<ChunkPos> chunks) {
+        final Optional<Location> location = getComponent(Location.class);
+        if (location.isPresent()) {
+            final World world = location.get().getWorld();
+            final BlockPos pos = location.get().getPosition();
+            for (final EnumFacing side : EnumFacing.VALUES) {
+                final BlockPos neighborPos = pos.offset(side);
+                if (!world.isBlockLoaded(neighborPos)) {
+                    chunks.add(new ChunkPos(neighborPos));
+                }
+            }
+        }
+    }
+
+    protected boolean getChunks(final Collection<ChunkPos> chunks) {
+        final Optional<Location> location = getComponent(Location.class);
+        if (!location.isPresent()) {
+            return false;
+        }
+
+        final BlockPos pos = location.get().getPosition();
+        chunks.add(new ChunkPos(pos));
+        for (final EnumFacing side : EnumFacing.VALUES) {
+            chunks.add(new ChunkPos(pos.offset(side)));
+        }
+        return true;
+    }
+
     private static boolean getDevicesAt(final Location location, final Collection<BusElement> devices) {
         final World world = location.getWorld();
         final BlockPos pos = location.getPosition();
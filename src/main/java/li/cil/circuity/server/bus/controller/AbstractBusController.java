@@ -21,17 +21,27 @@ import li.cil.circuity.api.bus.device.DeviceInfo;
 import li.cil.circuity.api.bus.device.DeviceType;
 import li.cil.circuity.api.bus.device.util.SerialPortManager;
 import li.cil.circuity.common.Constants;
+import li.cil.circuity.common.Settings;
+import li.cil.circuity.server.bus.util.BusGovernor;
+import li.cil.circuity.server.bus.util.BusSynchronizer;
 import li.cil.circuity.server.bus.util.BusThreadPool;
+import li.cil.circuity.server.bus.util.ChunkLoadWatcher;
+import li.cil.circuity.server.bus.util.CommandBuffer;
 import li.cil.circuity.server.bus.util.SerialPortManagerProxy;
 import li.cil.lib.api.SillyBeeAPI;
 import li.cil.lib.api.scheduler.ScheduledCallback;
 import li.cil.lib.api.serialization.Serialize;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.ITickable;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 
 import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -39,8 +49,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Base implementation for a bus controller.
@@ -54,7 +64,8 @@ import java.util.concurrent.Future;
  * </li>
  * <li>
  * call {@link #scheduleScan()} when added to the world and when the list of
- * neighboring bus connectors changed.
+ * neighboring bus connectors changed (or {@link #scheduleScan(BusConnector)}
+ * for the latter, to only re-query the controller itself).
  * </li>
  * <li>
  * call {@link #dispose()} when they get disposed/removed from the world.
@@ -64,10 +75,24 @@ import java.util.concurrent.Future;
 public abstract class AbstractBusController extends AbstractBusDevice implements BusController, Addressable, AddressHint, BusStateListener, SerialPortManagerProxy {
     /**
      * The interval in which to re-scan the bus in case multiple controllers
-     * were detected or the scan hit the end of the loaded world, in seconds.
+     * were detected or the scan hit the end of the loaded world and the
+     * connector that failed could not tell us which chunks it needs, in seconds.
      */
     private static final int RESCAN_INTERVAL = 5;
 
+    /**
+     * The lowest clock scale the governor may reduce the bus to.
+     */
+    private static final float MIN_CLOCK_SCALE = 1 / 64f;
+
+    /**
+     * The factors by which the clock scale may change at most per update.
+     * Reducing is allowed to happen faster than restoring, to react quickly
+     * to load spikes without oscillating.
+     */
+    private static final float MAX_CLOCK_SCALE_DECREASE = 0.5f;
+    private static final float MAX_CLOCK_SCALE_INCREASE = 1.05f;
+
     /**
      * Version of the controller's serial interface API version.
      */
@@ -143,6 +168,36 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      */
     private final HashSet<BusElement> elements = new HashSet<>();
 
+    /**
+     * The cached bus topology, i.e. for each connector reachable from the
+     * controller the list of elements its {@link BusConnector#getConnected(Collection)}
+     * returned in the last scan.
+     * <p>
+     * Incremental scans only re-query connectors that reported a change via
+     * {@link #scheduleScan(BusConnector)} or that are not in this cache yet,
+     * and walk the cached connections for all others.
+     */
+    private final Map<BusConnector, List<BusElement>> connections = new HashMap<>();
+
+    /**
+     * Connectors that reported a change in their connections since the last
+     * scan, and which have to be re-queried in the next scan.
+     */
+    private final Set<BusConnector> changedConnectors = new HashSet<>();
+
+    /**
+     * Whether the next scan has to re-query all connectors, e.g. because
+     * {@link #scheduleScan()} was called or the last scan failed.
+     */
+    private boolean isFullScanPending = true;
+
+    /**
+     * The chunks the bus spans, as reported by its connectors in the last
+     * successful scan, or <code>null</code> if unknown, see {@link #isInChunk(ChunkPos)}.
+     */
+    @Nullable
+    private volatile Set<ChunkPos> chunks;
+
     /**
      * The list of state aware bus devices, i.e. device that are notified when
      * the bus is powered on / off.
@@ -163,6 +218,30 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      */
     private final List<AsyncTickable> tickables = new ArrayList<>();
 
+    /**
+     * Tasks for updating the tickables in parallel, one for each tickable but
+     * the first, which is updated on the controller's thread. Reused across
+     * quanta and updates, see {@link #updateDevicesParallel()}.
+     */
+    private final List<QuantumTask> quantumTasks = new ArrayList<>();
+
+    /**
+     * Arbitrates accesses of the tickables while they are updated in parallel,
+     * so that the result does not depend on thread scheduling.
+     */
+    private final BusArbiter arbiter = new BusArbiter();
+
+    /**
+     * Callback registered with the {@link ChunkLoadWatcher} when a scan failed
+     * due to unloaded chunks. Kept so we can unregister it again.
+     */
+    private final Runnable chunkLoadedCallback = this::scheduleScan;
+
+    /**
+     * Whether we're currently waiting for chunks to load before re-scanning.
+     */
+    private boolean isWaitingForChunks;
+
     /**
      * Whether we have a scan scheduled already (avoid multiple scans).
      */
@@ -173,10 +252,63 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      */
     private State state = State.SCANNING;
 
+    /**
+     * Affinity used when submitting updates to the {@link BusThreadPool}, so
+     * that we keep getting updated by the same worker thread.
+     */
+    private final int threadAffinity = BusThreadPool.INSTANCE.allocateAffinity();
+
+    /**
+     * The current clock scale, as determined by the governor.
+     */
+    private volatile float clockScale = 1f;
+
+    /**
+     * The time the last update took, in nanoseconds.
+     */
+    private volatile long lastUpdateTime;
+
+    /**
+     * Incremented every time the bus is woken up via {@link #wake()}.
+     */
+    private final AtomicInteger wakeCount = new AtomicInteger();
+
+    /**
+     * Whether all tickables were idle after the last update, and the value
+     * of {@link #wakeCount} when that update started. Updates are skipped
+     * while all tickables are idle and there was no wake-up since.
+     */
+    private volatile boolean isIdle;
+    private volatile int idleWakeCount;
+
+    /**
+     * Side effects queued by devices, run on the server thread in {@link #finishUpdate()}.
+     */
+    private final CommandBuffer commands = new CommandBuffer();
+
+    /**
+     * Used to coordinate the server thread and the worker thread updating
+     * this bus, guards {@link #pendingUpdates}, {@link #isUpdating} and
+     * {@link #updateError}.
+     */
+    private final Object updateLock = new Object();
+
+    /**
+     * The number of updates started via {@link #startUpdate()} that have not
+     * completed yet, i.e. by how many ticks the server is ahead of the bus.
+     */
+    private int pendingUpdates;
+
     /**
      * Set if we currently have a worker thread running.
      */
-    private Future currentUpdate;
+    private boolean isUpdating;
+
+    /**
+     * Error thrown by the worker thread, re-thrown on the server thread.
+     */
+    @Nullable
+    private Throwable updateError;
 
     // --------------------------------------------------------------------- //
 
@@ -242,7 +374,12 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
             return;
         }
 
+        // Notifying listeners modifies device state, so make sure we're
+        // not still updating devices.
+        synchronize();
+
         isOnline = value;
+        wake();
         if (isOnline) {
             for (final BusStateListener listener : stateListeners) {
                 try {
@@ -271,7 +408,14 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      * controllers connected to the same bus).
      * <p>
      * This will do nothing if the bus is currently in an errored state and
-     * unless it is in an online state.
+     * unless it is in an online state. It will also do nothing if all
+     * tickables reported being idle in the last update and the bus has not
+     * been woken up since, see {@link #wake()}.
+     * <p>
+     * If the previous update has not completed yet, which may be the case if
+     * the bus is allowed to lag behind the server, see {@link Settings#busMaxLag},
+     * the update is queued and run by the same worker thread as soon as the
+     * previous one completes.
      * <p>
      * This method is <em>not</em> thread safe. It is expected to be called
      * from the server thread only.
@@ -281,8 +425,17 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      * @see State#isOnline()
      */
     public void startUpdate() {
-        if (currentUpdate == null && isOnline()) {
-            currentUpdate = BusThreadPool.INSTANCE.submit(this::updateDevicesAsync);
+        if (isOnline() && !isSleeping()) {
+            synchronized (updateLock) {
+                ++pendingUpdates;
+                if (!isUpdating) {
+                    isUpdating = true;
+                    BusThreadPool.INSTANCE.submit(threadAffinity, this::runPendingUpdates);
+                }
+            }
+            if (Settings.busMaxLag > 0) {
+                BusSynchronizer.INSTANCE.add(getBusWorld(), this);
+            }
         }
     }
 
@@ -294,19 +447,54 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
      * kept in sync with the server update loop, which is particularly useful
      * to avoid non-deterministic behavior when saving.
      * <p>
+     * If the bus is allowed to lag behind the server, see {@link Settings#busMaxLag},
+     * this only waits until the bus is at most that many ticks behind. The
+     * bus is then fully synchronized only when necessary, see {@link #synchronize()}.
+     * <p>
+     * Afterwards, runs all commands queued by devices via {@link #queueCommand(Runnable)}.
+     * <p>
      * This method is <em>not</em> thread safe. It is expected to be called
      * from the server thread only.
      */
     public void finishUpdate() {
-        if (currentUpdate != null) {
-            try {
-                currentUpdate.get();
-            } catch (InterruptedException | ExecutionException e) {
-                Throwables.propagate(e);
-            } finally {
-                currentUpdate = null;
-            }
-        }
+        waitForPendingUpdates(Settings.busMaxLag);
+        commands.drain();
+    }
+
+    /**
+     * Get the time the last update of this bus took.
+     * <p>
+     * This method is thread safe.
+     *
+     * @return the duration of the last update, in nanoseconds.
+     */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    /**
+     * Get a human readable description of where this bus controller is, for
+     * diagnostics.
+     *
+     * @return a description of the controller's location.
+     */
+    public String getLocationDescription() {
+        return "dim " + getBusWorld().provider.getDimension();
+    }
+
+    /**
+     * Whether the bus may have elements in the specified chunk, i.e. whether
+     * it has to catch up with the server before the chunk unloads, see
+     * {@link BusSynchronizer}.
+     * <p>
+     * This method is thread safe.
+     *
+     * @param chunk the position of the chunk.
+     * @return <code>true</code> if the bus may span the chunk; <code>false</code> otherwise.
+     */
+    public boolean isInChunk(final ChunkPos chunk) {
+        final Set<ChunkPos> chunks = this.chunks;
+        return chunks == null || chunks.contains(chunk);
     }
 
     /**
@@ -330,7 +518,30 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
                 SillyBeeAPI.scheduler.cancel(getBusWorld(), scheduledScan);
                 scheduledScan = null;
             }
+            synchronized (updateLock) {
+                // Drop updates we're lagging behind on; the one currently
+                // running, if any, notices we're gone via isOnline().
+                pendingUpdates = Math.min(pendingUpdates, isUpdating ? 1 : 0);
+            }
+            stopWaitingForChunks();
+            connections.clear();
+            changedConnectors.clear();
+            isFullScanPending = true;
+            chunks = null;
         }
+        BusGovernor.INSTANCE.remove(this);
+        BusSynchronizer.INSTANCE.remove(getBusWorld(), this);
+
+        // Run what's left, so that devices don't think their commands are
+        // still queued when they get connected to another controller.
+        commands.drain();
+    }
+
+    /**
+     * The arbiter used while updating tickables in parallel.
+     */
+    BusArbiter getArbiter() {
+        return arbiter;
     }
 
     // --------------------------------------------------------------------- //
@@ -390,6 +601,37 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
         return isOnline && state == State.READY;
     }
 
+    @Override
+    public float getClockScale() {
+        return clockScale;
+    }
+
+    @Override
+    public void queueCommand(final Runnable command) {
+        commands.add(command);
+    }
+
+    @Override
+    public void synchronize() {
+        // Called from within an update, e.g. by a device; we're in sync by
+        // definition, and waiting would dead-lock.
+        if (Thread.holdsLock(lock)) {
+            return;
+        }
+        waitForPendingUpdates(0);
+
+        // Apply the side effects of the updates we waited for, so that e.g.
+        // changed devices are marked as such before they are saved.
+        if (isServerThread()) {
+            commands.drain();
+        }
+    }
+
+    @Override
+    public void wake() {
+        wakeCount.incrementAndGet();
+    }
+
     @Override
     public void scheduleScan() {
         final World world = getBusWorld();
@@ -397,10 +639,20 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
             return;
         }
         synchronized (lock) {
-            if (scheduledScan == null) {
-                scheduledScan = SillyBeeAPI.scheduler.schedule(world, this::scanSynchronized);
-                state = State.SCANNING;
-            }
+            isFullScanPending = true;
+            scheduleScanUnsynchronized(world);
+        }
+    }
+
+    @Override
+    public void scheduleScan(final BusConnector connector) {
+        final World world = getBusWorld();
+        if (world.isRemote) {
+            return;
+        }
+        synchronized (lock) {
+            changedConnectors.add(connector);
+            scheduleScanUnsynchronized(world);
         }
     }
 
@@ -432,19 +684,222 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
 
     // --------------------------------------------------------------------- //
 
+    /**
+     * Whether all tickables were idle after the last update, and nothing
+     * happened since that might have changed that.
+     */
+    private boolean isSleeping() {
+        return isIdle && idleWakeCount == wakeCount.get();
+    }
+
+    /**
+     * Whether the current thread is the server thread, the only thread that
+     * may run queued commands.
+     */
+    private boolean isServerThread() {
+        final MinecraftServer server = getBusWorld().getMinecraftServer();
+        return server != null && server.isCallingFromMinecraftThread();
+    }
+
+    private void waitForPendingUpdates(final int maxPendingUpdates) {
+        synchronized (updateLock) {
+            while (pendingUpdates > maxPendingUpdates) {
+                try {
+                    updateLock.wait();
+                } catch (final InterruptedException e) {
+                    Throwables.propagate(e);
+                }
+            }
+            if (updateError != null) {
+                final Throwable error = updateError;
+                updateError = null;
+                Throwables.propagate(error);
+            }
+        }
+    }
+
+    /**
+     * Runs updates until there are no more pending updates, i.e. until the
+     * bus has caught up with the server.
+     */
+    private void runPendingUpdates() {
+        for (; ; ) {
+            try {
+                updateDevicesAsync();
+            } catch (final Throwable t) {
+                synchronized (updateLock) {
+                    updateError = t;
+                    pendingUpdates = 0;
+                    isUpdating = false;
+                    updateLock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (updateLock) {
+                pendingUpdates = Math.max(0, pendingUpdates - 1);
+                updateLock.notifyAll();
+                if (pendingUpdates == 0) {
+                    isUpdating = false;
+                    return;
+                }
+            }
+        }
+    }
+
     private void updateDevicesAsync() {
         synchronized (lock) {
-            for (final AsyncTickable tickable : tickables) {
-                // A rescan might have snuck in or the owner may have been disposed
-                // between this was scheduled and before the worker thread started.
-                if (!isOnline()) {
-                    return;
+            // Remember the wake count before updating, so that wake-ups while
+            // we're updating reliably prevent us from going to sleep.
+            final int currentWakeCount = wakeCount.get();
+            final long start = System.nanoTime();
+            final boolean isParallel = Settings.busParallelUpdates && tickables.size() > 1;
+            // Accesses only need arbitration while tickables run in parallel.
+            final AddressMapperImpl mapper = (AddressMapperImpl) getSubsystem(AddressMapper.class);
+            mapper.setArbitrated(isParallel);
+            if (isParallel) {
+                arbiter.beginUpdate(mapper.getGeneration());
+                updateDevicesParallel();
+            } else {
+                updateDevicesSerial();
+            }
+            updateClockScale(System.nanoTime() - start);
+
+            idleWakeCount = currentWakeCount;
+            isIdle = areAllTickablesIdle();
+        }
+    }
+
+    private boolean areAllTickablesIdle() {
+        for (final AsyncTickable tickable : tickables) {
+            if (!tickable.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateDevicesSerial() {
+        for (final AsyncTickable tickable : tickables) {
+            // A rescan might have snuck in or the owner may have been disposed
+            // between this was scheduled and before the worker thread started.
+            if (!isOnline()) {
+                return;
+            }
+            tickable.updateAsync();
+        }
+    }
+
+    /**
+     * Adjusts the clock scale so that updates take about as long as the
+     * governor wants them to.
+     *
+     * @param updateTime the time the last update took, in nanoseconds.
+     */
+    private void updateClockScale(final long updateTime) {
+        lastUpdateTime = updateTime;
+
+        final long targetTime = BusGovernor.INSTANCE.reportUpdate(this);
+        if (!BusGovernor.INSTANCE.isEnabled()) {
+            clockScale = 1f;
+            return;
+        }
+
+        final float factor = updateTime > 0 ? targetTime / (float) updateTime : MAX_CLOCK_SCALE_INCREASE;
+        final float clampedFactor = Math.max(MAX_CLOCK_SCALE_DECREASE, Math.min(MAX_CLOCK_SCALE_INCREASE, factor));
+        clockScale = Math.max(MIN_CLOCK_SCALE, Math.min(1f, clockScale * clampedFactor));
+    }
+
+    /**
+     * Updates all tickables concurrently, in a number of quanta, waiting for
+     * all tickables to complete a quantum before starting the next one.
+     * <p>
+     * The first tickable is always updated on the current thread, the others
+     * are submitted to the thread pool with stable affinities. When waiting
+     * for a quantum to complete, tasks that have not been started yet are run
+     * on the current thread, so that this can never deadlock, even if all
+     * workers are busy waiting on their own quanta.
+     * <p>
+     * Each tickable has one {@link QuantumTask} that is submitted again for
+     * every quantum, so this does not allocate unless the tickables changed.
+     * <p>
+     * Accesses within a quantum are arbitrated by the {@link BusArbiter}, in
+     * the order of the tickables, so that the result is the same no matter
+     * how the threads are scheduled.
+     */
+    private void updateDevicesParallel() {
+        final int quantumCount = Settings.busParallelQuanta;
+        final Thread waiter = Thread.currentThread();
+        updateQuantumTasks();
+        for (int quantum = 0; quantum < quantumCount; quantum++) {
+            if (!isOnline()) {
+                return;
+            }
+
+            arbiter.beginQuantum();
+            for (int i = 0; i < quantumTasks.size(); i++) {
+                final QuantumTask task = quantumTasks.get(i);
+                task.prepare(quantum, quantumCount, waiter);
+                BusThreadPool.INSTANCE.execute(threadAffinity + i + 1, task);
+            }
+
+            // Always wait for all tasks, even if something threw, so that no
+            // task is still queued or running when it is prepared again.
+            Throwable error = null;
+            final BusArbiter.Slot slot = arbiter.getSlot(0);
+            slot.enter();
+            try {
+                tickables.get(0).updateAsync(quantum, quantumCount);
+            } catch (final Throwable t) {
+                error = t;
+            } finally {
+                slot.exit();
+            }
+
+            // Run in order, tasks may be waiting for the ones before them.
+            for (final QuantumTask task : quantumTasks) {
+                task.run(); // No-op if already started elsewhere.
+                final Throwable taskError = task.await();
+                if (error == null) {
+                    error = taskError;
                 }
-                tickable.updateAsync();
+            }
+
+            arbiter.endQuantum();
+
+            if (error != null) {
+                Throwables.propagate(error);
+            }
+        }
+    }
+
+    /**
+     * Makes sure there is a task for each tickable but the first, keeping the
+     * tasks of tickables that did not change.
+     */
+    private void updateQuantumTasks() {
+        arbiter.setSlotCount(tickables.size());
+        final int taskCount = tickables.size() - 1;
+        while (quantumTasks.size() > taskCount) {
+            quantumTasks.remove(quantumTasks.size() - 1);
+        }
+        for (int i = 0; i < taskCount; i++) {
+            final AsyncTickable tickable = tickables.get(i + 1);
+            if (i == quantumTasks.size()) {
+                quantumTasks.add(new QuantumTask(tickable, arbiter.getSlot(i + 1)));
+            } else if (quantumTasks.get(i).tickable != tickable) {
+                quantumTasks.set(i, new QuantumTask(tickable, arbiter.getSlot(i + 1)));
             }
         }
     }
 
+    private void scheduleScanUnsynchronized(final World world) {
+        if (scheduledScan == null) {
+            scheduledScan = SillyBeeAPI.scheduler.schedule(world, this::scanSynchronized);
+            state = State.SCANNING;
+        }
+    }
+
     // Avoids one level of indentation in scan.
     private void scanSynchronized() {
         synchronized (lock) {
@@ -454,14 +909,31 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
     }
 
     private void scan() {
+        stopWaitingForChunks();
+
         // ----------------------------------------------------------------- //
         // Build new list of devices --------------------------------------- //
         // ----------------------------------------------------------------- //
 
         final Set<BusElement> newElements = new HashSet<>();
 
+        // A full scan is required when explicitly requested (e.g. because a
+        // device changed in a way that requires subsystems to re-validate),
+        // or when the last scan failed. Otherwise only the connectors that
+        // reported a change are re-queried, all others' connections are
+        // taken from the cache of the last scan.
+        final boolean isFullScan = isFullScanPending;
+        isFullScanPending = false;
+        if (isFullScan) {
+            connections.clear();
+        } else {
+            connections.keySet().removeAll(changedConnectors);
+        }
+        changedConnectors.clear();
+
         {
-            final List<BusElement> adjacentElements = new ArrayList<>();
+            final List<ChunkPos> unloadedChunks = new ArrayList<>();
+            boolean connectionFailed = false;
             final Set<BusConnector> closed = new HashSet<>();
             final Queue<BusConnector> open = new ArrayDeque<>();
 
@@ -483,9 +955,17 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
                 if (!closed.add(connector)) {
                     continue;
                 }
-                if (!connector.getConnected(adjacentElements)) {
-                    scanErrored(State.ERROR_CONNECTION_FAILED);
-                    return;
+                List<BusElement> adjacentElements = connections.get(connector);
+                if (adjacentElements == null) {
+                    adjacentElements = new ArrayList<>();
+                    if (!connector.getConnected(adjacentElements)) {
+                        // Keep going to find all chunks blocking the scan,
+                        // so we can wait for any of them to be loaded.
+                        connectionFailed = true;
+                        connector.getUnloadedChunks(unloadedChunks);
+                        continue;
+                    }
+                    connections.put(connector, adjacentElements);
                 }
                 for (final BusElement element : adjacentElements) {
                     newElements.add(element);
@@ -493,9 +973,23 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
                         open.add((BusConnector) element);
                     }
                 }
-                adjacentElements.clear();
             }
 
+            if (connectionFailed) {
+                if (unloadedChunks.isEmpty()) {
+                    scanErrored(State.ERROR_CONNECTION_FAILED);
+                } else {
+                    scanBlocked(unloadedChunks);
+                }
+                return;
+            }
+
+            // Forget about connectors that are no longer part of the bus, so
+            // that they get re-queried should they ever be reconnected.
+            connections.keySet().retainAll(closed);
+
+            updateChunks();
+
             // Similarly as with the above, avoid null entries in getConnected()
             // to screw things up. Still not trusting people. Who'd've thunk.
             newElements.remove(null);
@@ -505,6 +999,7 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
         // Handle removed and added devices -------------------------------- //
         // ----------------------------------------------------------------- //
 
+        boolean hasRemovedElements = false;
         {
             // Find devices that have been removed, update internal data
             // structures accordingly and notify them. While doing so, convert
@@ -526,6 +1021,7 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
                     }
 
                     it.remove();
+                    hasRemovedElements = true;
 
                     if (element instanceof BusStateListener) {
                         stateListeners.remove(element);
@@ -549,6 +1045,13 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
             }
         }
 
+        // Nothing changed and we were fine before (otherwise this would be a
+        // full scan), so there's no need to bother the subsystems.
+        if (!isFullScan && !hasRemovedElements && newElements.isEmpty()) {
+            state = State.READY;
+            return;
+        }
+
         // The above leaves us with the list of added devices, update internal
         // data structures accordingly and notify them.
         for (final BusElement element : newElements) {
@@ -581,6 +1084,10 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
             }
         }
 
+        // Parallel updates arbitrate accesses in the order of the tickables,
+        // so it must not depend on the order the elements were found in.
+        Collections.sort(tickables);
+
         // ----------------------------------------------------------------- //
         // Handle state changes due to added/removed devices --------------- //
         // ----------------------------------------------------------------- //
@@ -609,7 +1116,7 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
             // Multiple controllers on one bus are a no-go. If we detect we're
             // connected to another controller, shut down everything and start
             // rescanning periodically.
-            final boolean hasMultipleControllers = newElements.stream().anyMatch(device -> device instanceof BusController && device != this);
+            final boolean hasMultipleControllers = elements.stream().anyMatch(device -> device instanceof BusController && device != this);
             if (hasMultipleControllers) {
                 scanErrored(State.ERROR_MULTIPLE_BUS_CONTROLLERS);
                 return;
@@ -617,6 +1124,7 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
         }
 
         state = State.READY;
+        wake();
 
         for (final BusChangeListener listener : changeListeners) {
             try {
@@ -627,8 +1135,113 @@ public abstract class AbstractBusController extends AbstractBusDevice implements
         }
     }
 
+    private void updateChunks() {
+        final Set<ChunkPos> newChunks = new HashSet<>();
+        for (final BusConnector connector : connections.keySet()) {
+            if (!connector.getChunks(newChunks)) {
+                chunks = null;
+                return;
+            }
+        }
+        chunks = newChunks;
+    }
+
+    private void scanBlocked(final List<ChunkPos> unloadedChunks) {
+        isFullScanPending = true;
+        isWaitingForChunks = true;
+        ChunkLoadWatcher.INSTANCE.watch(getBusWorld(), unloadedChunks, chunkLoadedCallback);
+        state = State.ERROR_CONNECTION_FAILED;
+    }
+
+    private void stopWaitingForChunks() {
+        if (isWaitingForChunks) {
+            isWaitingForChunks = false;
+            ChunkLoadWatcher.INSTANCE.cancel(getBusWorld(), chunkLoadedCallback);
+        }
+    }
+
     private void scanErrored(final State error) {
+        isFullScanPending = true;
         scheduledScan = SillyBeeAPI.scheduler.scheduleIn(getBusWorld(), RESCAN_INTERVAL * Constants.TICKS_PER_SECOND, this::scanSynchronized);
         state = error;
     }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Updates a single tickable for one quantum in parallel mode.
+     * <p>
+     * Submitted to the thread pool again for every quantum. Whichever thread
+     * gets to it first, a pool worker or the controller's thread waiting for
+     * the quantum to complete, runs it; for all others it is a no-op. This
+     * includes stale submissions from earlier quanta still sitting in a
+     * worker's queue.
+     */
+    private static final class QuantumTask implements Runnable {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+
+        private final AsyncTickable tickable;
+        private final BusArbiter.Slot slot;
+        private final AtomicInteger state = new AtomicInteger(DONE);
+
+        // Written before state is set to QUEUED, read after claiming the task.
+        private int quantum;
+        private int quantumCount;
+        @Nullable
+        private Thread waiter;
+
+        // Written before state is set to DONE.
+        @Nullable
+        private Throwable error;
+
+        QuantumTask(final AsyncTickable tickable, final BusArbiter.Slot slot) {
+            this.tickable = tickable;
+            this.slot = slot;
+        }
+
+        /**
+         * Set up the task for the next quantum. Must only be called while
+         * the task is done.
+         */
+        void prepare(final int quantum, final int quantumCount, final Thread waiter) {
+            this.quantum = quantum;
+            this.quantumCount = quantumCount;
+            this.waiter = waiter;
+            this.error = null;
+            state.set(QUEUED);
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            slot.enter();
+            try {
+                tickable.updateAsync(quantum, quantumCount);
+            } catch (final Throwable t) {
+                error = t;
+            } finally {
+                slot.exit();
+            }
+            final Thread waiter = this.waiter;
+            state.set(DONE);
+            LockSupport.unpark(waiter);
+        }
+
+        /**
+         * Wait for the task to complete.
+         *
+         * @return the exception thrown by the tickable, if any.
+         */
+        @Nullable
+        Throwable await() {
+            while (state.get() != DONE) {
+                LockSupport.park(this);
+            }
+            return error;
+        }
+    }
 }
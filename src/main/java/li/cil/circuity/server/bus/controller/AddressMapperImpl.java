@@ -9,6 +9,7 @@ import li.cil.circuity.api.bus.controller.detail.SerialInterfaceProvider;
 import li.cil.circuity.api.bus.device.AddressBlock;
 import li.cil.circuity.api.bus.device.AddressHint;
 import li.cil.circuity.api.bus.device.Addressable;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
 import li.cil.circuity.api.bus.device.util.SerialPortManager;
 import li.cil.lib.api.serialization.Serializable;
 import li.cil.lib.api.serialization.Serialize;
@@ -16,12 +17,15 @@ import li.cil.lib.util.RangeMap;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Serializable
 public class AddressMapperImpl implements AddressMapper, ElementManager, SerialInterfaceProvider {
@@ -35,6 +39,19 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
      */
     private static final AddressBlock FULL_ADDRESS_BLOCK = new AddressBlock(0, ADDRESS_COUNT);
 
+    /**
+     * The number of bits to shift an address by to get its page index.
+     * <p>
+     * Pages are the granularity of the decode table used for fast lookups
+     * in {@link #mapAndRead(long)} and {@link #mapAndWrite(long, int)}.
+     */
+    private static final int PAGE_SHIFT = 8;
+
+    /**
+     * The number of pages in the address space of the bus.
+     */
+    private static final int PAGE_COUNT = (int) (ADDRESS_COUNT >>> PAGE_SHIFT);
+
     // --------------------------------------------------------------------- //
 
     /**
@@ -57,9 +74,12 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
 
     /**
      * The currently active mapping.
+     * <p>
+     * Volatile, as it may be changed by bus threads while other threads are
+     * performing lookups.
      */
     @Serialize
-    private int selectedMapping;
+    private volatile int selectedMapping;
 
     /**
      * The currently set word size of the bus.
@@ -81,6 +101,23 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
     @Serialize
     private int sizeShift;
 
+    /**
+     * Incremented whenever the mapping may have changed, used by callers to
+     * invalidate cached lookups, see {@link #getGeneration()}.
+     * <p>
+     * Changes come from bus threads (mapping selection via the serial
+     * interface) as well as the server thread, so increments must be atomic.
+     * Always incremented <em>after</em> the change has been published, so
+     * that a caller seeing the new generation also sees the new mapping.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Whether accesses are arbitrated via the controller's {@link BusArbiter},
+     * i.e. whether the controller updates its tickables in parallel, see {@link #isArbitrated()}.
+     */
+    private volatile boolean isArbitrated;
+
     // --------------------------------------------------------------------- //
 
     public AddressMapperImpl(final AbstractBusController controller) {
@@ -101,6 +138,21 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
         this.wordSize = value;
     }
 
+    /**
+     * Set whether accesses have to be arbitrated.
+     * <p>
+     * Called by the controller before updating its tickables, never while
+     * they are running.
+     *
+     * @param value whether the tickables are about to be updated in parallel.
+     */
+    void setArbitrated(final boolean value) {
+        if (isArbitrated != value) {
+            isArbitrated = value;
+            generation.incrementAndGet();
+        }
+    }
+
     // --------------------------------------------------------------------- //
     // AddressMapper
 
@@ -130,6 +182,22 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
             throw new IndexOutOfBoundsException();
         }
         selectedMapping = index;
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    @Override
+    public boolean isArbitrated() {
+        return isArbitrated;
+    }
+
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
     }
 
     @Override
@@ -140,6 +208,7 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
         // This call synchronizes with the controller's executor thread.
         controller.scheduleScan();
         mappings[selectedMapping].setDeviceAddress(device, address);
+        generation.incrementAndGet();
         controller.markChanged();
     }
 
@@ -151,23 +220,25 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
     @Nullable
     @Override
     public AddressBlock getAddressBlock(final Addressable device) {
-        return mappings[selectedMapping].deviceToAddress.get(device);
+        return mappings[selectedMapping].getSnapshot().getAddressBlock(device);
     }
 
     @Nullable
     @Override
     public Addressable getDevice(final long address) {
-        return mappings[selectedMapping].addressToDevice.get(address);
+        final Page page = mappings[selectedMapping].getSnapshot().find(address);
+        return page != null ? page.device : null;
     }
 
     @Override
     public void mapAndWrite(final long address, final int value) {
-        final Addressable device = getDevice(address);
-        if (device != null) {
-            final AddressBlock memory = getAddressBlock(device);
-            assert memory != null : "address mapper in corrupted state";
-            final long mappedAddress = address - memory.getOffset();
-            device.write(mappedAddress, value);
+        if (isArbitrated) {
+            writeArbitrated(address, 1, value);
+            return;
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address);
+        if (page != null) {
+            page.device.write(address - page.offset, value);
         } else {
             segfault();
         }
@@ -175,18 +246,164 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
 
     @Override
     public int mapAndRead(final long address) {
-        final Addressable device = getDevice(address);
-        if (device != null) {
-            final AddressBlock memory = getAddressBlock(device);
-            assert memory != null : "address mapper in corrupted state";
-            final long mappedAddress = address - memory.getOffset();
-            return device.read(mappedAddress);
+        if (isArbitrated) {
+            return (int) readArbitrated(address, 1);
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address);
+        if (page != null) {
+            return page.device.read(address - page.offset);
         } else {
             segfault();
             return 0xFFFFFFFF;
         }
     }
 
+    @Override
+    public void mapAndWriteBlock(final long address, final byte[] buffer, final int offset, final int length) {
+        final BusArbiter.Slot slot = getCurrentSlot();
+        final Snapshot snapshot = getSnapshot(slot);
+        int done = 0;
+        while (done < length) {
+            final long currentAddress = address + done;
+            final Page page = snapshot.find(currentAddress);
+            if (page != null) {
+                final int count = (int) Math.min(length - done, page.end - currentAddress);
+                final byte[] memory = slot != null ? getDirectMemory(page) : null;
+                if (memory != null && !((DirectMemoryRegion) page.device).isDirectMemoryReadOnly()) {
+                    final DirectMemoryRegion region = (DirectMemoryRegion) page.device;
+                    final int index = region.getDirectMemoryOffset() + (int) (currentAddress - page.offset);
+                    for (int i = 0; i < count; i++) {
+                        slot.write(region, memory, index + i, buffer[offset + done + i]);
+                    }
+                } else {
+                    if (slot != null) {
+                        slot.acquireBus();
+                    }
+                    page.device.write(currentAddress - page.offset, buffer, offset + done, count);
+                }
+                done += count;
+            } else {
+                segfault();
+                ++done;
+            }
+        }
+    }
+
+    @Override
+    public void mapAndReadBlock(final long address, final byte[] buffer, final int offset, final int length) {
+        final BusArbiter.Slot slot = getCurrentSlot();
+        final Snapshot snapshot = getSnapshot(slot);
+        int done = 0;
+        while (done < length) {
+            final long currentAddress = address + done;
+            final Page page = snapshot.find(currentAddress);
+            if (page != null) {
+                final int count = (int) Math.min(length - done, page.end - currentAddress);
+                final byte[] memory = slot != null ? getDirectMemory(page) : null;
+                if (memory != null) {
+                    final int index = ((DirectMemoryRegion) page.device).getDirectMemoryOffset() + (int) (currentAddress - page.offset);
+                    for (int i = 0; i < count; i++) {
+                        buffer[offset + done + i] = slot.read(memory, index + i);
+                    }
+                } else {
+                    if (slot != null) {
+                        slot.acquireBus();
+                    }
+                    page.device.read(currentAddress - page.offset, buffer, offset + done, count);
+                }
+                done += count;
+            } else {
+                segfault();
+                buffer[offset + done] = (byte) 0xFF;
+                ++done;
+            }
+        }
+    }
+
+    @Override
+    public int mapAndRead16(final long address) {
+        if (isArbitrated) {
+            return (int) readArbitrated(address, 2);
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 2);
+        if (page != null) {
+            return page.device.read16(address - page.offset);
+        }
+        return (mapAndRead(address) & 0xFF) |
+                ((mapAndRead(address + 1) & 0xFF) << 8);
+    }
+
+    @Override
+    public int mapAndRead32(final long address) {
+        if (isArbitrated) {
+            return (int) readArbitrated(address, 4);
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 4);
+        if (page != null) {
+            return page.device.read32(address - page.offset);
+        }
+        return (mapAndRead16(address) & 0xFFFF) |
+                (mapAndRead16(address + 2) << 16);
+    }
+
+    @Override
+    public long mapAndRead64(final long address) {
+        if (isArbitrated) {
+            return readArbitrated(address, 8);
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 8);
+        if (page != null) {
+            return page.device.read64(address - page.offset);
+        }
+        return (mapAndRead32(address) & 0xFFFFFFFFL) |
+                ((long) mapAndRead32(address + 4) << 32);
+    }
+
+    @Override
+    public void mapAndWrite16(final long address, final int value) {
+        if (isArbitrated) {
+            writeArbitrated(address, 2, value);
+            return;
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 2);
+        if (page != null) {
+            page.device.write16(address - page.offset, value);
+        } else {
+            mapAndWrite(address, value & 0xFF);
+            mapAndWrite(address + 1, (value >>> 8) & 0xFF);
+        }
+    }
+
+    @Override
+    public void mapAndWrite32(final long address, final int value) {
+        if (isArbitrated) {
+            writeArbitrated(address, 4, value);
+            return;
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 4);
+        if (page != null) {
+            page.device.write32(address - page.offset, value);
+        } else {
+            mapAndWrite16(address, value);
+            mapAndWrite16(address + 2, value >>> 16);
+        }
+    }
+
+    @Override
+    public void mapAndWrite64(final long address, final long value) {
+        if (isArbitrated) {
+            writeArbitrated(address, 8, value);
+            return;
+        }
+        final Page page = mappings[selectedMapping].getSnapshot().find(address, 8);
+        if (page != null) {
+            page.device.write64(address - page.offset, value);
+        } else {
+            mapAndWrite32(address, (int) value);
+            mapAndWrite32(address + 4, (int) (value >>> 32));
+        }
+    }
+
     // --------------------------------------------------------------------- //
     // ElementManager
 
@@ -209,6 +426,8 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
             for (final Mapping mapping : mappings) {
                 mapping.remove(addressable);
             }
+
+            generation.incrementAndGet();
         }
     }
 
@@ -220,6 +439,7 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
         addressShift = 0;
         sizeShift = 0;
         selectedMapping = 0;
+        generation.incrementAndGet();
     }
 
     @Override
@@ -229,6 +449,7 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
             // Important: & not &&, to make sure validate() is always called.
             areAllMappingsValid &= mapping.validate();
         }
+        generation.incrementAndGet();
         return areAllMappingsValid;
     }
 
@@ -288,21 +509,154 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
     }
 
     private int readSelectedMapping(final long address) {
-        return selectedMapping;
+        final BusArbiter.Slot slot = getCurrentSlot();
+        return slot != null && slot.selectedMapping >= 0 ? slot.selectedMapping : selectedMapping;
     }
 
     private void writeSelectedMapping(final long address, final int value) {
-        selectedMapping = value;
+        // Clamp before publishing, readers on other threads must never see
+        // an out of range index.
+        final int index = Math.max(0, Math.min(mappings.length - 1, value));
+        final BusArbiter.Slot slot = getCurrentSlot();
+        if (slot != null) {
+            // Only switch for the writing tickable until the end of the
+            // quantum, other tickables must not see it earlier.
+            slot.selectedMapping = index;
+            slot.defer(() -> setActiveConfiguration(index));
+        } else {
+            setActiveConfiguration(index);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the slot of the tickable updated by the current thread, if accesses
+     * are arbitrated.
+     */
+    @Nullable
+    private BusArbiter.Slot getCurrentSlot() {
+        return isArbitrated ? controller.getArbiter().getCurrentSlot() : null;
+    }
 
-        if (selectedMapping < 0) {
-            selectedMapping = 0;
+    /**
+     * Get the snapshot of the mapping currently active for the specified slot.
+     */
+    private Snapshot getSnapshot(@Nullable final BusArbiter.Slot slot) {
+        final int index = slot != null && slot.selectedMapping >= 0 ? slot.selectedMapping : selectedMapping;
+        return mappings[index].getSnapshot();
+    }
+
+    /**
+     * Reads a little-endian value of the specified width in bytes while
+     * accesses are arbitrated, see {@link BusArbiter}.
+     */
+    private long readArbitrated(final long address, final int width) {
+        final BusArbiter.Slot slot = getCurrentSlot();
+        final Page page = getSnapshot(slot).find(address, width);
+        if (page == null) {
+            if (width == 1) {
+                segfault();
+                return 0xFFFFFFFF;
+            }
+            final int half = width / 2;
+            final long mask = (1L << (half * 8)) - 1;
+            return (readArbitrated(address, half) & mask) |
+                    ((readArbitrated(address + half, half) & mask) << (half * 8));
         }
-        if (selectedMapping >= mappings.length) {
-            selectedMapping = mappings.length - 1;
+
+        final long localAddress = address - page.offset;
+        if (slot != null) {
+            final byte[] memory = getDirectMemory(page);
+            if (memory != null) {
+                final int index = ((DirectMemoryRegion) page.device).getDirectMemoryOffset() + (int) localAddress;
+                long value = 0;
+                for (int i = width - 1; i >= 0; i--) {
+                    value = (value << 8) | (slot.read(memory, index + i) & 0xFF);
+                }
+                return value;
+            }
+            slot.acquireBus();
+        }
+
+        switch (width) {
+            case 1:
+                return page.device.read(localAddress);
+            case 2:
+                return page.device.read16(localAddress);
+            case 4:
+                return page.device.read32(localAddress);
+            default:
+                return page.device.read64(localAddress);
         }
     }
 
-    // --------------------------------------------------------------------- //
+    /**
+     * Writes a little-endian value of the specified width in bytes while
+     * accesses are arbitrated, see {@link BusArbiter}.
+     */
+    private void writeArbitrated(final long address, final int width, final long value) {
+        final BusArbiter.Slot slot = getCurrentSlot();
+        final Page page = getSnapshot(slot).find(address, width);
+        if (page == null) {
+            if (width == 1) {
+                segfault();
+                return;
+            }
+            final int half = width / 2;
+            final long mask = (1L << (half * 8)) - 1;
+            writeArbitrated(address, half, value & mask);
+            writeArbitrated(address + half, half, (value >>> (half * 8)) & mask);
+            return;
+        }
+
+        final long localAddress = address - page.offset;
+        if (slot != null) {
+            final byte[] memory = getDirectMemory(page);
+            if (memory != null && !((DirectMemoryRegion) page.device).isDirectMemoryReadOnly()) {
+                final DirectMemoryRegion region = (DirectMemoryRegion) page.device;
+                final int index = region.getDirectMemoryOffset() + (int) localAddress;
+                for (int i = 0; i < width; i++) {
+                    slot.write(region, memory, index + i, (byte) (value >>> (i * 8)));
+                }
+                return;
+            }
+            slot.acquireBus();
+        }
+
+        switch (width) {
+            case 1:
+                page.device.write(localAddress, (int) value);
+                break;
+            case 2:
+                page.device.write16(localAddress, (int) value);
+                break;
+            case 4:
+                page.device.write32(localAddress, (int) value);
+                break;
+            default:
+                page.device.write64(localAddress, value);
+                break;
+        }
+    }
+
+    /**
+     * Get the backing array of the device mapped in the specified page, if it
+     * is a {@link DirectMemoryRegion} currently providing one that covers
+     * the whole mapped range.
+     */
+    @Nullable
+    private static byte[] getDirectMemory(final Page page) {
+        if (page.device instanceof DirectMemoryRegion) {
+            final DirectMemoryRegion region = (DirectMemoryRegion) page.device;
+            final byte[] memory = region.getDirectMemory();
+            final int offset = region.getDirectMemoryOffset();
+            if (memory != null && offset >= 0 && offset + (page.end - page.offset) <= memory.length) {
+                return memory;
+            }
+        }
+        return null;
+    }
 
     void segfault() {
         // TODO Interrupt?
@@ -345,14 +699,28 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
          */
         private final List<Addressable> pendingAdds = new ArrayList<>();
 
+        /**
+         * Immutable view of the current mapping, used for all lookups.
+         * <p>
+         * Rebuilt and republished after every change to the mapping, see
+         * {@link #publishSnapshot()}. This way readers, i.e. the bus worker
+         * threads, need no lock, and can never see a half-updated mapping.
+         */
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+
         // --------------------------------------------------------------------- //
 
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
         public void setDeviceAddress(final Addressable addressable, final AddressBlock addressBlock) {
             synchronized (lock) {
                 remove(addressable);
                 deviceToAddress.put(addressable, addressBlock);
                 persistentDeviceToAddress.put(addressable.getPersistentId(), addressBlock);
                 addressToDevice.tryAdd(addressable, addressBlock.getOffset(), addressBlock.getLength());
+                publishSnapshot();
             }
         }
 
@@ -394,6 +762,7 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
                 final AddressBlock addressBlock = deviceToAddress.remove(addressable);
                 persistentDeviceToAddress.remove(addressable.getPersistentId());
                 addressToDevice.remove(addressBlock.getOffset(), addressable);
+                publishSnapshot();
             }
         }
 
@@ -420,6 +789,8 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
 
                 pendingAdds.clear();
 
+                publishSnapshot();
+
                 // We have no overlap if all devices were successfully added to the
                 // mapping of address to device. Empty blocks are *not* added to the
                 // range map, so we only want to count the non-empty ones.
@@ -435,6 +806,26 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
 
         // --------------------------------------------------------------------- //
 
+        private void publishSnapshot() {
+            final List<Page> pages = new ArrayList<>();
+            for (final Addressable addressable : deviceToAddress.keySet()) {
+                final AddressBlock addressBlock = deviceToAddress.get(addressable);
+                if (addressBlock.getLength() <= 0) {
+                    continue;
+                }
+
+                // Skip devices we failed to add due to overlaps, so lookups
+                // via the snapshot yield the same results as the range map.
+                if (addressToDevice.get(addressBlock.getOffset()) != addressable) {
+                    continue;
+                }
+
+                pages.add(new Page(addressable, addressBlock));
+            }
+
+            snapshot = new Snapshot(pages, deviceToAddress);
+        }
+
         private AddressBlock tryGetFreeAddress(final Addressable newAddressable) {
             final Iterator<RangeMap.Interval> it = addressToDevice.gapIterator();
             while (it.hasNext()) {
@@ -457,4 +848,105 @@ public class AddressMapperImpl implements AddressMapper, ElementManager, SerialI
             return Integer.MAX_VALUE;
         }
     }
+
+    /**
+     * A device and the address range it is mapped to, as stored in a {@link Snapshot}.
+     */
+    private static final class Page {
+        public final Addressable device;
+        public final long offset;
+        public final long end;
+
+        private Page(final Addressable device, final AddressBlock addressBlock) {
+            this.device = device;
+            this.offset = addressBlock.getOffset();
+            this.end = addressBlock.getEnd();
+        }
+    }
+
+    /**
+     * Immutable decode structure for a mapping.
+     * <p>
+     * Holds a flat decode table, one slot per page of the address space. A
+     * slot holds the device mapped to the page if, and only if, that device
+     * covers the <em>whole</em> page. Pages that are unmapped or shared by
+     * multiple devices are left empty, and lookups for them fall back to a
+     * binary search over all mapped devices, sorted by their offset.
+     */
+    private static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyMap());
+
+        private final Page[] pageTable = new Page[PAGE_COUNT];
+        private final Page[] sortedPages;
+        private final long[] sortedOffsets;
+        private final Map<Addressable, AddressBlock> deviceToAddress;
+
+        private Snapshot(final List<Page> pages, final Map<Addressable, AddressBlock> deviceToAddress) {
+            sortedPages = pages.toArray(new Page[pages.size()]);
+            Arrays.sort(sortedPages, Comparator.comparingLong(page -> page.offset));
+            sortedOffsets = new long[sortedPages.length];
+            for (int i = 0; i < sortedPages.length; i++) {
+                final Page page = sortedPages[i];
+                sortedOffsets[i] = page.offset;
+
+                // Only pages fully covered by the device can be decoded via
+                // the table, partially covered pages use the slow path.
+                final long firstPage = (page.offset + (1 << PAGE_SHIFT) - 1) >>> PAGE_SHIFT;
+                final long lastPage = Math.min(page.end >>> PAGE_SHIFT, PAGE_COUNT);
+                if (firstPage < lastPage) {
+                    Arrays.fill(pageTable, (int) firstPage, (int) lastPage, page);
+                }
+            }
+
+            this.deviceToAddress = new HashMap<>(deviceToAddress);
+        }
+
+        @Nullable
+        public AddressBlock getAddressBlock(final Addressable device) {
+            return deviceToAddress.get(device);
+        }
+
+        /**
+         * Get the device mapped at the specified address.
+         *
+         * @param address the address to look up.
+         * @return the device and its range, or <code>null</code> if the address is unmapped.
+         * @throws IndexOutOfBoundsException if the address is outside the address space.
+         */
+        @Nullable
+        public Page find(final long address) {
+            if (address < 0 || address >= ADDRESS_COUNT) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            final Page page = pageTable[(int) (address >>> PAGE_SHIFT)];
+            if (page != null) {
+                return page;
+            }
+
+            final int index = Arrays.binarySearch(sortedOffsets, address);
+            final int candidate = index >= 0 ? index : (~index - 1);
+            if (candidate >= 0 && address < sortedPages[candidate].end) {
+                return sortedPages[candidate];
+            }
+            return null;
+        }
+
+        /**
+         * Get the device covering the whole specified address range, if any.
+         *
+         * @param address the first address of the range.
+         * @param width   the number of addresses in the range.
+         * @return the device and its range, or <code>null</code> if the range is not covered by a single device.
+         * @throws IndexOutOfBoundsException if the address is outside the address space.
+         */
+        @Nullable
+        public Page find(final long address, final int width) {
+            final Page page = find(address);
+            if (page != null && address + width <= page.end) {
+                return page;
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,381 @@
+package li.cil.circuity.server.bus.controller;
+
+import com.google.common.base.Throwables;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arbitrates accesses of tickables updated in parallel, so that the result
+ * of a parallel update does not depend on thread scheduling.
+ * <p>
+ * Each tickable has a {@link Slot}, in the order of the controller's list of
+ * tickables. While a tickable runs a quantum, its slot is the current slot
+ * of the thread running it, and accesses it makes via the {@link AddressMapperImpl}
+ * are arbitrated as follows:
+ * <ul>
+ * <li>Writes to the memory of {@link DirectMemoryRegion}s are buffered in
+ * the slot. Reads see the memory as it was at the start of the quantum plus
+ * the tickable's own writes. At the end of the quantum the buffered writes
+ * of all slots are applied in slot order.</li>
+ * <li>Before accessing any other device, a tickable waits until all tickables
+ * before it have completed the quantum. It then owns the bus for the rest
+ * of the quantum, so these devices are always accessed in slot order.</li>
+ * <li>Changes to shared state of the bus, such as raising interrupts or
+ * switching the active mapping, are deferred to the end of the quantum and
+ * run in slot order.</li>
+ * </ul>
+ * Memory of read-only regions is assumed to not change during a quantum.
+ * Accesses from threads without a slot, e.g. the server thread, are not
+ * arbitrated.
+ */
+final class BusArbiter {
+    /**
+     * The slot of the tickable the current thread is updating, if any.
+     */
+    private static final ThreadLocal<Slot> CURRENT = new ThreadLocal<>();
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * One slot per tickable, in the order of the controller's tickables.
+     * Guards the slots' {@link Slot#isDone} flags.
+     */
+    private final List<Slot> slots = new ArrayList<>();
+
+    /**
+     * The mapping generation buffered memory was last used with, used to
+     * drop buffers of arrays that may no longer be in use.
+     */
+    private int generation;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Make sure there is one slot per tickable, keeping existing slots.
+     *
+     * @param count the number of tickables.
+     */
+    void setSlotCount(final int count) {
+        while (slots.size() > count) {
+            slots.remove(slots.size() - 1);
+        }
+        while (slots.size() < count) {
+            slots.add(new Slot(this, slots.size()));
+        }
+    }
+
+    Slot getSlot(final int index) {
+        return slots.get(index);
+    }
+
+    /**
+     * Get the slot of the tickable the current thread is updating.
+     *
+     * @return the current slot, or <code>null</code> if accesses of the current thread are not arbitrated.
+     */
+    @Nullable
+    Slot getCurrentSlot() {
+        final Slot slot = CURRENT.get();
+        return slot != null && slot.arbiter == this ? slot : null;
+    }
+
+    /**
+     * Called before the first quantum of an update.
+     *
+     * @param generation the current generation of the address mapper.
+     */
+    void beginUpdate(final int generation) {
+        if (generation != this.generation) {
+            this.generation = generation;
+            for (final Slot slot : slots) {
+                slot.clearOverlays();
+            }
+        }
+    }
+
+    /**
+     * Called before starting a quantum, before any tickable runs.
+     */
+    void beginQuantum() {
+        synchronized (this) {
+            for (final Slot slot : slots) {
+                slot.isDone = false;
+                slot.hasBus = false;
+                slot.selectedMapping = -1;
+            }
+        }
+    }
+
+    /**
+     * Called after all tickables completed the quantum, applies buffered
+     * writes and runs deferred commands in slot order.
+     */
+    void endQuantum() {
+        for (final Slot slot : slots) {
+            slot.commit();
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Arbitration state of a single tickable.
+     */
+    static final class Slot {
+        private final BusArbiter arbiter;
+        private final int index;
+
+        /**
+         * Whether the tickable completed the current quantum, guarded by the arbiter.
+         */
+        private boolean isDone = true;
+
+        /**
+         * Whether the tickable owns the bus for the rest of the quantum.
+         */
+        private boolean hasBus;
+
+        /**
+         * The mapping selected by the tickable in the current quantum, if
+         * any, so it can use it before it is applied for everyone at the
+         * end of the quantum. Managed by the {@link AddressMapperImpl}.
+         */
+        int selectedMapping = -1;
+
+        /**
+         * Buffers for writes to direct memory, by backing array.
+         */
+        private final Map<byte[], MemoryOverlay> overlays = new IdentityHashMap<>();
+        private final List<MemoryOverlay> dirtyOverlays = new ArrayList<>();
+
+        /**
+         * The array last looked up in {@link #overlays} and the result, as
+         * tickables tend to access the same memory over and over.
+         */
+        @Nullable
+        private byte[] lastMemory;
+        @Nullable
+        private MemoryOverlay lastOverlay;
+
+        private final List<Runnable> deferred = new ArrayList<>();
+
+        private Slot(final BusArbiter arbiter, final int index) {
+            this.arbiter = arbiter;
+            this.index = index;
+        }
+
+        /**
+         * Make this the current slot of the calling thread, before updating
+         * the tickable for a quantum.
+         */
+        void enter() {
+            CURRENT.set(this);
+        }
+
+        /**
+         * Mark the tickable as done with the quantum. Must always be called
+         * after {@link #enter()}, even if the tickable threw, as tickables
+         * after this one may be waiting for it.
+         */
+        void exit() {
+            CURRENT.remove();
+            synchronized (arbiter) {
+                isDone = true;
+                arbiter.notifyAll();
+            }
+        }
+
+        /**
+         * Read a byte of direct memory.
+         *
+         * @param memory the backing array of the memory.
+         * @param index  the index in the array to read.
+         * @return the value at the index, including buffered writes.
+         */
+        byte read(final byte[] memory, final int index) {
+            final MemoryOverlay overlay = getOverlay(memory);
+            return overlay != null ? overlay.read(index) : memory[index];
+        }
+
+        /**
+         * Buffer a write to direct memory.
+         *
+         * @param region the device owning the memory, notified when the write is applied.
+         * @param memory the backing array of the memory.
+         * @param index  the index in the array to write.
+         * @param value  the value to write.
+         */
+        void write(final DirectMemoryRegion region, final byte[] memory, final int index, final byte value) {
+            MemoryOverlay overlay = getOverlay(memory);
+            if (overlay == null) {
+                overlay = new MemoryOverlay(memory);
+                overlays.put(memory, overlay);
+                lastOverlay = overlay;
+            }
+            if (!overlay.isDirty) {
+                overlay.isDirty = true;
+                overlay.region = region;
+                dirtyOverlays.add(overlay);
+            }
+            overlay.write(index, value);
+        }
+
+        /**
+         * Wait until all tickables before this one have completed the
+         * quantum, after which this tickable may access devices freely.
+         */
+        void acquireBus() {
+            if (hasBus) {
+                return;
+            }
+            synchronized (arbiter) {
+                for (int i = 0; i < index; i++) {
+                    final Slot slot = arbiter.slots.get(i);
+                    while (!slot.isDone) {
+                        try {
+                            arbiter.wait();
+                        } catch (final InterruptedException e) {
+                            Throwables.propagate(e);
+                        }
+                    }
+                }
+            }
+            hasBus = true;
+        }
+
+        /**
+         * Run a command at the end of the quantum, in slot order.
+         *
+         * @param command the command to run.
+         */
+        void defer(final Runnable command) {
+            deferred.add(command);
+        }
+
+        // --------------------------------------------------------------------- //
+
+        @Nullable
+        private MemoryOverlay getOverlay(final byte[] memory) {
+            if (memory != lastMemory) {
+                lastMemory = memory;
+                lastOverlay = overlays.get(memory);
+            }
+            return lastOverlay;
+        }
+
+        private void clearOverlays() {
+            overlays.clear();
+            lastMemory = null;
+            lastOverlay = null;
+        }
+
+        private void commit() {
+            try {
+                for (final MemoryOverlay overlay : dirtyOverlays) {
+                    overlay.commit();
+                }
+                for (final Runnable command : deferred) {
+                    command.run();
+                }
+            } finally {
+                dirtyOverlays.clear();
+                deferred.clear();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Buffered writes to a single backing array.
+     * <p>
+     * Split into pages that are allocated on first write and kept for reuse,
+     * with a bit mask of written bytes per page, so that committing only
+     * copies the bytes that were actually written.
+     */
+    private static final class MemoryOverlay {
+        private static final int PAGE_SHIFT = 8;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+        private static final int MASK_WORDS = PAGE_SIZE / Long.SIZE;
+
+        private final byte[] memory;
+        private final byte[][] pages;
+        private final long[][] masks;
+        private final int[] dirtyPages;
+        private int dirtyPageCount;
+
+        boolean isDirty;
+        @Nullable
+        DirectMemoryRegion region;
+
+        MemoryOverlay(final byte[] memory) {
+            this.memory = memory;
+            final int pageCount = (memory.length + PAGE_MASK) >>> PAGE_SHIFT;
+            pages = new byte[pageCount][];
+            masks = new long[pageCount][];
+            dirtyPages = new int[pageCount];
+        }
+
+        byte read(final int index) {
+            final long[] mask = masks[index >>> PAGE_SHIFT];
+            if (mask != null && (mask[(index & PAGE_MASK) >>> 6] & (1L << index)) != 0) {
+                return pages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+            }
+            return memory[index];
+        }
+
+        void write(final int index, final byte value) {
+            final int page = index >>> PAGE_SHIFT;
+            long[] mask = masks[page];
+            if (mask == null) {
+                mask = masks[page] = new long[MASK_WORDS];
+                pages[page] = new byte[PAGE_SIZE];
+            }
+            if (isEmpty(mask)) {
+                dirtyPages[dirtyPageCount++] = page;
+            }
+            mask[(index & PAGE_MASK) >>> 6] |= 1L << index;
+            pages[page][index & PAGE_MASK] = value;
+        }
+
+        void commit() {
+            for (int i = 0; i < dirtyPageCount; i++) {
+                final int page = dirtyPages[i];
+                final byte[] data = pages[page];
+                final long[] mask = masks[page];
+                for (int word = 0; word < MASK_WORDS; word++) {
+                    long bits = mask[word];
+                    while (bits != 0) {
+                        final int offset = (word << 6) | Long.numberOfTrailingZeros(bits);
+                        memory[(page << PAGE_SHIFT) | offset] = data[offset];
+                        bits &= bits - 1;
+                    }
+                    mask[word] = 0;
+                }
+            }
+            dirtyPageCount = 0;
+            isDirty = false;
+
+            final DirectMemoryRegion region = this.region;
+            this.region = null;
+            if (region != null && region.isDirectMemoryWriteNotify()) {
+                region.markDirectMemoryDirty();
+            }
+        }
+
+        private static boolean isEmpty(final long[] mask) {
+            for (final long bits : mask) {
+                if (bits != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -16,7 +16,9 @@ import org.apache.commons.lang3.ObjectUtils;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.PrimitiveIterator;
@@ -81,6 +83,13 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
     @Serialize
     private int[] sourceIdToSinkId = new int[0];
 
+    /**
+     * Flattened lookup structure used when delivering interrupts, so that
+     * raising an interrupt requires no allocations and no hashing of
+     * interrupt infos. Rebuilt whenever the mapping changes, see {@link #rebuildDispatchTable()}.
+     */
+    private volatile DispatchTable dispatchTable = DispatchTable.EMPTY;
+
     // --------------------------------------------------------------------- //
 
     public InterruptMapperImpl(final AbstractBusController controller) {
@@ -99,6 +108,7 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
             throw new IllegalArgumentException("sinkId");
         }
         sourceIdToSinkId[sourceId] = sinkId < 0 ? -1 : sinkId;
+        rebuildDispatchTable();
         controller.markChanged();
     }
 
@@ -117,11 +127,25 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
         if (!controller.isOnline()) {
             return;
         }
-        final int interruptSourceId = infoToSourceId.get(InterruptInfo.of(source, sourceInterrupt));
-        final int interruptSinkId = sourceIdToSinkId[interruptSourceId];
-        if (interruptSinkId >= 0) {
-            final InterruptInfo<InterruptSink> sink = sinkIdToInfo.get(interruptSinkId);
-            sink.instance.interrupt(sink.index, data);
+        final BusArbiter.Slot slot = controller.getArbiter().getCurrentSlot();
+        if (slot != null) {
+            // Raised while updating in parallel, deliver at the end of the
+            // quantum, so sinks see interrupts in the same order every time.
+            slot.defer(() -> interrupt(source, sourceInterrupt, data));
+            return;
+        }
+        final DispatchTable table = dispatchTable;
+        final int[] sourceIds = table.sourceIds.get(source);
+        if (sourceIds == null || sourceInterrupt < 0 || sourceInterrupt >= sourceIds.length) {
+            return;
+        }
+        final int interruptSourceId = sourceIds[sourceInterrupt];
+        if (interruptSourceId < table.sinks.length) {
+            final InterruptSink sink = table.sinks[interruptSourceId];
+            if (sink != null) {
+                sink.interrupt(table.sinkInterrupts[interruptSourceId], data);
+                controller.wake();
+            }
         }
     }
 
@@ -261,6 +285,8 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
             }
         }
 
+        rebuildDispatchTable();
+
         return true;
     }
 
@@ -297,6 +323,28 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
 
     // --------------------------------------------------------------------- //
 
+    private void rebuildDispatchTable() {
+        final Map<InterruptSource, int[]> sourceIds = new IdentityHashMap<>();
+        for (final InterruptInfo<InterruptSource> info : infoToSourceId.keySet()) {
+            sourceIds.computeIfAbsent(info.instance, source -> persistentInfoToSourceId.get(source.getPersistentId()));
+        }
+
+        final InterruptSink[] sinks = new InterruptSink[sourceIdToSinkId.length];
+        final int[] sinkInterrupts = new int[sourceIdToSinkId.length];
+        for (int sourceId = 0; sourceId < sourceIdToSinkId.length; sourceId++) {
+            final int sinkId = sourceIdToSinkId[sourceId];
+            if (sinkId >= 0) {
+                final InterruptInfo<InterruptSink> info = sinkIdToInfo.get(sinkId);
+                if (info != null) {
+                    sinks[sourceId] = info.instance;
+                    sinkInterrupts[sourceId] = info.index;
+                }
+            }
+        }
+
+        dispatchTable = new DispatchTable(sourceIds, sinks, sinkInterrupts);
+    }
+
     private static int[] allocateInterruptIds(final BitSet set, final int count) {
         final int[] ids = new int[count];
         final BitSet notIds = new BitSet(set.length() + count);
@@ -314,6 +362,28 @@ public class InterruptMapperImpl implements InterruptMapper, ElementManager, Ser
 
     // --------------------------------------------------------------------- //
 
+    /**
+     * Immutable snapshot of the interrupt mapping used for dispatching.
+     * <p>
+     * Maps each source to its source IDs, indexed by the source local
+     * interrupt, and each source ID to the sink and sink local interrupt it
+     * is mapped to (if any).
+     */
+    private static final class DispatchTable {
+        @SuppressWarnings("ZeroLengthArrayAllocation")
+        public static final DispatchTable EMPTY = new DispatchTable(Collections.emptyMap(), new InterruptSink[0], new int[0]);
+
+        public final Map<InterruptSource, int[]> sourceIds;
+        public final InterruptSink[] sinks;
+        public final int[] sinkInterrupts;
+
+        private DispatchTable(final Map<InterruptSource, int[]> sourceIds, final InterruptSink[] sinks, final int[] sinkInterrupts) {
+            this.sourceIds = sourceIds;
+            this.sinks = sinks;
+            this.sinkInterrupts = sinkInterrupts;
+        }
+    }
+
     private static final class InterruptInfo<T> {
         public final T instance;
         public final int index;
@@ -0,0 +1,122 @@
+package li.cil.circuity.server.bus.util;
+
+import li.cil.circuity.common.Settings;
+import li.cil.circuity.server.bus.controller.AbstractBusController;
+import li.cil.lib.api.SillyBeeAPI;
+import li.cil.lib.api.event.ForwardedFMLServerStoppedEvent;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Distributes the per-tick time budget for bus updates across all buses.
+ * <p>
+ * Bus controllers report how long each of their updates took, and get back
+ * the time they should aim for, which they use to adjust their clock scale.
+ * The target time is chosen such that the total time spent updating buses,
+ * spread across the {@link BusThreadPool}'s workers, stays within the budget
+ * configured in {@link Settings#busTimeBudget}, and no single bus exceeds it.
+ * <p>
+ * Also keeps track of all buses that were updated, for diagnostics.
+ */
+public enum BusGovernor {
+    INSTANCE;
+
+    /**
+     * Number of bus updates reported in the current tick.
+     */
+    private final AtomicInteger updatesThisTick = new AtomicInteger();
+
+    /**
+     * Number of bus updates reported in the last tick.
+     */
+    private volatile int updatesLastTick;
+
+    /**
+     * All bus controllers that were updated since the server started.
+     */
+    private final Set<AbstractBusController> controllers = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // --------------------------------------------------------------------- //
+
+    BusGovernor() {
+        SillyBeeAPI.EVENT_BUS.register(this);
+        MinecraftForge.EVENT_BUS.register(this);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Whether the governor is enabled, i.e. a time budget is configured.
+     *
+     * @return <code>true</code> if buses should adjust their clock scale.
+     */
+    public boolean isEnabled() {
+        return Settings.busTimeBudget > 0;
+    }
+
+    /**
+     * Report an update of the specified bus controller.
+     *
+     * @param controller the controller that was updated.
+     * @return the time the controller should aim for per update, in nanoseconds.
+     */
+    public long reportUpdate(final AbstractBusController controller) {
+        updatesThisTick.incrementAndGet();
+        synchronized (controllers) {
+            controllers.add(controller);
+        }
+
+        final long budget = TimeUnit.MILLISECONDS.toNanos(Settings.busTimeBudget);
+        final int workers = BusThreadPool.INSTANCE.getWorkerCount();
+        final int buses = Math.max(workers, updatesLastTick);
+        return budget * workers / buses;
+    }
+
+    /**
+     * Remove a controller from the list of known controllers, e.g. because it
+     * was disposed.
+     *
+     * @param controller the controller to remove.
+     */
+    public void remove(final AbstractBusController controller) {
+        synchronized (controllers) {
+            controllers.remove(controller);
+        }
+    }
+
+    /**
+     * Get a snapshot of all known bus controllers.
+     *
+     * @return the list of known controllers.
+     */
+    public List<AbstractBusController> getControllers() {
+        synchronized (controllers) {
+            return new ArrayList<>(controllers);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @SubscribeEvent
+    public void handleServerTick(final TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            updatesLastTick = updatesThisTick.getAndSet(0);
+        }
+    }
+
+    @SubscribeEvent
+    public void handleServerStopped(final ForwardedFMLServerStoppedEvent event) {
+        synchronized (controllers) {
+            controllers.clear();
+        }
+    }
+}
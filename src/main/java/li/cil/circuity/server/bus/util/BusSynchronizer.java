@@ -0,0 +1,116 @@
+package li.cil.circuity.server.bus.util;
+
+import li.cil.circuity.server.bus.controller.AbstractBusController;
+import li.cil.lib.api.SillyBeeAPI;
+import li.cil.lib.api.event.ForwardedFMLServerStoppedEvent;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Fully synchronizes buses that may lag behind the server whenever the server
+ * needs a consistent view of the world, i.e. when unloading chunks and worlds.
+ * For chunk unloads, only buses spanning the unloading chunk are synchronized,
+ * see {@link AbstractBusController#isInChunk(ChunkPos)}.
+ * <p>
+ * Saving is not handled here, as {@link WorldEvent.Save} is only fired after
+ * tile entities have been written. Instead, bus devices synchronize their
+ * bus right before they are serialized.
+ * <p>
+ * Bus controllers register themselves here when they start updating while
+ * lagging is enabled, and remove themselves when disposed.
+ */
+public enum BusSynchronizer {
+    INSTANCE;
+
+    private final WeakHashMap<World, Set<AbstractBusController>> controllers = new WeakHashMap<>();
+
+    // --------------------------------------------------------------------- //
+
+    BusSynchronizer() {
+        SillyBeeAPI.EVENT_BUS.register(this);
+        MinecraftForge.EVENT_BUS.register(this);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    public void add(final World world, final AbstractBusController controller) {
+        synchronized (controllers) {
+            controllers.computeIfAbsent(world, w -> Collections.newSetFromMap(new WeakHashMap<>())).add(controller);
+        }
+    }
+
+    public void remove(final World world, final AbstractBusController controller) {
+        synchronized (controllers) {
+            final Set<AbstractBusController> worldControllers = controllers.get(world);
+            if (worldControllers != null) {
+                worldControllers.remove(controller);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @SubscribeEvent
+    public void handleWorldUnload(final WorldEvent.Unload event) {
+        synchronize(event.getWorld());
+        synchronized (controllers) {
+            controllers.remove(event.getWorld());
+        }
+    }
+
+    @SubscribeEvent
+    public void handleChunkUnload(final ChunkEvent.Unload event) {
+        synchronize(event.getWorld(), event.getChunk().getPos());
+    }
+
+    @SubscribeEvent
+    public void handleServerStopped(final ForwardedFMLServerStoppedEvent event) {
+        synchronized (controllers) {
+            controllers.clear();
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void synchronize(final World world) {
+        synchronize(world, null);
+    }
+
+    /**
+     * Synchronizes the buses in the specified world.
+     *
+     * @param world the world to synchronize the buses of.
+     * @param chunk if not <code>null</code>, only synchronize buses spanning this chunk.
+     */
+    private void synchronize(final World world, @Nullable final ChunkPos chunk) {
+        if (world.isRemote) {
+            return;
+        }
+
+        final List<AbstractBusController> worldControllers;
+        synchronized (controllers) {
+            final Set<AbstractBusController> set = controllers.get(world);
+            if (set == null || set.isEmpty()) {
+                return;
+            }
+            worldControllers = new ArrayList<>(set);
+        }
+
+        for (final AbstractBusController controller : worldControllers) {
+            if (chunk == null || controller.isInChunk(chunk)) {
+                controller.synchronize();
+            }
+        }
+    }
+}
@@ -1,30 +1,272 @@
 package li.cil.circuity.server.bus.util;
 
 import li.cil.circuity.ModCircuity;
+import li.cil.circuity.common.Settings;
 import li.cil.lib.api.SillyBeeAPI;
 import net.minecraftforge.common.MinecraftForge;
 
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Work-stealing thread pool used to update buses.
+ * <p>
+ * Each worker has its own task queue. Tasks are submitted with an affinity,
+ * which determines the worker whose queue they are put into, so that a bus
+ * controller submitting with the same affinity every tick keeps running on
+ * the same thread, and its data stays in that core's caches. Workers that run
+ * out of tasks steal from other workers' queues, so a single busy worker does
+ * not hold up the tasks queued for it.
+ * <p>
+ * The number of workers is taken from {@link Settings#busThreads}.
+ */
 public enum BusThreadPool {
     INSTANCE;
 
-    private static final int CORE_POOL_SIZE = 8;
+    /**
+     * The length of the window over which worker utilization is measured.
+     */
+    private static final long UTILIZATION_WINDOW = TimeUnit.SECONDS.toNanos(1);
 
-    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(CORE_POOL_SIZE, CORE_POOL_SIZE, 1, TimeUnit.MINUTES, new LinkedBlockingDeque<>(), new BusThreadFactory());
+    // --------------------------------------------------------------------- //
+
+    private final Worker[] workers = new Worker[Settings.getBusThreadCount()];
+
+    /**
+     * Used to hand out affinities in a round-robin fashion.
+     */
+    private final AtomicInteger nextAffinity = new AtomicInteger();
+
+    /**
+     * Number of tasks submitted but not yet started.
+     */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /**
+     * Start of the current utilization window.
+     */
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private volatile boolean isStarted;
+
+    // --------------------------------------------------------------------- //
 
     BusThreadPool() {
+        final ThreadFactory factory = new BusThreadFactory();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i, factory);
+        }
+
         SillyBeeAPI.EVENT_BUS.register(this);
         MinecraftForge.EVENT_BUS.register(this);
     }
 
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get a new affinity to use for {@link #submit(int, Runnable)}.
+     * <p>
+     * Affinities are handed out round-robin, to spread callers that keep
+     * using the same affinity evenly across workers.
+     *
+     * @return a new affinity.
+     */
+    public int allocateAffinity() {
+        return nextAffinity.getAndIncrement();
+    }
+
+    /**
+     * Submit a task, preferably to be run on the worker for the specified affinity.
+     *
+     * @param affinity the affinity of the task, see {@link #allocateAffinity()}.
+     * @param task     the task to run.
+     * @return the future representing the task.
+     */
+    public Future submit(final int affinity, final Runnable task) {
+        final FutureTask<Void> future = new FutureTask<>(task, null);
+        execute(affinity, future);
+        return future;
+    }
+
+    /**
+     * Like {@link #submit(int, Runnable)}, but without wrapping the task in a
+     * {@link Future}, for callers that track completion themselves and want
+     * to submit the same task object over and over.
+     * <p>
+     * Exceptions thrown by the task are logged and otherwise ignored.
+     *
+     * @param affinity the affinity of the task, see {@link #allocateAffinity()}.
+     * @param task     the task to run.
+     */
+    public void execute(final int affinity, final Runnable task) {
+        ensureStarted();
+        updateUtilization();
+
+        final Worker worker = workers[Math.floorMod(affinity, workers.length)];
+
+        queueDepth.incrementAndGet();
+        worker.tasks.addLast(task);
+
+        if (worker.isParked) {
+            LockSupport.unpark(worker.thread);
+        } else {
+            // Preferred worker is busy, give someone else a chance to steal.
+            for (final Worker other : workers) {
+                if (other.isParked) {
+                    LockSupport.unpark(other.thread);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Submit a task to be run on any worker.
+     *
+     * @param task the task to run.
+     * @return the future representing the task.
+     */
     public Future submit(final Runnable task) {
-        return pool.submit(task);
+        return submit(allocateAffinity(), task);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Get the number of workers in this pool.
+     *
+     * @return the number of workers.
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Get the number of tasks that have been submitted but not yet started.
+     *
+     * @return the current queue depth.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Get the fraction of time the specified worker spent running tasks,
+     * measured over the last completed window of at least one second.
+     * <p>
+     * The window is advanced both when tasks are submitted and when this is
+     * called, so workers of a pool that has nothing to do report zero.
+     *
+     * @param worker the index of the worker, in [0, {@link #getWorkerCount()}).
+     * @return the utilization of the worker, in [0, 1].
+     */
+    public float getUtilization(final int worker) {
+        updateUtilization();
+        return workers[worker].utilization;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void ensureStarted() {
+        if (!isStarted) {
+            synchronized (workers) {
+                if (!isStarted) {
+                    for (final Worker worker : workers) {
+                        worker.thread.start();
+                    }
+                    isStarted = true;
+                }
+            }
+        }
+    }
+
+    private void updateUtilization() {
+        final long now = System.nanoTime();
+        final long start = windowStart.get();
+        final long elapsed = now - start;
+        if (elapsed < UTILIZATION_WINDOW || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+
+        for (final Worker worker : workers) {
+            final long busyTime = worker.busyTime;
+            worker.utilization = Math.min(1f, (busyTime - worker.windowBusyTime) / (float) elapsed);
+            worker.windowBusyTime = busyTime;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final Thread thread;
+        private final ConcurrentLinkedDeque<Runnable> tasks = new ConcurrentLinkedDeque<>();
+
+        private volatile boolean isParked;
+
+        /**
+         * Total time spent running tasks, in nanoseconds. Only written by the
+         * worker thread itself.
+         */
+        private volatile long busyTime;
+
+        // Only accessed from updateUtilization, guarded by the window CAS.
+        private long windowBusyTime;
+        private volatile float utilization;
+
+        Worker(final int index, final ThreadFactory factory) {
+            this.index = index;
+            this.thread = factory.newThread(this);
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                Runnable task = tasks.pollFirst();
+                if (task == null) {
+                    task = steal();
+                }
+
+                if (task == null) {
+                    isParked = true;
+                    // Check again after announcing we're parked, to not miss
+                    // tasks submitted while we were still considered busy.
+                    if (tasks.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    isParked = false;
+                    continue;
+                }
+
+                queueDepth.decrementAndGet();
+
+                final long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (final Throwable t) {
+                    ModCircuity.getLogger().error("Bus task threw.", t);
+                }
+                busyTime += System.nanoTime() - start;
+            }
+        }
+
+        private Runnable steal() {
+            for (int i = 1; i < workers.length; i++) {
+                final Worker victim = workers[(index + i) % workers.length];
+                final Runnable task = victim.tasks.pollLast();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
     }
 
     private static final class BusThreadFactory implements ThreadFactory {
@@ -0,0 +1,120 @@
+package li.cil.circuity.server.bus.util;
+
+import li.cil.lib.api.SillyBeeAPI;
+import li.cil.lib.api.event.ForwardedFMLServerStoppedEvent;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Notifies callbacks when specific chunks get loaded.
+ * <p>
+ * Used by bus controllers to wait for the chunks that prevented a scan from
+ * completing, instead of periodically re-trying the scan.
+ * <p>
+ * Callbacks are one-shot: once any of the chunks a callback was registered
+ * for is loaded, the callback is removed for all of its chunks and invoked.
+ * Callbacks are invoked from within the chunk load, so they should not do any
+ * actual work, but merely schedule it.
+ * <p>
+ * This class is thread safe.
+ */
+public enum ChunkLoadWatcher {
+    INSTANCE;
+
+    private final WeakHashMap<World, Map<ChunkPos, List<Runnable>>> watches = new WeakHashMap<>();
+
+    // --------------------------------------------------------------------- //
+
+    ChunkLoadWatcher() {
+        SillyBeeAPI.EVENT_BUS.register(this);
+        MinecraftForge.EVENT_BUS.register(this);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Register a callback to be invoked once any of the specified chunks loads.
+     *
+     * @param world    the world the chunks are in.
+     * @param chunks   the positions of the chunks to watch.
+     * @param callback the callback to invoke.
+     */
+    public void watch(final World world, final Iterable<ChunkPos> chunks, final Runnable callback) {
+        synchronized (watches) {
+            final Map<ChunkPos, List<Runnable>> worldWatches = watches.computeIfAbsent(world, w -> new HashMap<>());
+            for (final ChunkPos chunk : chunks) {
+                final List<Runnable> callbacks = worldWatches.computeIfAbsent(chunk, c -> new ArrayList<>());
+                if (!callbacks.contains(callback)) {
+                    callbacks.add(callback);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a callback from all chunks it was registered for.
+     *
+     * @param world    the world the callback was registered in.
+     * @param callback the callback to remove.
+     */
+    public void cancel(final World world, final Runnable callback) {
+        synchronized (watches) {
+            final Map<ChunkPos, List<Runnable>> worldWatches = watches.get(world);
+            if (worldWatches != null) {
+                cancel(worldWatches, callback);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @SubscribeEvent
+    public void handleChunkLoad(final ChunkEvent.Load event) {
+        final World world = event.getWorld();
+        if (world.isRemote) {
+            return;
+        }
+
+        final List<Runnable> callbacks;
+        synchronized (watches) {
+            final Map<ChunkPos, List<Runnable>> worldWatches = watches.get(world);
+            if (worldWatches == null) {
+                return;
+            }
+            callbacks = worldWatches.remove(event.getChunk().getPos());
+            if (callbacks == null) {
+                return;
+            }
+            for (final Runnable callback : callbacks) {
+                cancel(worldWatches, callback);
+            }
+            if (worldWatches.isEmpty()) {
+                watches.remove(world);
+            }
+        }
+
+        callbacks.forEach(Runnable::run);
+    }
+
+    @SubscribeEvent
+    public void handleServerStopped(final ForwardedFMLServerStoppedEvent event) {
+        synchronized (watches) {
+            watches.clear();
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void cancel(final Map<ChunkPos, List<Runnable>> worldWatches, final Runnable callback) {
+        worldWatches.values().removeIf(callbacks -> callbacks.remove(callback) && callbacks.isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package li.cil.circuity.server.bus.util;
+
+import li.cil.circuity.ModCircuity;
+
+import java.util.Arrays;
+
+/**
+ * Collects commands issued by bus worker threads, to be run in one batch on
+ * the server thread.
+ * <p>
+ * Uses two arrays that are swapped when draining, so that adding commands
+ * does not allocate once the arrays have grown to the number of commands
+ * typically issued per tick. Adding a command that is already queued does
+ * nothing, so side effects issued repeatedly are run only once per batch.
+ * <p>
+ * Adding commands is thread safe. Draining must only be done from a single
+ * thread, typically the server thread.
+ */
+public final class CommandBuffer {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // --------------------------------------------------------------------- //
+
+    private Runnable[] queued = new Runnable[INITIAL_CAPACITY];
+    private int queuedCount;
+
+    /**
+     * The array of commands currently being run, swapped with {@link #queued}
+     * when draining.
+     */
+    private Runnable[] running = new Runnable[INITIAL_CAPACITY];
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Add a command to run when the buffer is drained next.
+     *
+     * @param command the command to add.
+     */
+    public void add(final Runnable command) {
+        synchronized (this) {
+            for (int i = 0; i < queuedCount; i++) {
+                if (queued[i] == command) {
+                    return;
+                }
+            }
+            if (queuedCount == queued.length) {
+                queued = Arrays.copyOf(queued, queuedCount * 2);
+            }
+            queued[queuedCount++] = command;
+        }
+    }
+
+    /**
+     * Run all queued commands.
+     * <p>
+     * Commands added while draining will be run when the buffer is drained
+     * the next time.
+     */
+    public void drain() {
+        final Runnable[] commands;
+        final int count;
+        synchronized (this) {
+            if (queuedCount == 0) {
+                return;
+            }
+            commands = queued;
+            count = queuedCount;
+            queued = running;
+            queuedCount = 0;
+            running = commands;
+        }
+
+        for (int i = 0; i < count; i++) {
+            try {
+                commands[i].run();
+            } catch (final Throwable t) {
+                ModCircuity.getLogger().error("Bus command threw.", t);
+            }
+            commands[i] = null;
+        }
+    }
+}
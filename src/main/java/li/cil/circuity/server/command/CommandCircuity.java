@@ -0,0 +1,92 @@
+package li.cil.circuity.server.command;
+
+import li.cil.circuity.common.Constants;
+import li.cil.circuity.server.bus.controller.AbstractBusController;
+import li.cil.circuity.server.bus.util.BusGovernor;
+import li.cil.circuity.server.bus.util.BusThreadPool;
+import li.cil.circuity.server.processor.ProcessorMetrics;
+import li.cil.circuity.server.processor.ProcessorMetricsRegistry;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Administrative command for inspecting the state of buses and processors on
+ * the server.
+ */
+public final class CommandCircuity extends CommandBase {
+    private static final String NAME = "circuity";
+    private static final String SUBCOMMAND_BUSES = "buses";
+    private static final String SUBCOMMAND_PROCESSORS = "processors";
+
+    // --------------------------------------------------------------------- //
+    // ICommand
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getUsage(final ICommandSender sender) {
+        return "/" + NAME + " <" + SUBCOMMAND_BUSES + "|" + SUBCOMMAND_PROCESSORS + ">";
+    }
+
+    @Override
+    public void execute(final MinecraftServer server, final ICommandSender sender, final String[] args) throws CommandException {
+        if (args.length == 1 && SUBCOMMAND_BUSES.equals(args[0])) {
+            listBuses(sender);
+        } else if (args.length == 1 && SUBCOMMAND_PROCESSORS.equals(args[0])) {
+            listProcessors(sender);
+        } else {
+            throw new WrongUsageException(getUsage(sender));
+        }
+    }
+
+    @Override
+    public List<String> getTabCompletions(final MinecraftServer server, final ICommandSender sender, final String[] args, @Nullable final BlockPos targetPos) {
+        if (args.length == 1) {
+            return getListOfStringsMatchingLastWord(args, SUBCOMMAND_BUSES, SUBCOMMAND_PROCESSORS);
+        }
+        return Collections.emptyList();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void listBuses(final ICommandSender sender) {
+        final List<AbstractBusController> controllers = BusGovernor.INSTANCE.getControllers();
+        sender.sendMessage(new TextComponentString(String.format("%d buses, %d bus threads, %d queued tasks.",
+                controllers.size(), BusThreadPool.INSTANCE.getWorkerCount(), BusThreadPool.INSTANCE.getQueueDepth())));
+        final StringBuilder utilization = new StringBuilder("Bus thread utilization:");
+        for (int worker = 0; worker < BusThreadPool.INSTANCE.getWorkerCount(); worker++) {
+            utilization.append(String.format(" %.0f%%", BusThreadPool.INSTANCE.getUtilization(worker) * 100));
+        }
+        sender.sendMessage(new TextComponentString(utilization.toString()));
+        for (final AbstractBusController controller : controllers) {
+            final float clockScale = controller.getClockScale();
+            sender.sendMessage(new TextComponentString(String.format("%s: %s, %.2f MHz (%.0f%%), %.2f ms/tick",
+                    controller.getLocationDescription(),
+                    controller.getState(),
+                    Constants.PROCESSOR_CLOCK_RATE * clockScale / 1_000_000f,
+                    clockScale * 100,
+                    controller.getLastUpdateTime() / 1_000_000f)));
+        }
+    }
+
+    private static void listProcessors(final ICommandSender sender) {
+        final Map<String, ProcessorMetrics> metrics = ProcessorMetricsRegistry.INSTANCE.getMetrics();
+        sender.sendMessage(new TextComponentString(String.format("%d processors.", metrics.size())));
+        for (final Map.Entry<String, ProcessorMetrics> entry : metrics.entrySet()) {
+            sender.sendMessage(new TextComponentString(String.format("%s: %s", entry.getKey(), entry.getValue().getSummary())));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package li.cil.circuity.server.command;
+
+import li.cil.lib.api.SillyBeeAPI;
+import li.cil.lib.api.event.ForwardedFMLServerStartingEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Registers our commands when a server starts.
+ */
+public enum Commands {
+    INSTANCE;
+
+    // --------------------------------------------------------------------- //
+
+    public static void init() {
+        SillyBeeAPI.EVENT_BUS.register(INSTANCE);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @SubscribeEvent
+    public void handleServerStarting(final ForwardedFMLServerStartingEvent event) {
+        event.event.registerServerCommand(new CommandCircuity());
+    }
+}
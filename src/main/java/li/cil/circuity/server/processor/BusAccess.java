@@ -10,4 +10,67 @@ public interface BusAccess {
     int read(final int address);
 
     void write(final int address, final int value);
+
+    default void read(final int address, final byte[] buffer, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            buffer[offset + i] = (byte) read(address + i);
+        }
+    }
+
+    default void write(final int address, final byte[] buffer, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            write(address + i, buffer[offset + i] & 0xFF);
+        }
+    }
+
+    /**
+     * Copy a range of bytes in one go, if both the source and the destination
+     * range are plain memory, such as RAM.
+     * <p>
+     * The result must be the same as reading and writing the bytes one by one,
+     * stepping both addresses by <code>step</code> after each byte, including
+     * when the ranges overlap. Implementations must copy either all or none
+     * of the bytes; if none were copied, callers fall back to single accesses.
+     *
+     * @param source      the address of the first byte to read.
+     * @param destination the address of the first byte to write.
+     * @param length      the number of bytes to copy.
+     * @param step        the direction to copy in, <code>1</code> or <code>-1</code>.
+     * @return <code>true</code> if the bytes were copied; <code>false</code> otherwise.
+     */
+    default boolean copy(final int source, final int destination, final int length, final int step) {
+        return false;
+    }
+
+    // Multi-width accesses, composed in little-endian order.
+
+    default int read16(final int address) {
+        return (read(address) & 0xFF) |
+                ((read(address + 1) & 0xFF) << 8);
+    }
+
+    default int read32(final int address) {
+        return (read16(address) & 0xFFFF) |
+                (read16(address + 2) << 16);
+    }
+
+    default long read64(final int address) {
+        return (read32(address) & 0xFFFFFFFFL) |
+                ((long) read32(address + 4) << 32);
+    }
+
+    default void write16(final int address, final int value) {
+        write(address, value & 0xFF);
+        write(address + 1, (value >>> 8) & 0xFF);
+    }
+
+    default void write32(final int address, final int value) {
+        write16(address, value);
+        write16(address + 2, value >>> 16);
+    }
+
+    default void write64(final int address, final long value) {
+        write32(address, (int) value);
+        write32(address + 4, (int) (value >>> 32));
+    }
 }
@@ -2,14 +2,71 @@ package li.cil.circuity.server.processor;
 
 import li.cil.circuity.api.bus.BusController;
 import li.cil.circuity.api.bus.controller.AddressMapper;
+import li.cil.circuity.api.bus.device.AddressBlock;
+import li.cil.circuity.api.bus.device.Addressable;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
 
+import javax.annotation.Nullable;
 import java.util.function.Supplier;
 
+/**
+ * Bus access implementation going through a bus controller's {@link AddressMapper}.
+ * <p>
+ * To avoid looking up the address mapper and decoding the address for every
+ * single access, this caches the address mapper as well as the device that
+ * was last accessed, together with the address window it is mapped to. The
+ * cache is invalidated whenever the {@link AddressMapper#getGeneration()}
+ * changes.
+ * <p>
+ * If the cached device is a {@link DirectMemoryRegion}, accesses to it go
+ * straight to its backing array, bypassing the device entirely. The same
+ * goes for {@link #copy(int, int, int, int)}, which is only supported when
+ * both ranges are direct memory.
+ * <p>
+ * While the bus is updated in parallel, nothing is cached and all accesses
+ * go through the address mapper, so that they are arbitrated, see
+ * {@link AddressMapper#isArbitrated()}.
+ * <p>
+ * As with the address mapper itself, instances of this class are <em>not</em>
+ * thread safe, and must only be used from within callbacks initiated by the
+ * bus controller.
+ */
 public class BusControllerAccess implements BusAccess {
     private final Supplier<BusController> controller;
     private final int offset;
     private final int addressMask;
 
+    // --------------------------------------------------------------------- //
+
+    @Nullable
+    private BusController cachedController;
+    @Nullable
+    private AddressMapper cachedMapper;
+    private int cachedGeneration;
+
+    /**
+     * The device last accessed, and the global address window it is mapped
+     * to, i.e. the interval [windowStart, windowEnd).
+     */
+    @Nullable
+    private Addressable windowDevice;
+    private long windowStart;
+    private long windowEnd;
+
+    /**
+     * The backing array of the device last accessed, if it is a {@link DirectMemoryRegion}
+     * that allows direct access.
+     */
+    @Nullable
+    private DirectMemoryRegion windowRegion;
+    @Nullable
+    private byte[] windowMemory;
+    private int windowMemoryOffset;
+    private boolean windowReadOnly;
+    private boolean windowWriteNotify;
+
+    // --------------------------------------------------------------------- //
+
     public BusControllerAccess(final Supplier<BusController> controller, final int offset, final int addressMask) {
         this.controller = controller;
         this.offset = offset;
@@ -20,15 +77,334 @@ public class BusControllerAccess implements BusAccess {
         this(controller, offset, 0xFFFFFFFF);
     }
 
+    // --------------------------------------------------------------------- //
+    // BusAccess
+
     @Override
     public int read(final int address) {
-        final AddressMapper mapper = controller.get().getSubsystem(AddressMapper.class);
-        return mapper.mapAndRead((address & addressMask) + offset);
+        final long globalAddress = (address & addressMask) + offset;
+        final AddressMapper mapper = getMapper();
+        final Addressable device = getDevice(mapper, globalAddress);
+        if (device != null) {
+            final long localAddress = globalAddress - windowStart;
+            if (windowMemory != null) {
+                return windowMemory[windowMemoryOffset + (int) localAddress] & 0xFF;
+            }
+            return device.read(localAddress);
+        }
+        return mapper.mapAndRead(globalAddress);
     }
 
     @Override
     public void write(final int address, final int value) {
-        final AddressMapper mapper = controller.get().getSubsystem(AddressMapper.class);
-        mapper.mapAndWrite((address & addressMask) + offset, value);
+        final long globalAddress = (address & addressMask) + offset;
+        final AddressMapper mapper = getMapper();
+        final Addressable device = getDevice(mapper, globalAddress);
+        if (device != null) {
+            final long localAddress = globalAddress - windowStart;
+            if (windowMemory != null && !windowReadOnly) {
+                windowMemory[windowMemoryOffset + (int) localAddress] = (byte) value;
+                if (windowWriteNotify) {
+                    windowRegion.markDirectMemoryDirty();
+                }
+            } else {
+                device.write(localAddress, value);
+            }
+        } else {
+            mapper.mapAndWrite(globalAddress, value);
+        }
+    }
+
+    @Override
+    public void read(final int address, final byte[] buffer, final int offset, final int length) {
+        if (wrapsAround(address, length)) {
+            BusAccess.super.read(address, buffer, offset, length);
+        } else {
+            getMapper().mapAndReadBlock((address & addressMask) + this.offset, buffer, offset, length);
+        }
+    }
+
+    @Override
+    public void write(final int address, final byte[] buffer, final int offset, final int length) {
+        if (wrapsAround(address, length)) {
+            BusAccess.super.write(address, buffer, offset, length);
+        } else {
+            getMapper().mapAndWriteBlock((address & addressMask) + this.offset, buffer, offset, length);
+        }
+    }
+
+    @Override
+    public boolean copy(final int source, final int destination, final int length, final int step) {
+        // Work on the lowest addresses of both ranges, the copy direction is
+        // only relevant when they overlap.
+        final int sourceLow = step > 0 ? source : source - (length - 1);
+        final int destinationLow = step > 0 ? destination : destination - (length - 1);
+        if (length <= 0 || wrapsAround(sourceLow, length) || wrapsAround(destinationLow, length)) {
+            return false;
+        }
+
+        final AddressMapper mapper = getMapper();
+
+        final long globalSource = (sourceLow & addressMask) + offset;
+        if (getDevice(mapper, globalSource) == null || windowMemory == null || globalSource + length > windowEnd) {
+            return false;
+        }
+        final byte[] sourceMemory = windowMemory;
+        final int sourceIndex = windowMemoryOffset + (int) (globalSource - windowStart);
+
+        final long globalDestination = (destinationLow & addressMask) + offset;
+        if (getDevice(mapper, globalDestination) == null || windowMemory == null || windowReadOnly || globalDestination + length > windowEnd) {
+            return false;
+        }
+        final byte[] destinationMemory = windowMemory;
+        final int destinationIndex = windowMemoryOffset + (int) (globalDestination - windowStart);
+
+        if (sourceMemory != destinationMemory || sourceIndex + length <= destinationIndex || destinationIndex + length <= sourceIndex) {
+            System.arraycopy(sourceMemory, sourceIndex, destinationMemory, destinationIndex, length);
+        } else if (step > 0) {
+            // Overlapping ranges must behave like single accesses, which for
+            // example repeats a pattern when the destination trails the source.
+            for (int i = 0; i < length; i++) {
+                destinationMemory[destinationIndex + i] = sourceMemory[sourceIndex + i];
+            }
+        } else {
+            for (int i = length - 1; i >= 0; i--) {
+                destinationMemory[destinationIndex + i] = sourceMemory[sourceIndex + i];
+            }
+        }
+
+        if (windowWriteNotify) {
+            windowRegion.markDirectMemoryDirty();
+        }
+        return true;
+    }
+
+    @Override
+    public int read16(final int address) {
+        return (int) readWide(address, 2);
+    }
+
+    @Override
+    public int read32(final int address) {
+        return (int) readWide(address, 4);
+    }
+
+    @Override
+    public long read64(final int address) {
+        return readWide(address, 8);
+    }
+
+    @Override
+    public void write16(final int address, final int value) {
+        writeWide(address, 2, value);
+    }
+
+    @Override
+    public void write32(final int address, final int value) {
+        writeWide(address, 4, value);
+    }
+
+    @Override
+    public void write64(final int address, final long value) {
+        writeWide(address, 8, value);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Reads a little-endian value of the specified width in bytes.
+     * <p>
+     * If the range is fully contained in the cached device window, this is a
+     * single transaction on the device (or its backing array). While accesses
+     * are arbitrated, it is a single transaction on the address mapper.
+     * Otherwise the value is assembled from individual reads.
+     */
+    private long readWide(final int address, final int width) {
+        if (!wrapsAround(address, width)) {
+            final long globalAddress = (address & addressMask) + offset;
+            final AddressMapper mapper = getMapper();
+            final Addressable device = getDevice(mapper, globalAddress);
+            if (device != null && globalAddress + width <= windowEnd) {
+                final long localAddress = globalAddress - windowStart;
+                if (windowMemory != null) {
+                    final int index = windowMemoryOffset + (int) localAddress;
+                    long value = 0;
+                    for (int i = width - 1; i >= 0; i--) {
+                        value = (value << 8) | (windowMemory[index + i] & 0xFF);
+                    }
+                    return value;
+                }
+                return readDevice(device, localAddress, width);
+            }
+            if (device == null && mapper.isArbitrated()) {
+                return readMapped(mapper, globalAddress, width);
+            }
+        }
+
+        long value = 0;
+        for (int i = width - 1; i >= 0; i--) {
+            value = (value << 8) | (read(address + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Writes a little-endian value of the specified width in bytes.
+     *
+     * @see #readWide(int, int)
+     */
+    private void writeWide(final int address, final int width, final long value) {
+        if (!wrapsAround(address, width)) {
+            final long globalAddress = (address & addressMask) + offset;
+            final AddressMapper mapper = getMapper();
+            final Addressable device = getDevice(mapper, globalAddress);
+            if (device != null && globalAddress + width <= windowEnd) {
+                final long localAddress = globalAddress - windowStart;
+                if (windowMemory != null && !windowReadOnly) {
+                    final int index = windowMemoryOffset + (int) localAddress;
+                    for (int i = 0; i < width; i++) {
+                        windowMemory[index + i] = (byte) (value >>> (i * 8));
+                    }
+                    if (windowWriteNotify) {
+                        windowRegion.markDirectMemoryDirty();
+                    }
+                    return;
+                }
+                writeDevice(device, localAddress, width, value);
+                return;
+            }
+            if (device == null && mapper.isArbitrated()) {
+                writeMapped(mapper, globalAddress, width, value);
+                return;
+            }
+        }
+
+        for (int i = 0; i < width; i++) {
+            write(address + i, (int) (value >>> (i * 8)) & 0xFF);
+        }
+    }
+
+    private static long readDevice(final Addressable device, final long address, final int width) {
+        switch (width) {
+            case 2:
+                return device.read16(address);
+            case 4:
+                return device.read32(address);
+            default:
+                return device.read64(address);
+        }
+    }
+
+    private static void writeDevice(final Addressable device, final long address, final int width, final long value) {
+        switch (width) {
+            case 2:
+                device.write16(address, (int) value);
+                break;
+            case 4:
+                device.write32(address, (int) value);
+                break;
+            default:
+                device.write64(address, value);
+                break;
+        }
+    }
+
+    private static long readMapped(final AddressMapper mapper, final long address, final int width) {
+        switch (width) {
+            case 2:
+                return mapper.mapAndRead16(address);
+            case 4:
+                return mapper.mapAndRead32(address);
+            default:
+                return mapper.mapAndRead64(address);
+        }
+    }
+
+    private static void writeMapped(final AddressMapper mapper, final long address, final int width, final long value) {
+        switch (width) {
+            case 2:
+                mapper.mapAndWrite16(address, (int) value);
+                break;
+            case 4:
+                mapper.mapAndWrite32(address, (int) value);
+                break;
+            default:
+                mapper.mapAndWrite64(address, value);
+                break;
+        }
+    }
+
+    private boolean wrapsAround(final int address, final int length) {
+        return length > 0 && Integer.compareUnsigned((address + length - 1) & addressMask, address & addressMask) < 0;
+    }
+
+    private AddressMapper getMapper() {
+        final BusController currentController = controller.get();
+        if (currentController != cachedController || cachedMapper == null) {
+            cachedController = currentController;
+            cachedMapper = currentController.getSubsystem(AddressMapper.class);
+            windowDevice = null;
+            windowRegion = null;
+            windowMemory = null;
+        }
+        return cachedMapper;
+    }
+
+    /**
+     * Get the device mapped to the specified global address, updating the
+     * cached window if necessary.
+     * <p>
+     * Returns <code>null</code> if no device is mapped at the address, or if
+     * accesses are currently arbitrated. In that case the access should be
+     * passed on to the address mapper, so that it can handle it as it sees fit.
+     *
+     * @param mapper        the address mapper to use for lookups.
+     * @param globalAddress the address to get the device for.
+     * @return the device at the address, or <code>null</code>.
+     */
+    @Nullable
+    private Addressable getDevice(final AddressMapper mapper, final long globalAddress) {
+        final int generation = mapper.getGeneration();
+        if (generation == cachedGeneration && windowDevice != null && globalAddress >= windowStart && globalAddress < windowEnd) {
+            return windowDevice;
+        }
+
+        cachedGeneration = generation;
+        windowDevice = null;
+        windowRegion = null;
+        windowMemory = null;
+
+        if (mapper.isArbitrated()) {
+            return null;
+        }
+
+        final Addressable device = mapper.getDevice(globalAddress);
+        if (device == null) {
+            return null;
+        }
+
+        final AddressBlock memory = mapper.getAddressBlock(device);
+        if (memory == null) {
+            return null;
+        }
+
+        windowDevice = device;
+        windowStart = memory.getOffset();
+        windowEnd = memory.getEnd();
+
+        if (device instanceof DirectMemoryRegion) {
+            final DirectMemoryRegion region = (DirectMemoryRegion) device;
+            final byte[] array = region.getDirectMemory();
+            final int arrayOffset = region.getDirectMemoryOffset();
+            if (array != null && arrayOffset >= 0 && arrayOffset + memory.getLength() <= array.length) {
+                windowRegion = region;
+                windowMemory = array;
+                windowMemoryOffset = arrayOffset;
+                windowReadOnly = region.isDirectMemoryReadOnly();
+                windowWriteNotify = region.isDirectMemoryWriteNotify();
+            }
+        }
+
+        return device;
     }
 }
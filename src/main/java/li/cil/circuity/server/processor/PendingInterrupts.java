@@ -0,0 +1,198 @@
+package li.cil.circuity.server.processor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free pending interrupt state for processor implementations.
+ * <p>
+ * Devices may raise interrupts from any thread at any time without having to
+ * wait for the processor, which typically holds its lock for the duration of
+ * a whole update. The processor polls this at instruction boundaries, via
+ * {@link #isPending()}, and processes pending interrupts as it sees fit.
+ * <p>
+ * Interrupts come in two flavors: plain interrupt lines, which are simple
+ * flags with no associated data (e.g. NMI), and interrupt requests carrying
+ * data (e.g. the vector provided by the interrupting device), which are kept
+ * in a small bounded queue so that none get lost while the processor is busy.
+ * <p>
+ * Raising interrupts is thread safe. Consuming interrupts must only be done by
+ * a single thread at a time, typically while holding the processor's lock.
+ */
+public final class PendingInterrupts {
+    /**
+     * Capacity of the data queue, must be a power of two.
+     */
+    private static final int QUEUE_CAPACITY = 16;
+    private static final int QUEUE_MASK = QUEUE_CAPACITY - 1;
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Bit mask of currently raised interrupt lines.
+     */
+    private final AtomicInteger lines = new AtomicInteger();
+
+    /**
+     * Bounded multi-producer single-consumer queue of interrupt data.
+     * <p>
+     * Each slot has a sequence number used to hand it over between producers
+     * and the consumer: a slot is free for the producer claiming position
+     * <code>p</code> if its sequence is <code>p</code>, and holds data for the
+     * consumer at position <code>p</code> if its sequence is <code>p + 1</code>.
+     */
+    private final int[] queue = new int[QUEUE_CAPACITY];
+    private final AtomicLongArray sequences = new AtomicLongArray(QUEUE_CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    // --------------------------------------------------------------------- //
+
+    public PendingInterrupts() {
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+    // Producer side, thread safe.
+
+    /**
+     * Raise the interrupt line with the specified index.
+     *
+     * @param line the index of the line to raise, in [0, 32).
+     */
+    public void raise(final int line) {
+        final int mask = 1 << line;
+        for (; ; ) {
+            final int current = lines.get();
+            if ((current & mask) != 0 || lines.compareAndSet(current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Enqueue an interrupt request with the specified data.
+     *
+     * @param data the data associated with the interrupt.
+     * @return <code>true</code> if the request was queued; <code>false</code> if the queue is full.
+     */
+    public boolean request(final int data) {
+        long position = tail.get();
+        for (; ; ) {
+            final int index = (int) (position & QUEUE_MASK);
+            final long sequence = sequences.get(index);
+            final long delta = sequence - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    queue[index] = data;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (delta < 0) {
+                return false; // Full.
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+    // Consumer side, single thread only.
+
+    /**
+     * Whether there are any raised lines or queued requests.
+     * <p>
+     * This is cheap enough to call before every instruction.
+     *
+     * @return <code>true</code> if there is something to process.
+     */
+    public boolean isPending() {
+        return lines.get() != 0 || hasRequest();
+    }
+
+    /**
+     * Get the mask of currently raised lines, without clearing them.
+     *
+     * @return the mask of raised lines.
+     */
+    public int getLines() {
+        return lines.get();
+    }
+
+    /**
+     * Clear the specified line, returning whether it was raised.
+     *
+     * @param line the index of the line to clear.
+     * @return <code>true</code> if the line was raised; <code>false</code> otherwise.
+     */
+    public boolean take(final int line) {
+        final int mask = 1 << line;
+        for (; ; ) {
+            final int current = lines.get();
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (lines.compareAndSet(current, current & ~mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Clear all lines, returning the mask of lines that were raised.
+     *
+     * @return the mask of lines that were raised.
+     */
+    public int takeLines() {
+        return lines.getAndSet(0);
+    }
+
+    /**
+     * Whether there is at least one queued interrupt request.
+     *
+     * @return <code>true</code> if there is a queued request.
+     */
+    public boolean hasRequest() {
+        return sequences.get((int) (head & QUEUE_MASK)) == head + 1;
+    }
+
+    /**
+     * Get the data of the oldest queued request without removing it.
+     * <p>
+     * Must only be called if {@link #hasRequest()} returned <code>true</code>.
+     *
+     * @return the data of the oldest queued request.
+     */
+    public int peekRequest() {
+        return queue[(int) (head & QUEUE_MASK)];
+    }
+
+    /**
+     * Remove the oldest queued request, returning its data.
+     * <p>
+     * Must only be called if {@link #hasRequest()} returned <code>true</code>.
+     *
+     * @return the data of the removed request.
+     */
+    public int takeRequest() {
+        final int index = (int) (head & QUEUE_MASK);
+        final int data = queue[index];
+        sequences.lazySet(index, head + QUEUE_CAPACITY);
+        ++head;
+        return data;
+    }
+
+    /**
+     * Drop all raised lines and queued requests.
+     */
+    public void clear() {
+        lines.set(0);
+        while (hasRequest()) {
+            takeRequest();
+        }
+    }
+}
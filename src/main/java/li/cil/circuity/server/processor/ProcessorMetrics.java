@@ -0,0 +1,22 @@
+package li.cil.circuity.server.processor;
+
+/**
+ * Counters exported by a processor, made available to administrators via the
+ * {@link ProcessorMetricsRegistry}.
+ * <p>
+ * Implementations must also implement an MXBean interface, i.e. an interface
+ * with a name ending in <code>MXBean</code> declaring the getters of the
+ * counters, so that they can be registered with JMX.
+ * <p>
+ * Counters are typically updated by the processor while it is running, so
+ * all methods must be safe to call from any thread.
+ */
+public interface ProcessorMetrics {
+    /**
+     * A short, human readable summary of the current counters, for display
+     * in the admin command.
+     *
+     * @return the summary.
+     */
+    String getSummary();
+}
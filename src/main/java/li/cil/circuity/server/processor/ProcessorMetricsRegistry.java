@@ -0,0 +1,143 @@
+package li.cil.circuity.server.processor;
+
+import li.cil.circuity.ModCircuity;
+import li.cil.lib.api.SillyBeeAPI;
+import li.cil.lib.api.event.ForwardedFMLServerStoppedEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the metrics of all processors currently connected to a bus,
+ * for the admin command and JMX.
+ * <p>
+ * Processors add their metrics when they are connected to a bus, and remove
+ * them when they are disconnected. Each registered instance is also exported
+ * as an MXBean named <code>li.cil.circuity:type=Processor,name=&lt;name&gt;</code>,
+ * where the name is made up of the processor type and a sequence number.
+ */
+public enum ProcessorMetricsRegistry {
+    INSTANCE;
+
+    private static final String OBJECT_NAME_FORMAT = "li.cil.circuity:type=Processor,name=%s";
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Registered metrics, by their name, in order of registration.
+     */
+    private final Map<String, ProcessorMetrics> metrics = new LinkedHashMap<>();
+
+    /**
+     * Sequence number for the next registered processor.
+     */
+    private int nextId = 1;
+
+    // --------------------------------------------------------------------- //
+
+    ProcessorMetricsRegistry() {
+        SillyBeeAPI.EVENT_BUS.register(this);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Register the metrics of a processor.
+     * <p>
+     * Adding metrics that are already registered does nothing.
+     *
+     * @param type    the type of the processor, e.g. <code>mips3</code>.
+     * @param metrics the metrics to register.
+     */
+    public void add(final String type, final ProcessorMetrics metrics) {
+        final String name;
+        synchronized (this.metrics) {
+            if (this.metrics.containsValue(metrics)) {
+                return;
+            }
+            name = type + "-" + nextId++;
+            this.metrics.put(name, metrics);
+        }
+
+        try {
+            getServer().registerMBean(metrics, getObjectName(name));
+        } catch (final JMException | IllegalArgumentException e) {
+            ModCircuity.getLogger().warn("Failed exporting processor metrics via JMX.", e);
+        }
+    }
+
+    /**
+     * Unregister the metrics of a processor.
+     *
+     * @param metrics the metrics to unregister.
+     */
+    public void remove(final ProcessorMetrics metrics) {
+        final String name = removeEntry(metrics);
+        if (name != null) {
+            unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Get all currently registered metrics.
+     *
+     * @return a snapshot of all registered metrics, by name.
+     */
+    public Map<String, ProcessorMetrics> getMetrics() {
+        synchronized (this.metrics) {
+            return new LinkedHashMap<>(this.metrics);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @SubscribeEvent
+    public void handleServerStopped(final ForwardedFMLServerStoppedEvent event) {
+        final Map<String, ProcessorMetrics> removed;
+        synchronized (this.metrics) {
+            removed = new LinkedHashMap<>(this.metrics);
+            this.metrics.clear();
+        }
+        removed.keySet().forEach(this::unregisterMBean);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @Nullable
+    private String removeEntry(final ProcessorMetrics metrics) {
+        synchronized (this.metrics) {
+            for (final Map.Entry<String, ProcessorMetrics> entry : this.metrics.entrySet()) {
+                if (entry.getValue() == metrics) {
+                    this.metrics.remove(entry.getKey());
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void unregisterMBean(final String name) {
+        try {
+            final ObjectName objectName = getObjectName(name);
+            if (getServer().isRegistered(objectName)) {
+                getServer().unregisterMBean(objectName);
+            }
+        } catch (final JMException e) {
+            ModCircuity.getLogger().warn("Failed removing processor metrics from JMX.", e);
+        }
+    }
+
+    private static MBeanServer getServer() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+
+    private static ObjectName getObjectName(final String name) throws JMException {
+        return new ObjectName(String.format(OBJECT_NAME_FORMAT, name));
+    }
+}
@@ -1,6 +1,7 @@
 package li.cil.circuity.server.processor.mips;
 
 import li.cil.circuity.server.processor.BusControllerAccess;
+import li.cil.circuity.server.processor.PendingInterrupts;
 import li.cil.lib.api.serialization.Serialize;
 
 /**
@@ -23,6 +24,17 @@ public class Mips3 {
     private BusControllerAccess memory;
     private final Object lock = new Object();
 
+    // Hardware interrupt lines (IP2-IP7), raised by devices from any thread
+    private final PendingInterrupts interrupts = new PendingInterrupts();
+
+    // Hardware interrupt bits in Cause taken by the last Int exception,
+    // acknowledged by the next ERET
+    @Serialize
+    private long takenInterrupts = 0;
+
+    // Scratch buffer for transferring whole cache lines over the bus
+    private final byte[] lineBuffer = new byte[32];
+
     // Program counter
     @Serialize
     private long pc = VECTOR_BASE_RESET;
@@ -134,22 +146,14 @@ public class Mips3 {
     public static final int CACHE_NONE = 0x2;
     public static final int CACHE_WBACK = 0x3;
 
-    // Exceptions
-    public class MipsAddressErrorException extends Exception {
-    }
-
-    public class MipsBusErrorException extends Exception {
-    }
-
-    public class MipsCacheFlushException extends Exception {
-    }
-
-    public class MipsTlbModException extends Exception {
-    }
-
-    public class MipsTlbMissException extends Exception {
-    }
-    //public class MipsOpFaulted extends Exception {}
+    // Memory errors
+    // Set in memoryError by the memory paths, which then return early,
+    // and turned into a fault by whoever started the access.
+    private static final int MEMORY_OK = 0;
+    private static final int MEMORY_ADDRESS_ERROR = 1;
+    private static final int MEMORY_BUS_ERROR = 2;
+    private static final int MEMORY_TLB_MOD = 3;
+    private static final int MEMORY_TLB_MISS = 4;
 
     // TLB entries as defined by MIPS
     @Serialize
@@ -173,6 +177,16 @@ public class Mips3 {
     @Serialize
     private long tlbRecentLo = 0;
 
+    // Micro-TLB
+    // Direct-mapped cache of recent translations through the TLB,
+    // keyed by 4KB virtual page and ASID, checked before walking the TLB.
+    // Not serialized, it is flushed whenever the TLB is written and on reset.
+    public static final int MICRO_TLB_COUNT = 64;
+    private static final long MICRO_TLB_INVALID = -1L; // ASID never sets bits 8-11
+    private final long[] microTlbTag = new long[MICRO_TLB_COUNT];
+    private final long[] microTlbPage = new long[MICRO_TLB_COUNT];
+    private final long[] microTlbLo = new long[MICRO_TLB_COUNT];
+
     // Caches
     // cache size: I=16KB D=16KB
     // line  size: I=32B  D=32B
@@ -230,9 +244,18 @@ public class Mips3 {
     @Serialize
     private long k0base = 0x1C;
 
-    // Benchmarking
-    private long benchAccum = 0;
-    private int benchTicksLeft = 20;
+    // Metrics, counted here and published after each slice
+    private final Mips3Metrics metrics = new Mips3Metrics();
+    private long instructionsRetired = 0;
+    private long iCacheHits = 0;
+    private long iCacheMisses = 0;
+    private long dCacheHits = 0;
+    private long dCacheMisses = 0;
+    private long tlbMisses = 0;
+    private final long[] faults = new long[MFault.values().length];
+
+    // Error of the last failed memory access, MEMORY_OK while none is pending
+    private int memoryError = MEMORY_OK;
 
     // Actual code!
 
@@ -254,6 +277,8 @@ public class Mips3 {
     // Faults
 
     private void fault(MFault code, long pc, boolean bd) {
+        this.faults[code.ordinal()]++;
+
         // Track old EXL flags
         boolean oldExl = (this.c0regs[C0_STATUS] & 2) != 0;
 
@@ -329,6 +354,62 @@ public class Mips3 {
         }
     }
 
+    private void faultLoad(long pc, boolean bd) {
+        int error = this.memoryError;
+        this.memoryError = MEMORY_OK;
+        switch (error) {
+            case MEMORY_TLB_MISS:
+                fault(MFault.TLBL, pc, bd);
+                break;
+            case MEMORY_ADDRESS_ERROR:
+                fault(MFault.AdEL, pc, bd);
+                break;
+            case MEMORY_BUS_ERROR:
+                fault(MFault.DBE, pc, bd);
+                break;
+        }
+    }
+
+    private void faultStore(long pc, boolean bd) {
+        int error = this.memoryError;
+        this.memoryError = MEMORY_OK;
+        switch (error) {
+            case MEMORY_TLB_MOD:
+                fault(MFault.Mod, pc, bd);
+                break;
+            case MEMORY_TLB_MISS:
+                fault(MFault.TLBS, pc, bd);
+                break;
+            case MEMORY_ADDRESS_ERROR:
+                fault(MFault.AdES, pc, bd);
+                break;
+            case MEMORY_BUS_ERROR:
+                fault(MFault.DBE, pc, bd);
+                break;
+        }
+    }
+
+    private void faultFetch(long pc, boolean bd) {
+        int error = this.memoryError;
+        this.memoryError = MEMORY_OK;
+        switch (error) {
+            case MEMORY_TLB_MISS:
+                fault(MFault.TLBL, pc, bd);
+                break;
+            case MEMORY_ADDRESS_ERROR:
+                fault(MFault.AdEL, pc, bd);
+                break;
+            case MEMORY_BUS_ERROR:
+                fault(MFault.IBE, pc, bd);
+                break;
+        }
+
+        // Kill the op that failed to fetch
+        this.pc = this.pcNext;
+        this.pcNext = this.pcAfter;
+        this.pcAfter += 4;
+    }
+
     // "Immediate" reads and writes
     // These do not trigger MIPS faults.
     // Java exceptions perhaps, but no MIPS faults.
@@ -352,28 +433,20 @@ public class Mips3 {
 
     private int read16Imm(final long addr) {
         this.cycleBudget -= 2;
-        int v0 = read8Bus(addr + 0);
-        int v1 = read8Bus(addr + 1);
-        return v0 | (v1 << 8);
+        return memory.read16((int) addr);
     }
 
     private int read32Imm(final long addr) {
         this.cycleBudget -= 4;
-        int v0 = read8Bus(addr + 0);
-        int v1 = read8Bus(addr + 1);
-        int v2 = read8Bus(addr + 2);
-        int v3 = read8Bus(addr + 3);
-        return v0 | (v1 << 8) | (v2 << 16) | (v3 << 24);
+        return memory.read32((int) addr);
     }
 
     private long read64Imm(final long addr) {
-        long v0 = read32Imm(addr + 0);
-        long v1 = read32Imm(addr + 4);
-        return (v0 & 0xFFFFFFFFL) | (v1 << 32L);
+        this.cycleBudget -= 8;
+        return memory.read64((int) addr);
     }
 
     private void write8Imm(final long addr, final int data) {
-        // XXX: pending wider data bus support
         this.cycleBudget -= 1;
         try {
             memory.write((int) addr, 0xFF & (int) data);
@@ -382,18 +455,63 @@ public class Mips3 {
     }
 
     private void write16Imm(final long addr, final int data) {
-        write8Imm(addr + 0, data);
-        write8Imm(addr + 1, data >> 8);
+        this.cycleBudget -= 2;
+        try {
+            memory.write16((int) addr, data);
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
     }
 
     private void write32Imm(final long addr, final int data) {
-        write16Imm(addr + 0, data);
-        write16Imm(addr + 2, data >> 16);
+        this.cycleBudget -= 4;
+        try {
+            memory.write32((int) addr, data);
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
     }
 
     private void write64Imm(final long addr, final long data) {
-        write32Imm(addr + 0, (int) (data));
-        write32Imm(addr + 4, (int) (data >> 32L));
+        this.cycleBudget -= 8;
+        try {
+            memory.write64((int) addr, data);
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
+    }
+
+    // Cache line transfers
+    // These move a whole 32 byte line in one bus transaction,
+    // with the same cycle cost as the equivalent 64-bit accesses.
+
+    private void readLineImm(final long pbase) {
+        this.cycleBudget -= lineBuffer.length;
+        memory.read((int) pbase, lineBuffer, 0, lineBuffer.length);
+    }
+
+    private void writeLineImm(final long pbase, final long d0, final long d1, final long d2, final long d3) {
+        this.cycleBudget -= lineBuffer.length;
+        putLine64(0, d0);
+        putLine64(1, d1);
+        putLine64(2, d2);
+        putLine64(3, d3);
+        try {
+            memory.write((int) pbase, lineBuffer, 0, lineBuffer.length);
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
+    }
+
+    private long getLine64(final int index) {
+        long v = 0;
+        for (int i = 7; i >= 0; i--) {
+            v = (v << 8) | (0xFFL & lineBuffer[(index << 3) + i]);
+        }
+        return v;
+    }
+
+    private void putLine64(final int index, long data) {
+        for (int i = 0; i < 8; i++) {
+            lineBuffer[(index << 3) + i] = (byte) data;
+            data >>>= 8;
+        }
     }
 
     // TLB functions
@@ -450,12 +568,22 @@ public class Mips3 {
         return -1;
     }
 
-    private long getTlbPhysAddress(long vaddr) throws MipsTlbMissException {
+    private long getTlbPhysAddress(long vaddr) {
+        // Check micro-TLB
+        long mtag = (vaddr & 0xC000_00FF_FFFF_F000L) | (this.c0regs[C0_ENTRYHI] & 0xFF);
+        int midx = ((int) (vaddr >> 12)) & (MICRO_TLB_COUNT - 1);
+        if (this.microTlbTag[midx] == mtag) {
+            this.tlbRecentLo = this.microTlbLo[midx];
+            return this.microTlbPage[midx] | (vaddr & 0xFFF);
+        }
+
         int idx = getTlbIndex(vaddr);
         if (idx < 0) {
             // TLB MISS
+            this.tlbMisses++;
             this.c0regs[C0_BADVADDR] = vaddr;
-            throw new MipsTlbMissException();
+            this.memoryError = MEMORY_TLB_MISS;
+            return 0;
         }
 
         // Get fields
@@ -467,7 +595,20 @@ public class Mips3 {
         this.tlbRecentLo = lo;
 
         // Remap
-        return (vaddr & mask) | ((lo << 6) & ~mask);
+        long paddr = (vaddr & mask) | ((lo << 6) & ~mask);
+
+        // Remember the translation of this page (pages are at least 4KB)
+        this.microTlbTag[midx] = mtag;
+        this.microTlbPage[midx] = paddr & ~0xFFFL;
+        this.microTlbLo[midx] = lo;
+
+        return paddr;
+    }
+
+    private void flushMicroTlb() {
+        for (int i = 0; i < MICRO_TLB_COUNT; i++) {
+            this.microTlbTag[i] = MICRO_TLB_INVALID;
+        }
     }
 
     private void tlbWriteAt(int idx) {
@@ -487,6 +628,9 @@ public class Mips3 {
 
         // Set runtime TLB fields
         this.tlbBase[idx] = this.tlbEntryHi[idx] & ~this.tlbPageMask[idx];
+
+        // Translations through the old entry may be cached
+        flushMicroTlb();
     }
 
     // Memory fence (called during SYNC, LL, SC)
@@ -496,7 +640,7 @@ public class Mips3 {
 
     // Address remapping
 
-    private long virtToPhys64(long inVaddr) throws MipsAddressErrorException, MipsTlbMissException {
+    private long virtToPhys64(long inVaddr) {
         // Back up argument
         long vaddr = inVaddr;
 
@@ -527,7 +671,8 @@ public class Mips3 {
                 }
             } else {
                 this.c0regs[C0_BADVADDR] = inVaddr;
-                throw new MipsAddressErrorException();
+                this.memoryError = MEMORY_ADDRESS_ERROR;
+                return 0;
             }
         }
 
@@ -573,12 +718,13 @@ public class Mips3 {
 
         // ADDRESS ERROR
         this.c0regs[C0_BADVADDR] = inVaddr;
-        throw new MipsAddressErrorException();
+        this.memoryError = MEMORY_ADDRESS_ERROR;
+        return 0;
     }
 
     // Cache
 
-    private boolean isInICache(long vaddr, long paddr) throws MipsBusErrorException {
+    private boolean isInICache(long vaddr, long paddr) {
         // Check if cached (VIPT cache)
         int ctidx = ((int) (vaddr >> 5)) & (ICACHE_SIZE_TAGS - 1);
         int tag = iCacheTags[ctidx];
@@ -594,7 +740,7 @@ public class Mips3 {
         return false;
     }
 
-    private boolean isInDCache(long vaddr, long paddr) throws MipsBusErrorException {
+    private boolean isInDCache(long vaddr, long paddr) {
         // Check if cached (VIPT cache)
         int ctidx = ((int) (vaddr >> 5)) & (DCACHE_SIZE_TAGS - 1);
         int tag = dCacheTags[ctidx];
@@ -610,7 +756,7 @@ public class Mips3 {
         return false;
     }
 
-    private void invalidateDCacheImm(long vaddr) throws MipsBusErrorException {
+    private void invalidateDCacheImm(long vaddr) {
         int ctidx = ((int) (vaddr >> 5)) & (DCACHE_SIZE_TAGS - 1);
         int cdidx = ctidx << 2;
         int tag = this.dCacheTags[ctidx];
@@ -619,16 +765,13 @@ public class Mips3 {
         if ((tag & 0x13000000) == 0x13000000) {
             long opaddr = (((long) tag & 0x00FFFFFFL) << 12) | (vaddr & 0xFFF);
 
-            write64Imm(opaddr + 0, dCacheData[cdidx + 0]);
-            write64Imm(opaddr + 8, dCacheData[cdidx + 1]);
-            write64Imm(opaddr + 16, dCacheData[cdidx + 2]);
-            write64Imm(opaddr + 24, dCacheData[cdidx + 3]);
+            writeLineImm(opaddr, dCacheData[cdidx + 0], dCacheData[cdidx + 1], dCacheData[cdidx + 2], dCacheData[cdidx + 3]);
         }
 
         dCacheTags[ctidx] &= ~0x13000000;
     }
 
-    private void fetchDCacheImm(long vaddr, long paddr) throws MipsBusErrorException {
+    private void fetchDCacheImm(long vaddr, long paddr) {
         // Check if cached
         if (isInDCache(vaddr, paddr)) {
             return;
@@ -637,10 +780,11 @@ public class Mips3 {
         // XXX: do we handle cache errors?
         // Fetch 8 words / 4 dwords
         long pbase = paddr & ~31;
-        long d0 = read64Imm(pbase + 0);
-        long d1 = read64Imm(pbase + 8);
-        long d2 = read64Imm(pbase + 16);
-        long d3 = read64Imm(pbase + 24);
+        readLineImm(pbase);
+        long d0 = getLine64(0);
+        long d1 = getLine64(1);
+        long d2 = getLine64(2);
+        long d3 = getLine64(3);
 
         // Invalidate
         invalidateDCacheImm(vaddr);
@@ -670,27 +814,36 @@ public class Mips3 {
         iCacheTags[ctidx] &= ~0x01000000;
     }
 
-    private void invalidateDCacheV(long vaddr) throws MipsBusErrorException {
+    private void invalidateDCacheV(long vaddr) {
         invalidateDCacheImm(vaddr);
     }
 
-    private void invalidateICacheVHitNoWB(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void invalidateICacheVHitNoWB(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (isInICache(vaddr, paddr)) {
             int ctidx = ((int) (vaddr >> 5)) & (ICACHE_SIZE_TAGS - 1);
             iCacheTags[ctidx] &= ~0x01000000;
         }
     }
 
-    private void invalidateDCacheVHit(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void invalidateDCacheVHit(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (isInDCache(vaddr, paddr)) {
             invalidateDCacheV(vaddr);
         }
     }
 
-    private void createDirtyExclusiveDCache(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void createDirtyExclusiveDCache(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (!isInDCache(vaddr, paddr)) {
             invalidateDCacheV(vaddr);
             this.dCacheTags[((int) vaddr >> 5) & (DCACHE_SIZE_TAGS - 1)]
@@ -698,16 +851,22 @@ public class Mips3 {
         }
     }
 
-    private void invalidateDCacheVHitNoWB(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void invalidateDCacheVHitNoWB(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (isInDCache(vaddr, paddr)) {
             int ctidx = ((int) (vaddr >> 5)) & (DCACHE_SIZE_TAGS - 1);
             dCacheTags[ctidx] &= ~0x01000000;
         }
     }
 
-    private void writeBackICacheVHit(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void writeBackICacheVHit(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (isInICache(vaddr, paddr)) {
             int ctidx = ((int) (vaddr >> 5)) & (ICACHE_SIZE_TAGS - 1);
             int cdidx = ctidx << 2;
@@ -729,16 +888,16 @@ public class Mips3 {
                 long d2 = w2a | (w2b << 32);
                 long d3 = w3a | (w3b << 32);
 
-                write64Imm(opaddr + 0, d0);
-                write64Imm(opaddr + 8, d1);
-                write64Imm(opaddr + 16, d2);
-                write64Imm(opaddr + 24, d3);
+                writeLineImm(opaddr, d0, d1, d2, d3);
             }
         }
     }
 
-    private void writeBackDCacheVHitDirty(long vaddr) throws MipsAddressErrorException, MipsTlbMissException, MipsBusErrorException {
+    private void writeBackDCacheVHitDirty(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
         if (isInDCache(vaddr, paddr)) {
             int ctidx = ((int) (vaddr >> 5)) & (DCACHE_SIZE_TAGS - 1);
             int cdidx = ctidx << 2;
@@ -752,10 +911,7 @@ public class Mips3 {
                 long d2 = dCacheData[cdidx + 2];
                 long d3 = dCacheData[cdidx + 3];
 
-                write64Imm(opaddr + 0, d0);
-                write64Imm(opaddr + 8, d1);
-                write64Imm(opaddr + 16, d2);
-                write64Imm(opaddr + 24, d3);
+                writeLineImm(opaddr, d0, d1, d2, d3);
 
                 dCacheTags[ctidx] &= ~0x10000000;
             }
@@ -765,14 +921,15 @@ public class Mips3 {
 
     // Situational reads and writes
 
-    private void fetchInstrLineImm(long vaddr, long paddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private void fetchInstrLineImm(long vaddr, long paddr) {
         // XXX: do we handle cache errors?
         // Fetch 8 words / 4 dwords
         long pbase = paddr & ~31;
-        long d0 = read64Imm(pbase + 0);
-        long d1 = read64Imm(pbase + 8);
-        long d2 = read64Imm(pbase + 16);
-        long d3 = read64Imm(pbase + 24);
+        readLineImm(pbase);
+        long d0 = getLine64(0);
+        long d1 = getLine64(1);
+        long d2 = getLine64(2);
+        long d3 = getLine64(3);
 
         // Set tag
         int ctidx = ((int) (vaddr >> 5)) & (ICACHE_SIZE_TAGS - 1);
@@ -791,26 +948,34 @@ public class Mips3 {
 
     }
 
-    private void fetchInstrLine(long vaddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private void fetchInstrLine(long vaddr) {
         // TLB fetch
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
 
         // Actually do the fetch
         fetchInstrLineImm(vaddr, paddr);
     }
 
-    private void fetchDCache(long vaddr, long paddr) throws MipsBusErrorException {
+    private void fetchDCache(long vaddr, long paddr) {
         // Check if cached
         if (isInDCache(vaddr, paddr)) {
+            this.dCacheHits++;
             return;
         }
 
         // Fetch it
+        this.dCacheMisses++;
         fetchDCacheImm(vaddr, paddr);
     }
 
-    private int readData8(long vaddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private int readData8(long vaddr) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return 0;
+        }
 
         if (((tlbRecentLo >> 3) & 3) == 2) {
             return read8Imm(paddr);
@@ -820,13 +985,17 @@ public class Mips3 {
         }
     }
 
-    private int readData16(long vaddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private int readData16(long vaddr) {
         // Ensure proper alignment
         if ((vaddr & 1) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return 0;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return 0;
+        }
 
         if (((tlbRecentLo >> 3) & 3) == 2) {
             return read16Imm(paddr);
@@ -836,13 +1005,17 @@ public class Mips3 {
         }
     }
 
-    private int readData32(long vaddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private int readData32(long vaddr) {
         // Ensure proper alignment
         if ((vaddr & 3) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return 0;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return 0;
+        }
 
         if (((tlbRecentLo >> 3) & 3) == 2) {
             return read32Imm(paddr);
@@ -852,13 +1025,17 @@ public class Mips3 {
         }
     }
 
-    private long readData64(long vaddr) throws MipsAddressErrorException, MipsBusErrorException, MipsTlbMissException {
+    private long readData64(long vaddr) {
         // Ensure proper alignment
         if ((vaddr & 7) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return 0;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return 0;
+        }
 
         if (((tlbRecentLo >> 3) & 3) == 2) {
             return read64Imm(paddr);
@@ -868,14 +1045,18 @@ public class Mips3 {
         }
     }
 
-    private void writeData8(long vaddr, int data) throws MipsAddressErrorException, MipsTlbMissException, MipsTlbModException, MipsBusErrorException {
+    private void writeData8(long vaddr, int data) {
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
 
         // Check dirty (writeable) bit
         if ((tlbRecentLo & 4) == 0) {
             // PERMISSION DENIED
             this.c0regs[C0_BADVADDR] = vaddr;
-            throw new MipsTlbModException();
+            this.memoryError = MEMORY_TLB_MOD;
+            return;
         }
 
         // Fetch dcache if write-allocate
@@ -906,19 +1087,24 @@ public class Mips3 {
         }
     }
 
-    private void writeData16(long vaddr, int data) throws MipsAddressErrorException, MipsTlbMissException, MipsTlbModException, MipsBusErrorException {
+    private void writeData16(long vaddr, int data) {
         // Ensure proper alignment
         if ((vaddr & 1) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
 
         // Check dirty (writeable) bit
         if ((tlbRecentLo & 4) == 0) {
             // PERMISSION DENIED
             this.c0regs[C0_BADVADDR] = vaddr;
-            throw new MipsTlbModException();
+            this.memoryError = MEMORY_TLB_MOD;
+            return;
         }
 
         // Fetch dcache if write-allocate
@@ -949,19 +1135,24 @@ public class Mips3 {
         }
     }
 
-    private void writeData32(long vaddr, int data) throws MipsAddressErrorException, MipsTlbMissException, MipsTlbModException, MipsBusErrorException {
+    private void writeData32(long vaddr, int data) {
         // Ensure proper alignment
         if ((vaddr & 3) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
 
         // Check dirty (writeable) bit
         if ((tlbRecentLo & 4) == 0) {
             // PERMISSION DENIED
             this.c0regs[C0_BADVADDR] = vaddr;
-            throw new MipsTlbModException();
+            this.memoryError = MEMORY_TLB_MOD;
+            return;
         }
 
         // Fetch dcache if write-allocate
@@ -991,19 +1182,24 @@ public class Mips3 {
         }
     }
 
-    private void writeData64(long vaddr, long data) throws MipsAddressErrorException, MipsTlbMissException, MipsTlbModException, MipsBusErrorException {
+    private void writeData64(long vaddr, long data) {
         // Ensure proper alignment
         if ((vaddr & 7) != 0) {
-            throw new MipsAddressErrorException();
+            this.memoryError = MEMORY_ADDRESS_ERROR;
+            return;
         }
 
         long paddr = virtToPhys64(vaddr);
+        if (this.memoryError != MEMORY_OK) {
+            return;
+        }
 
         // Check dirty (writeable) bit
         if ((tlbRecentLo & 4) == 0) {
             // PERMISSION DENIED
             this.c0regs[C0_BADVADDR] = vaddr;
-            throw new MipsTlbModException();
+            this.memoryError = MEMORY_TLB_MOD;
+            return;
         }
 
         // Fetch dcache if write-allocate
@@ -1094,12 +1290,8 @@ public class Mips3 {
         this.cycleBudget -= 1;
         // omitted for speed
         /*
-        try {
-            readInstr(this.pcNext);
-        } catch (MipsAddressErrorException e) {
-        } catch (MipsBusErrorException e) {
-        } catch (MipsTlbMissException e) {
-        }
+        readInstr(this.pcNext);
+        this.memoryError = MEMORY_OK;
         */
         this.pcBranchDelay = false;
         this.pcNext = this.pcAfter;
@@ -1118,75 +1310,95 @@ public class Mips3 {
         }
     }
 
+    // Interrupts
+
+    private void checkInterrupts() {
+        // Only latch new interrupts while they can be taken (IE set, EXL and ERL clear)
+        int sr = (int) this.c0regs[C0_STATUS];
+        if ((sr & 7) != 1) {
+            return;
+        }
+
+        int lines = interrupts.takeLines();
+        this.c0regs[C0_CAUSE] |= (long) ((lines & 0x3F) << 10);
+
+        // Check against interrupt mask
+        int taken = ((int) this.c0regs[C0_CAUSE]) & sr & 0xFF00;
+        if (taken != 0) {
+            this.takenInterrupts = taken & 0xFC00;
+            this.cycleBudget -= 1;
+            fault(MFault.Int, this.pc, this.pcBranchDelay);
+            this.pc = this.pcNext;
+            this.pcNext = this.pcAfter;
+            this.pcAfter += 4;
+        }
+    }
+
     // Main run-op loop
 
     private void runOps() {
+        // Take interrupts between ops
+        if (interrupts.isPending() || (this.c0regs[C0_CAUSE] & 0xFF00) != 0) {
+            checkInterrupts();
+        }
+
         // Fetch op (IC)
         boolean ex_bd = this.pcBranchDelay;
         long ex_pc = this.pc;
 
-        try {
-
-            // TLB fetch!
-            long paddr = virtToPhys64(ex_pc);
+        // TLB fetch!
+        long paddr = virtToPhys64(ex_pc);
+        if (this.memoryError != MEMORY_OK) {
+            faultFetch(ex_pc, ex_bd);
+            return;
+        }
 
-            // Check if cacheable
-            if (((tlbRecentLo >> 3) & 3) == 2) {
-                // Uncacheable
-                this.cycleBudget -= 1;
-                int ex_op = read32Imm(paddr);
+        // Check if cacheable
+        if (((tlbRecentLo >> 3) & 3) == 2) {
+            // Uncacheable
+            this.cycleBudget -= 1;
+            this.instructionsRetired++;
+            int ex_op = read32Imm(paddr);
 
-                // Clear next status
-                this.pcBranchDelay = false;
+            // Clear next status
+            this.pcBranchDelay = false;
 
-                // Execute op
-                runFetchedOp(ex_pc, ex_op, ex_bd);
+            // Execute op
+            runFetchedOp(ex_pc, ex_op, ex_bd);
 
+        } else {
+            // Check if cached (VIPT cache)
+            int ctidx = ((int) (ex_pc >> 5)) & (ICACHE_SIZE_TAGS - 1);
+            int tag = iCacheTags[ctidx];
+            int vaddr_base = ((int) ex_pc) & ~(ICACHE_LINE_SIZE_BYTES - 1);
+            if ((tag & (1 << 24)) == 0 || (tag & 0x00FFFFFF) != (int) (paddr >> 12)) {
+                // It's not. Fetch!
+                this.iCacheMisses++;
+                fetchInstrLineImm(vaddr_base, paddr & ~(ICACHE_LINE_SIZE_BYTES - 1));
             } else {
-                // Check if cached (VIPT cache)
-                int ctidx = ((int) (ex_pc >> 5)) & (ICACHE_SIZE_TAGS - 1);
-                int tag = iCacheTags[ctidx];
-                int vaddr_base = ((int) ex_pc) & ~(ICACHE_LINE_SIZE_BYTES - 1);
-                if ((tag & (1 << 24)) == 0 || (tag & 0x00FFFFFF) != (int) (paddr >> 12)) {
-                    // It's not. Fetch!
-                    fetchInstrLineImm(vaddr_base, paddr & ~(ICACHE_LINE_SIZE_BYTES - 1));
-                }
+                this.iCacheHits++;
+            }
 
-                // Loop through cache
-                while (this.cycleBudget > 0 && ((ex_pc ^ vaddr_base) >> ICACHE_LINE_SHIFT) == 0) {
-                    this.cycleBudget -= 1;
-                    this.pcBranchDelay = false;
-                    int ex_op = iCacheData[(((int) ex_pc) >> 2) & (ICACHE_SIZE_WORDS - 1)];
-                    runFetchedOp(ex_pc, ex_op, ex_bd);
-                    ex_pc = this.pc;
-                    ex_bd = this.pcBranchDelay;
+            // Loop through cache
+            while (this.cycleBudget > 0 && ((ex_pc ^ vaddr_base) >> ICACHE_LINE_SHIFT) == 0) {
+                this.cycleBudget -= 1;
+                this.instructionsRetired++;
+                this.pcBranchDelay = false;
+                int ex_op = iCacheData[(((int) ex_pc) >> 2) & (ICACHE_SIZE_WORDS - 1)];
+                if (!runFetchedOp(ex_pc, ex_op, ex_bd)) {
+                    break;
                 }
+                ex_pc = this.pc;
+                ex_bd = this.pcBranchDelay;
             }
-        } catch (MipsTlbMissException e) {
-            fault(MFault.TLBL, ex_pc, ex_bd);
-            this.pc = this.pcNext;
-            this.pcNext = this.pcAfter;
-            this.pcAfter += 4;
-        } catch (MipsAddressErrorException e) {
-            fault(MFault.AdEL, ex_pc, ex_bd);
-            this.pc = this.pcNext;
-            this.pcNext = this.pcAfter;
-            this.pcAfter += 4;
-        } catch (MipsBusErrorException e) {
-            fault(MFault.IBE, ex_pc, ex_bd);
-            this.pc = this.pcNext;
-            this.pcNext = this.pcAfter;
-            this.pcAfter += 4;
-        } catch (MipsCacheFlushException e) {
-            // Don't fault, but make sure you kill the op
-            this.pc = this.pcNext;
-            this.pcNext = this.pcAfter;
-            this.pcAfter += 4;
         }
     }
 
-    private void runFetchedOp(long ex_pc, int ex_op, boolean ex_bd) throws MipsCacheFlushException {
+    // Returns false if the op touched the caches, in which case
+    // the rest of the I-cache line must not be run without refetching it
+    private boolean runFetchedOp(long ex_pc, int ex_op, boolean ex_bd) {
         long wb_result;
+        boolean cacheFlushed = false;
 
         // Execute op (RF/EX)
         // immu == ex_op&0xFFFF
@@ -2070,6 +2282,12 @@ public class Mips3 {
 
                                 updateC0Status(this.c0regs[C0_STATUS]);
 
+                                // Acknowledge the hardware interrupts we took
+                                // (devices only ever raise them, so this is our cue),
+                                // lines still masked by IM stay latched
+                                this.c0regs[C0_CAUSE] &= ~this.takenInterrupts;
+                                this.takenInterrupts = 0;
+
                                 // TODO: clear LLbit (in other words, make any active LL/SC fail)
 
                                 // cancel next op
@@ -2165,76 +2383,70 @@ public class Mips3 {
                 // Load primary
 
                 case 32: // LB
-                    try {
-                        this.regs[rt] = (long) readData8(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = (long) readData8(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 case 33: // LH
-                    try {
-                        this.regs[rt] = (long) readData16(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = (long) readData16(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 case 35: // LW
-                    try {
-                        this.regs[rt] = (long) readData32(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = (long) readData32(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 case 36: // LBU
-                    try {
-                        this.regs[rt] = 0xFFL & (long) readData8(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = 0xFFL & (long) readData8(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 case 37: // LHU
-                    try {
-                        this.regs[rt] = 0xFFFFL & (long) readData16(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = 0xFFFFL & (long) readData16(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 case 39: // LWU
-                    try {
-                        this.regs[rt] = 0xFFFFFFFFL & (long) readData32(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = 0xFFFFFFFFL & (long) readData32(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 // Load unaligned - TODO
                 // case 34: // LWL break;
@@ -2245,44 +2457,23 @@ public class Mips3 {
                 // Store primary
 
                 case 40: // SB
-                    try {
-                        writeData8(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
-                    } catch (MipsTlbModException e) {
-                        fault(MFault.Mod, ex_pc, ex_bd);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBS, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdES, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                    writeData8(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultStore(ex_pc, ex_bd);
                     }
                     break;
 
                 case 41: // SH
-                    try {
-                        writeData16(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
-                    } catch (MipsTlbModException e) {
-                        fault(MFault.Mod, ex_pc, ex_bd);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBS, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdES, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                    writeData16(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultStore(ex_pc, ex_bd);
                     }
                     break;
 
                 case 43: // SW
-                    try {
-                        writeData32(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
-                    } catch (MipsTlbModException e) {
-                        fault(MFault.Mod, ex_pc, ex_bd);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBS, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdES, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                    writeData32(this.regs[rs] + (long) (short) ex_op, (int) this.regs[rt]);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultStore(ex_pc, ex_bd);
                     }
                     break;
 
@@ -2308,11 +2499,8 @@ public class Mips3 {
                                 invalidateICacheV(vaddr);
                                 break;
                             case 1: // Index Write-Back Invalidate [D]
-                                try {
-                                    invalidateDCacheV(vaddr);
-                                } catch (MipsBusErrorException e) {
-                                    // TODO: cache fault
-                                }
+                                // TODO: cache fault
+                                invalidateDCacheV(vaddr);
                                 break;
 
                             case 4: // Index Load Tag [I]
@@ -2363,63 +2551,28 @@ public class Mips3 {
                             break;
 
                             case 13: // Create Dirty Exclusive [D]
-                                try {
-                                    createDirtyExclusiveDCache(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                createDirtyExclusiveDCache(vaddr);
 
                             case 16: // Hit Invalidate [I]
-                                try {
-                                    invalidateICacheVHitNoWB(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                invalidateICacheVHitNoWB(vaddr);
                                 break;
                             case 17: // Hit Invalidate [D]
-                                try {
-                                    invalidateDCacheVHitNoWB(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                invalidateDCacheVHitNoWB(vaddr);
                                 break;
 
                             case 20: // Fill [I]
-                                try {
-                                    fetchInstrLine(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                fetchInstrLine(vaddr);
                                 break;
 
                             case 21: // Hit Write-Back Invalidate [D]
-                                try {
-                                    invalidateDCacheVHit(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                invalidateDCacheVHit(vaddr);
                                 break;
 
                             case 24: // Hit Write-Back [I] -- unconditional writeback from icache
-                                try {
-                                    writeBackICacheVHit(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                writeBackICacheVHit(vaddr);
                                 break;
                             case 25: // Hit Write-Back [D]
-                                try {
-                                    writeBackDCacheVHitDirty(vaddr);
-                                } catch (MipsAddressErrorException e) {
-                                } catch (MipsTlbMissException e) {
-                                } catch (MipsBusErrorException e) {
-                                }
+                                writeBackDCacheVHitDirty(vaddr);
                                 break;
 
                             default:
@@ -2428,8 +2581,11 @@ public class Mips3 {
                                 break;
                         }
 
-                        // For safety, throw an exception
-                        throw new MipsCacheFlushException();
+                        // Faults in cache ops are ignored
+                        this.memoryError = MEMORY_OK;
+
+                        // For safety, stop running from the I-cache line
+                        cacheFlushed = true;
 
                     }
                     break;
@@ -2441,16 +2597,15 @@ public class Mips3 {
                         fault(MFault.RI, ex_pc, ex_bd);
                         break;
                     }
-                    try {
-                        this.regs[rt] = readData64(this.regs[rs] + (long) (short) ex_op);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBL, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdEL, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                {
+                    long value = readData64(this.regs[rs] + (long) (short) ex_op);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultLoad(ex_pc, ex_bd);
+                    } else {
+                        this.regs[rt] = value;
                     }
-                    break;
+                }
+                break;
 
                 // Store fancy
 
@@ -2459,16 +2614,9 @@ public class Mips3 {
                         fault(MFault.RI, ex_pc, ex_bd);
                         break;
                     }
-                    try {
-                        writeData64(this.regs[rs] + (long) (short) ex_op, this.regs[rt]);
-                    } catch (MipsTlbModException e) {
-                        fault(MFault.Mod, ex_pc, ex_bd);
-                    } catch (MipsTlbMissException e) {
-                        fault(MFault.TLBS, ex_pc, ex_bd);
-                    } catch (MipsAddressErrorException e) {
-                        fault(MFault.AdES, ex_pc, ex_bd);
-                    } catch (MipsBusErrorException e) {
-                        fault(MFault.DBE, ex_pc, ex_bd);
+                    writeData64(this.regs[rs] + (long) (short) ex_op, this.regs[rt]);
+                    if (this.memoryError != MEMORY_OK) {
+                        faultStore(ex_pc, ex_bd);
                     }
                     break;
 
@@ -2498,6 +2646,8 @@ public class Mips3 {
             this.fault_type = MFault.NONE; // prevent the next instr from firing here
         }
         */
+
+        return !cacheFlushed;
     }
 
     // API requirements
@@ -2522,11 +2672,15 @@ public class Mips3 {
             for (int i = 0; i < DCACHE_SIZE_TAGS; i++) {
                 this.dCacheTags[i] = 0;
             }
+            flushMicroTlb();
 
             this.c0regs[C0_STATUS] = (long) (int) 0x040000E0;
             this.c0regs[C0_CAUSE] = (long) (int) 0x00000000;
             this.c0regs[C0_CONFIG] = (long) (int) 0x1002649B;
 
+            interrupts.clear();
+            this.takenInterrupts = 0;
+
             // However, this DOES happen during a reset!
             this.c0regs[C0_STATUS] |= (long) (int) 0x00400004;
             this.c0regs[C0_RANDOM] = TLB_COUNT - 1;
@@ -2541,31 +2695,26 @@ public class Mips3 {
     }
 
     public void irq(final int interrupt) {
-        synchronized (lock) {
-            // TODO!
-        }
+        // Lock-free, picked up between ops in runOps()
+        interrupts.raise(interrupt);
     }
 
     public void run(final int cycles) {
         synchronized (lock) {
             this.cycleBudget += cycles;
 
-            long timeBeg = System.currentTimeMillis();
+            long timeBeg = System.nanoTime();
             while (this.cycleBudget > 0) {
                 //System.out.printf("PC = %016X / v0 = %016X\n", this.pc, this.regs[2]);
                 runOps();
             }
-            long timeEnd = System.currentTimeMillis();
-            if (true) {
-                benchAccum += (timeEnd - timeBeg);
-                benchTicksLeft--;
-                if (benchTicksLeft <= 0) {
-                    double cpuLoad = benchAccum / 1000.0;
-                    System.out.printf("[LOAD: %5.3f]\n", cpuLoad);
-                    benchAccum = 0;
-                    benchTicksLeft = 20;
-                }
-            }
+            long timeEnd = System.nanoTime();
+
+            metrics.publish(instructionsRetired, iCacheHits, iCacheMisses, dCacheHits, dCacheMisses, tlbMisses, faults, timeEnd - timeBeg);
         }
     }
+
+    public Mips3Metrics getMetrics() {
+        return metrics;
+    }
 }
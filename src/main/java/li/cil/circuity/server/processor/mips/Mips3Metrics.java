@@ -0,0 +1,156 @@
+package li.cil.circuity.server.processor.mips;
+
+import li.cil.circuity.server.processor.ProcessorMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of a single {@link Mips3}, accumulated over its lifetime.
+ * <p>
+ * The processor counts in plain fields while running, and publishes the
+ * totals here at the end of each slice, i.e. call to {@link Mips3#run(int)},
+ * so reading these from other threads does not slow down emulation.
+ * <p>
+ * Cache hit rates are per lookup: for the instruction cache one lookup per
+ * cache line entered, for the data cache one per cached load or allocating
+ * store.
+ */
+public final class Mips3Metrics implements Mips3MetricsMXBean, ProcessorMetrics {
+    private static final Mips3.MFault[] FAULTS = Mips3.MFault.values();
+
+    // --------------------------------------------------------------------- //
+
+    private volatile long instructionsRetired;
+    private volatile long iCacheHits;
+    private volatile long iCacheMisses;
+    private volatile long dCacheHits;
+    private volatile long dCacheMisses;
+    private volatile long tlbMisses;
+    private final AtomicLongArray faults = new AtomicLongArray(FAULTS.length);
+
+    private volatile long slices;
+    private volatile long lastSliceNanos;
+    private volatile long totalSliceNanos;
+
+    // --------------------------------------------------------------------- //
+
+    void publish(final long instructionsRetired, final long iCacheHits, final long iCacheMisses, final long dCacheHits, final long dCacheMisses, final long tlbMisses, final long[] faults, final long sliceNanos) {
+        this.instructionsRetired = instructionsRetired;
+        this.iCacheHits = iCacheHits;
+        this.iCacheMisses = iCacheMisses;
+        this.dCacheHits = dCacheHits;
+        this.dCacheMisses = dCacheMisses;
+        this.tlbMisses = tlbMisses;
+        for (int i = 0; i < FAULTS.length; i++) {
+            this.faults.lazySet(i, faults[i]);
+        }
+        this.lastSliceNanos = sliceNanos;
+        this.totalSliceNanos += sliceNanos;
+        this.slices++;
+    }
+
+    // --------------------------------------------------------------------- //
+    // Mips3MetricsMXBean
+
+    /**
+     * Number of instructions executed, including ones that faulted.
+     */
+    @Override
+    public long getInstructionsRetired() {
+        return instructionsRetired;
+    }
+
+    @Override
+    public long getICacheHits() {
+        return iCacheHits;
+    }
+
+    @Override
+    public long getICacheMisses() {
+        return iCacheMisses;
+    }
+
+    @Override
+    public double getICacheHitRate() {
+        return getHitRate(iCacheHits, iCacheMisses);
+    }
+
+    @Override
+    public long getDCacheHits() {
+        return dCacheHits;
+    }
+
+    @Override
+    public long getDCacheMisses() {
+        return dCacheMisses;
+    }
+
+    @Override
+    public double getDCacheHitRate() {
+        return getHitRate(dCacheHits, dCacheMisses);
+    }
+
+    @Override
+    public long getTlbMisses() {
+        return tlbMisses;
+    }
+
+    /**
+     * Number of faults raised, by fault type, omitting types that were never
+     * raised.
+     */
+    @Override
+    public Map<String, Long> getFaults() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < FAULTS.length; i++) {
+            final long count = faults.get(i);
+            if (count > 0) {
+                result.put(FAULTS[i].name(), count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getSlices() {
+        return slices;
+    }
+
+    @Override
+    public long getLastSliceNanos() {
+        return lastSliceNanos;
+    }
+
+    @Override
+    public long getAverageSliceNanos() {
+        final long count = slices;
+        return count > 0 ? totalSliceNanos / count : 0;
+    }
+
+    // --------------------------------------------------------------------- //
+    // ProcessorMetrics
+
+    @Override
+    public String getSummary() {
+        long faultCount = 0;
+        for (int i = 0; i < FAULTS.length; i++) {
+            faultCount += faults.get(i);
+        }
+        return String.format("%d instructions, I$ %.1f%%, D$ %.1f%%, %d TLB misses, %d faults, %.2f ms/slice",
+                instructionsRetired,
+                getICacheHitRate() * 100,
+                getDCacheHitRate() * 100,
+                tlbMisses,
+                faultCount,
+                getAverageSliceNanos() / 1_000_000f);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static double getHitRate(final long hits, final long misses) {
+        final long lookups = hits + misses;
+        return lookups > 0 ? hits / (double) lookups : 0;
+    }
+}
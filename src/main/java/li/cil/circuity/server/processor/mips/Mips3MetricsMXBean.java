@@ -0,0 +1,32 @@
+package li.cil.circuity.server.processor.mips;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link Mips3Metrics} of a single processor.
+ */
+public interface Mips3MetricsMXBean {
+    long getInstructionsRetired();
+
+    long getICacheHits();
+
+    long getICacheMisses();
+
+    double getICacheHitRate();
+
+    long getDCacheHits();
+
+    long getDCacheMisses();
+
+    double getDCacheHitRate();
+
+    long getTlbMisses();
+
+    Map<String, Long> getFaults();
+
+    long getSlices();
+
+    long getLastSliceNanos();
+
+    long getAverageSliceNanos();
+}
@@ -1,11 +1,10 @@
 package li.cil.circuity.server.processor.z80;
 
 import li.cil.circuity.server.processor.BusAccess;
+import li.cil.circuity.server.processor.PendingInterrupts;
 import li.cil.lib.api.serialization.Serializable;
 import li.cil.lib.api.serialization.Serialize;
 
-import java.lang.reflect.Array;
-
 // http://www.zilog.com/manage_directlink.php?filepath=docs/z80/um0080
 // Opcode decoding based on http://www.z80.info/decoding.htm
 // Flag computation based on https://github.com/anotherlin/z80emu/
@@ -34,6 +33,34 @@ public final class Z80 {
 
     // --------------------------------------------------------------------- //
 
+    /**
+     * Index of the non-maskable interrupt line in {@link #interrupts}.
+     */
+    private static final int LINE_NMI = 0;
+
+    // --------------------------------------------------------------------- //
+    // Index register selection for DD and FD prefixed opcodes.
+
+    private static final int INDEX_HL = 0;
+    private static final int INDEX_IX = 1;
+    private static final int INDEX_IY = 2;
+
+    // --------------------------------------------------------------------- //
+    // Block instruction repetition.
+
+    /**
+     * Cycles spent re-fetching a repeating block instruction, i.e. fetching
+     * the ED prefix in {@link #run(int)} and the opcode in {@link #executeED()}.
+     */
+    private static final int BLOCK_REFETCH_CYCLES = 8;
+
+    /**
+     * Cycles of one non-final LDIR/LDDR iteration, including the re-fetch.
+     */
+    private static final int LDXR_ITERATION_CYCLES = 13 + BLOCK_REFETCH_CYCLES;
+
+    // --------------------------------------------------------------------- //
+
     /**
      * Current CPU status.
      * <p>
@@ -73,6 +100,11 @@ public final class Z80 {
     private final BusAccess memory;
     private final BusAccess io;
 
+    /**
+     * Interrupts raised by devices, processed between two operations.
+     */
+    private final PendingInterrupts interrupts = new PendingInterrupts();
+
     // --------------------------------------------------------------------- //
 
     protected final Object lock = new Object();
@@ -81,15 +113,6 @@ public final class Z80 {
         this.memory = memory;
         this.io = io;
 
-        for (int i = 0; i < res.length; i++) {
-            final int y = i;
-            res[i] = (byte v) -> res(y, v);
-        }
-        for (int i = 0; i < set.length; i++) {
-            final int y = i;
-            set[i] = (byte v) -> set(y, v);
-        }
-
         reset(0);
     }
 
@@ -114,6 +137,7 @@ public final class Z80 {
             IFF1 = IFF2 = false;
             IM = InterruptMode.MODE_0;
             cycleBudget = 0;
+            interrupts.clear();
         }
     }
 
@@ -127,6 +151,9 @@ public final class Z80 {
      */
     public boolean run(final int cycles) {
         synchronized (lock) {
+            if (interrupts.isPending()) {
+                processInterrupts();
+            }
             // Don't allow saving up cycles.
             if (status == Status.HALTED) {
                 return false;
@@ -136,6 +163,9 @@ public final class Z80 {
                 if (cycleBudget <= 0) {
                     return true;
                 }
+                if (interrupts.isPending()) {
+                    processInterrupts();
+                }
                 R = (byte) ((R & 0b10000000) | ((R + 1) & 0b01111111));
                 final byte opcode = read8();
                 cycleBudget -= 1;
@@ -147,83 +177,116 @@ public final class Z80 {
         }
     }
 
+    /**
+     * Whether the CPU is halted and no interrupt that would wake it up is
+     * pending, i.e. whether {@link #run(int)} would not do anything.
+     *
+     * @return <code>true</code> if the CPU is idle; <code>false</code> otherwise.
+     */
+    public boolean isIdle() {
+        synchronized (lock) {
+            return status == Status.HALTED && !hasAcceptableInterrupt();
+        }
+    }
+
     /**
      * Request interrupt given the specified data.
      * <p>
-     * If interrupts are currently enabled and the CPU is not currently in the
-     * process of parsing a prefixed opcode, this will immediately process the
-     * interrupt (i.e. push the current PC and adjust the PC based on the
-     * current interrupt mode and specified data).
+     * The request is queued and processed between two operations, as soon as
+     * interrupts are enabled and the CPU is not currently in the process of
+     * parsing a prefixed opcode. Processing the interrupt means pushing the
+     * current PC and adjusting the PC based on the current interrupt mode and
+     * specified data.
      * <p>
      * This method is threadsafe. It is legal to call this from any thread at
-     * any time. Internal locking ensures this will be processed between two
-     * operations.
+     * any time. It does not block, in particular not while the CPU is running.
      *
      * @param data the data for the interrupt.
-     * @return <code>true</code> if the interrupt was successful; <code>false</code> otherwise.
+     * @return <code>true</code> if the interrupt was queued; <code>false</code> if too many interrupts are pending.
      */
     public boolean irq(final byte data) {
-        synchronized (lock) {
-            if (!IFF1 || !status.allowInterrupts) {
-                return false;
-            }
-            status = Status.RUNNING;
-
-            IFF1 = IFF2 = false;
-            R = (byte) ((R & 0b1000000) | ((R + 1) & 0b01111111));
-            switch (IM) {
-                case MODE_0:
-                    execute(data);
-                    cycleBudget -= 2;
-                    break;
-                case MODE_1:
-                    push(PC);
-                    PC = 0x0038;
-                    cycleBudget -= 7;
-                    break;
-                case MODE_2: {
-                    push(PC);
-                    final int h = (I & 0xFF) << 8;
-                    final int l = data & 0xFE;
-                    PC = (short) (h | l);
-                    cycleBudget -= 13;
-                    break;
-                }
-                default:
-                    throw new IllegalStateException();
-            }
-        }
-        return true;
+        return interrupts.request(data);
     }
 
     /**
      * Perform an non-maskable interrupt.
      * <p>
-     * This will immediately process the interrupt (i.e. push the current PC
-     * and adjust the PC to the NMI address <code>0x0066</code>).
+     * The interrupt is processed between two operations, as soon as the CPU
+     * is not in the process of parsing a prefixed opcode. Processing the
+     * interrupt means pushing the current PC and adjusting the PC to the NMI
+     * address <code>0x0066</code>.
      * <p>
      * This method is threadsafe. It is legal to call this from any thread at
-     * any time. Internal locking ensures this will be processed between two
-     * operations.
+     * any time. It does not block, in particular not while the CPU is running.
      */
     public void nmi() {
-        synchronized (lock) {
-            if (!status.allowInterrupts) {
-                return;
-            }
-            status = Status.RUNNING;
+        interrupts.raise(LINE_NMI);
+    }
 
-//            IFF2 = IFF1;
-            IFF1 = false;
-            R = (byte) ((R & 0b1000000) | ((R + 1) & 0b01111111));
+    // --------------------------------------------------------------------- //
 
-            push(PC);
-            PC = 0x0066;
+    /**
+     * Whether an interrupt would be accepted before the next operation, i.e.
+     * an NMI is pending or a maskable interrupt is requested while interrupts
+     * are enabled. Requests queued while interrupts are disabled do not count.
+     */
+    private boolean hasAcceptableInterrupt() {
+        return (interrupts.getLines() & (1 << LINE_NMI)) != 0 ||
+                (IFF1 && interrupts.hasRequest());
+    }
 
-            cycleBudget -= 11;
+    private void processInterrupts() {
+        if (!status.allowInterrupts) {
+            return;
+        }
+        if (interrupts.take(LINE_NMI)) {
+            processNmi();
+        } else if (IFF1 && interrupts.hasRequest()) {
+            processIrq((byte) interrupts.takeRequest());
+        }
+    }
+
+    private void processIrq(final byte data) {
+        status = Status.RUNNING;
+
+        IFF1 = IFF2 = false;
+        R = (byte) ((R & 0b1000000) | ((R + 1) & 0b01111111));
+        switch (IM) {
+            case MODE_0:
+                execute(data);
+                cycleBudget -= 2;
+                break;
+            case MODE_1:
+                push(PC);
+                PC = 0x0038;
+                cycleBudget -= 7;
+                break;
+            case MODE_2: {
+                push(PC);
+                final int h = (I & 0xFF) << 8;
+                final int l = data & 0xFE;
+                PC = (short) (h | l);
+                cycleBudget -= 13;
+                break;
+            }
+            default:
+                throw new IllegalStateException();
         }
     }
 
+    private void processNmi() {
+        status = Status.RUNNING;
+
+//        IFF2 = IFF1;
+        IFF1 = false;
+        R = (byte) ((R & 0b1000000) | ((R + 1) & 0b01111111));
+
+        push(PC);
+        PC = 0x0066;
+
+        cycleBudget -= 11;
+    }
+
     // --------------------------------------------------------------------- //
 
     // 8-bit register accessors.
@@ -232,134 +295,46 @@ public final class Z80 {
         return B;
     }
 
-    private void B(final ReadAccess8 value) {
-        B = value.apply();
-    }
-
-    private void B(final Transform transform) {
-        B = transform.apply(B);
-    }
-
     public byte C() {
         return C;
     }
 
-    private void C(final ReadAccess8 value) {
-        C = value.apply();
-    }
-
-    private void C(final Transform transform) {
-        C = transform.apply(C);
-    }
-
     public byte D() {
         return D;
     }
 
-    private void D(final ReadAccess8 value) {
-        D = value.apply();
-    }
-
-    private void D(final Transform transform) {
-        D = transform.apply(D);
-    }
-
     public byte E() {
         return E;
     }
 
-    private void E(final ReadAccess8 value) {
-        E = value.apply();
-    }
-
-    private void E(final Transform transform) {
-        E = transform.apply(E);
-    }
-
     public byte H() {
         return H;
     }
 
-    private void H(final ReadAccess8 value) {
-        H = value.apply();
-    }
-
-    private void H(final Transform transform) {
-        H = transform.apply(H);
-    }
-
     public byte L() {
         return L;
     }
 
-    private void L(final ReadAccess8 value) {
-        L = value.apply();
-    }
-
-    private void L(final Transform transform) {
-        L = transform.apply(L);
-    }
-
     public byte A() {
         return A;
     }
 
-    private void A(final ReadAccess8 value) {
-        A = value.apply();
-    }
-
-    private void A(final Transform transform) {
-        A = transform.apply(A);
-    }
-
     public byte IXH() {
         return IXH;
     }
 
-    private void IXH(final ReadAccess8 value) {
-        IXH = value.apply();
-    }
-
-    private void IXH(final Transform transform) {
-        IXH = transform.apply(IXH);
-    }
-
     public byte IXL() {
         return IXL;
     }
 
-    private void IXL(final ReadAccess8 value) {
-        IXL = value.apply();
-    }
-
-    private void IXL(final Transform transform) {
-        IXL = transform.apply(IXL);
-    }
-
     public byte IYH() {
         return IYH;
     }
 
-    private void IYH(final ReadAccess8 value) {
-        IYH = value.apply();
-    }
-
-    private void IYH(final Transform transform) {
-        IYH = transform.apply(IYH);
-    }
-
     public byte IYL() {
         return IYL;
     }
 
-    private void IYL(final ReadAccess8 value) {
-        IYL = value.apply();
-    }
-
-    private void IYL(final Transform transform) {
-        IYL = transform.apply(IYL);
-    }
-
     // 16-bit register accessors.
 
     public short BC() {
@@ -420,8 +395,133 @@ public final class Z80 {
         return SP;
     }
 
-    private void SP(final short value) {
-        SP = value;
+    // Index register accessors, selecting HL, IX or IY.
+
+    private short indexRegister(final int index) {
+        switch (index) {
+            case INDEX_IX:
+                return IX();
+            case INDEX_IY:
+                return IY();
+            default:
+                return HL();
+        }
+    }
+
+    private void indexRegister(final int index, final short value) {
+        switch (index) {
+            case INDEX_IX:
+                IX(value);
+                break;
+            case INDEX_IY:
+                IY(value);
+                break;
+            default:
+                HL(value);
+                break;
+        }
+    }
+
+    private byte indexHigh(final int index) {
+        switch (index) {
+            case INDEX_IX:
+                return IXH;
+            case INDEX_IY:
+                return IYH;
+            default:
+                return H;
+        }
+    }
+
+    private void indexHigh(final int index, final byte value) {
+        switch (index) {
+            case INDEX_IX:
+                IXH = value;
+                break;
+            case INDEX_IY:
+                IYH = value;
+                break;
+            default:
+                H = value;
+                break;
+        }
+    }
+
+    private byte indexLow(final int index) {
+        switch (index) {
+            case INDEX_IX:
+                return IXL;
+            case INDEX_IY:
+                return IYL;
+            default:
+                return L;
+        }
+    }
+
+    private void indexLow(final int index, final byte value) {
+        switch (index) {
+            case INDEX_IX:
+                IXL = value;
+                break;
+            case INDEX_IY:
+                IYL = value;
+                break;
+            default:
+                L = value;
+                break;
+        }
+    }
+
+    // Register access by the index used in opcodes, r[z] in the decoding
+    // documentation, excluding the memory operand (HL) at index 6.
+
+    private byte register8(final int r, final int index) {
+        switch (r) {
+            case 0:
+                return B;
+            case 1:
+                return C;
+            case 2:
+                return D;
+            case 3:
+                return E;
+            case 4:
+                return indexHigh(index);
+            case 5:
+                return indexLow(index);
+            case 7:
+                return A;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void register8(final int r, final int index, final byte value) {
+        switch (r) {
+            case 0:
+                B = value;
+                break;
+            case 1:
+                C = value;
+                break;
+            case 2:
+                D = value;
+                break;
+            case 3:
+                E = value;
+                break;
+            case 4:
+                indexHigh(index, value);
+                break;
+            case 5:
+                indexLow(index, value);
+                break;
+            case 7:
+                A = value;
+                break;
+            default:
+                throw new IllegalStateException();
+        }
     }
 
     // Flags accessors.
@@ -505,90 +605,47 @@ public final class Z80 {
         return peek8(HL());
     }
 
-    private void pokeHL(final ReadAccess8 value) {
-        poke8(HL(), value.apply());
-    }
-
-    private void indirectHL(final Transform transform) {
-        final short hl = HL();
-        cycleBudget -= 1;
-        poke8(hl, transform.apply(peek8(hl)));
-    }
-
-    private byte peekIXd() {
-        final int uix = IX() & 0xFFFF, ud = read8() & 0xFFFF;
-        cycleBudget -= 5;
-        return peek8((short) (uix + ud));
-    }
-
-    private void pokeIXd(final ReadAccess8 value) {
-        final int uix = IX() & 0xFFFF, ud = read8() & 0xFFFF;
-        cycleBudget -= 5;
-        poke8((short) (uix + ud), value.apply());
-    }
-
-    private void indirectIXd(final Transform transform) {
-        final int uix = IX() & 0xFFFF, ud = read8() & 0xFFFF;
-        final short a = (short) (uix + ud);
-        cycleBudget -= 5;
-        poke8(a, transform.apply(peek8(a)));
-    }
-
-    private byte peekIYd() {
-        final int uiy = IY() & 0xFFFF, ud = read8() & 0xFFFF;
-        cycleBudget -= 5;
-        return peek8((short) (uiy + ud));
-    }
-
-    private void pokeIYd(final ReadAccess8 value) {
-        final int uiy = IY() & 0xFFFF, ud = read8() & 0xFFFF;
-        cycleBudget -= 5;
-        poke8((short) (uiy + ud), value.apply());
-    }
-
-    private void indirectIYd(final Transform transform) {
-        final int uiy = IY() & 0xFFFF, ud = read8() & 0xFFFF;
-        final short a = (short) (uiy + ud);
-        cycleBudget -= 5;
-        poke8(a, transform.apply(peek8(a)));
-    }
-
-    private byte peekIXdCB() {
-        final int uix = IX() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        cycleBudget -= 2;
-        return peek8((short) (uix + ud));
-    }
-
-    private void pokeIXdCB(final ReadAccess8 value) {
-        final int uix = IX() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        cycleBudget -= 2;
-        poke8((short) (uix + ud), value.apply());
-    }
-
-    private void indirectIXdCB(final Transform transform) {
-        final int uix = IX() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        final short a = (short) (uix + ud);
-        cycleBudget -= 2;
-        poke8(a, transform.apply(peek8(a)));
-    }
-
-    private byte peekIYdCB() {
-        final int uiy = IY() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        cycleBudget -= 2;
-        return peek8((short) (uiy + ud));
+    /**
+     * Get the address of the (HL), (IX+d) or (IY+d) operand, reading the
+     * displacement for the latter two.
+     */
+    private short indirectAddress(final int index) {
+        switch (index) {
+            case INDEX_IX: {
+                final int uix = IX() & 0xFFFF, ud = read8() & 0xFFFF;
+                cycleBudget -= 5;
+                return (short) (uix + ud);
+            }
+            case INDEX_IY: {
+                final int uiy = IY() & 0xFFFF, ud = read8() & 0xFFFF;
+                cycleBudget -= 5;
+                return (short) (uiy + ud);
+            }
+            default:
+                return HL();
+        }
     }
 
-    private void pokeIYdCB(final ReadAccess8 value) {
-        final int uiy = IY() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        cycleBudget -= 2;
-        poke8((short) (uiy + ud), value.apply());
+    /**
+     * Like {@link #indirectAddress(int)}, for operations reading and then
+     * writing the operand.
+     */
+    private short indirectAddressRMW(final int index) {
+        if (index == INDEX_HL) {
+            cycleBudget -= 1;
+            return HL();
+        }
+        return indirectAddress(index);
     }
 
-    private void indirectIYdCB(final Transform transform) {
-        final int uiy = IY() & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
-        final short a = (short) (uiy + ud);
+    /**
+     * Get the address of the (IX+d) or (IY+d) operand of DDCB and FDCB
+     * prefixed opcodes, where the displacement precedes the opcode.
+     */
+    private short indirectAddressCB(final int index) {
+        final int ui = indexRegister(index) & 0xFFFF, ud = peek8((short) (PC - 2)) & 0xFFFF;
         cycleBudget -= 2;
-        poke8(a, transform.apply(peek8(a)));
+        return (short) (ui + ud);
     }
 
     // IO
@@ -607,6 +664,17 @@ public final class Z80 {
         return ioRead(BC());
     }
 
+    private void inFlags(final byte value) {
+        byte f = (byte) (F & FLAG_MASK_C);
+        if ((value & 0xFF) == 0) {
+            f |= FLAG_MASK_Z;
+        } else {
+            f |= value & FLAG_MASK_S;
+        }
+        f |= computeParity(value) << FLAG_SHIFT_PV;
+        F = f;
+    }
+
     // Control
 
     private void push(final short value) {
@@ -620,6 +688,42 @@ public final class Z80 {
         return result;
     }
 
+    private void jr(final boolean condition) {
+        final byte e = read8();
+        if (condition) {
+            PC += e;
+            cycleBudget -= 5;
+        }
+    }
+
+    private void jp(final boolean condition) {
+        final short nn = read16();
+        if (condition) {
+            PC = nn;
+        }
+    }
+
+    private void call(final boolean condition) {
+        final short nn = read16();
+        if (condition) {
+            push(PC);
+            PC = nn;
+            cycleBudget -= 1;
+        }
+    }
+
+    private void ret(final boolean condition) {
+        if (condition) {
+            PC = pop();
+        }
+        cycleBudget -= 1;
+    }
+
+    private void rst(final int address) {
+        push(PC);
+        PC = (short) address;
+        cycleBudget -= 1;
+    }
     // Bitwise
 
     private void bit(final int bit, final byte value) {
@@ -637,8 +741,60 @@ public final class Z80 {
         return (byte) (value | (1 << bit));
     }
 
+    private byte rot(final int y, final byte value) {
+        switch (y) {
+            case 0:
+                return rlc(value);
+            case 1:
+                return rrc(value);
+            case 2:
+                return rl(value);
+            case 3:
+                return rr(value);
+            case 4:
+                return sla(value);
+            case 5:
+                return sra(value);
+            case 6:
+                return sll(value);
+            case 7:
+                return srl(value);
+            default:
+                throw new IllegalStateException();
+        }
+    }
     // ALU
 
+    private void alu(final int y, final byte rhs) {
+        switch (y) {
+            case 0:
+                add(rhs);
+                break;
+            case 1:
+                adc(rhs);
+                break;
+            case 2:
+                sub(rhs);
+                break;
+            case 3:
+                sbc(rhs);
+                break;
+            case 4:
+                and(rhs);
+                break;
+            case 5:
+                xor(rhs);
+                break;
+            case 6:
+                or(rhs);
+                break;
+            case 7:
+                cp(rhs);
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
     private byte inc(final byte value) {
         final int u = value & 0xFF;
         final int result = u + 1;
@@ -830,20 +986,49 @@ public final class Z80 {
         F = f;
     }
 
-    private byte rr(final byte value) {
-        final int a = value & 0xFF;
-        final byte carry = (byte) (a & 1);
-        final int result = (a >>> 1) | ((F & FLAG_MASK_C) << 7);
-
-        byte f = carry;
-        if ((result & 0xFF) == 0) {
-            f |= FLAG_MASK_Z;
+    private void daa() {
+        final int a = A & 0xFF;
+        final int c;
+        int d;
+        if (a > 0x99 || FLAG_C()) {
+            c = FLAG_MASK_C;
+            d = 0x60;
         } else {
-            f |= result & FLAG_MASK_S;
+            c = d = 0;
         }
-        f |= computeParity((byte) result) << FLAG_SHIFT_PV;
 
-        F = f;
+        if ((a & 0x0f) > 0x09 || FLAG_H()) {
+            d += 0x06;
+        }
+        A += FLAG_N() ? -d : +d;
+
+        byte f = 0;
+        if (A == 0) {
+            f |= FLAG_MASK_Z;
+        } else {
+            f |= A & FLAG_MASK_S;
+        }
+        f |= computeParity(A) << FLAG_SHIFT_PV;
+        f |= ((A ^ a) & FLAG_MASK_H);
+        f |= (F & FLAG_MASK_N);
+        f |= c;
+        F = f;
+    }
+
+    private byte rr(final byte value) {
+        final int a = value & 0xFF;
+        final byte carry = (byte) (a & 1);
+        final int result = (a >>> 1) | ((F & FLAG_MASK_C) << 7);
+
+        byte f = carry;
+        if ((result & 0xFF) == 0) {
+            f |= FLAG_MASK_Z;
+        } else {
+            f |= result & FLAG_MASK_S;
+        }
+        f |= computeParity((byte) result) << FLAG_SHIFT_PV;
+
+        F = f;
         return (byte) result;
     }
 
@@ -1089,7 +1274,7 @@ public final class Z80 {
     }
 
     private void inx(final int d) {
-        pokeHL(this::ioRead);
+        poke8(HL(), ioRead());
         HL((short) (HL() + d));
         B--;
 
@@ -1133,18 +1318,68 @@ public final class Z80 {
     }
 
     private void ldxr(final int d) {
-        poke8(DE(), peekHL());
-        DE((short) (DE() + d));
-        HL((short) (HL() + d));
-        BC((short) (BC() - 1));
+        ldxrBulk(d);
 
-        cycleBudget -= 2;
+        for (; ; ) {
+            final short destination = DE();
+            poke8(destination, peekHL());
+            DE((short) (DE() + d));
+            HL((short) (HL() + d));
+            BC((short) (BC() - 1));
 
-        F &= FLAG_MASK_SZC;
+            cycleBudget -= 2;
 
-        if (BC() != 0) {
-            PC -= 2;
+            F &= FLAG_MASK_SZC;
+
+            if (BC() == 0) {
+                return;
+            }
             cycleBudget -= 5;
+            if (overlapsInstruction(destination & 0xFFFF, 1) || !tryRepeatInPlace()) {
+                PC -= 2;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies as many bytes of an LDIR/LDDR as possible in one go, leaving the
+     * final iteration and the one the budget runs out in to {@link #ldxr(int)}.
+     * <p>
+     * Only happens if both ranges are plain memory, see {@link BusAccess#copy(int, int, int, int)},
+     * no interrupt would be accepted and the instruction does not overwrite itself,
+     * so that the result, including the number of cycles used, is the same
+     * as running the iterations one by one.
+     */
+    private void ldxrBulk(final int d) {
+        // Iterations for which the budget is still positive after their write,
+        // so that they would continue with a re-fetch.
+        if (cycleBudget <= 13 || hasAcceptableInterrupt()) {
+            return;
+        }
+        final int uhl = HL() & 0xFFFF, ude = DE() & 0xFFFF;
+        int count = Math.min((BC() - 1) & 0xFFFF, (cycleBudget - 14) / LDXR_ITERATION_CYCLES + 1);
+        // Do not wrap around the address space.
+        if (d > 0) {
+            count = Math.min(count, Math.min(0x10000 - uhl, 0x10000 - ude));
+        } else {
+            count = Math.min(count, Math.min(uhl + 1, ude + 1));
+        }
+        if (count <= 1) {
+            return;
+        }
+
+        if (overlapsInstruction(d > 0 ? ude : ude - (count - 1), count)) {
+            return;
+        }
+
+        if (memory.copy(uhl, ude, count, d)) {
+            DE((short) (ude + d * count));
+            HL((short) (uhl + d * count));
+            BC((short) (BC() - count));
+            cycleBudget -= count * LDXR_ITERATION_CYCLES;
+            R = (byte) ((R & 0b10000000) | ((R + count) & 0b01111111));
+            F &= FLAG_MASK_SZC;
         }
     }
 
@@ -1157,32 +1392,38 @@ public final class Z80 {
     }
 
     private void cpxr(final int d) {
-        final int ul = A & 0xFF, ur = peekHL() & 0xFF;
-        final int result = ul - ur;
-        final int carry = ul ^ ur ^ result;
-
-        HL((short) (HL() + d));
-        BC((short) (BC() - 1));
-
-        final boolean bcNonZero = BC() != 0;
-        final boolean areEqual = (result & 0xFF) == 0;
-        byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
-        if (areEqual) {
-            f |= FLAG_MASK_Z;
-        } else {
-            f |= result & FLAG_MASK_S;
-        }
-        f |= carry & FLAG_MASK_H;
-        if (bcNonZero) {
-            f |= FLAG_MASK_PV;
-        }
-        F = f;
+        for (; ; ) {
+            final int ul = A & 0xFF, ur = peekHL() & 0xFF;
+            final int result = ul - ur;
+            final int carry = ul ^ ur ^ result;
+
+            HL((short) (HL() + d));
+            BC((short) (BC() - 1));
+
+            final boolean bcNonZero = BC() != 0;
+            final boolean areEqual = (result & 0xFF) == 0;
+            byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
+            if (areEqual) {
+                f |= FLAG_MASK_Z;
+            } else {
+                f |= result & FLAG_MASK_S;
+            }
+            f |= carry & FLAG_MASK_H;
+            if (bcNonZero) {
+                f |= FLAG_MASK_PV;
+            }
+            F = f;
 
-        cycleBudget -= 5;
+            cycleBudget -= 5;
 
-        if (bcNonZero && !areEqual) {
-            PC -= 2;
+            if (!bcNonZero || areEqual) {
+                return;
+            }
             cycleBudget -= 5;
+            if (!tryRepeatInPlace()) {
+                PC -= 2;
+                return;
+            }
         }
     }
 
@@ -1195,21 +1436,28 @@ public final class Z80 {
     }
 
     private void inxr(final int d) {
-        pokeHL(this::ioRead);
-        HL((short) (HL() + d));
-        B--;
+        for (; ; ) {
+            final short destination = HL();
+            poke8(destination, ioRead());
+            HL((short) (HL() + d));
+            B--;
 
-        cycleBudget -= 1;
+            cycleBudget -= 1;
 
-        byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
-        if (B == 0) {
-            f |= FLAG_MASK_Z;
-        }
-        F = f;
+            byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
+            if (B == 0) {
+                f |= FLAG_MASK_Z;
+            }
+            F = f;
 
-        if (B != 0) {
-            PC -= 2;
+            if (B == 0) {
+                return;
+            }
             cycleBudget -= 5;
+            if (overlapsInstruction(destination & 0xFFFF, 1) || !tryRepeatInPlace()) {
+                PC -= 2;
+                return;
+            }
         }
     }
 
@@ -1222,796 +1470,1316 @@ public final class Z80 {
     }
 
     private void otxr(final int d) {
-        ioWrite(BC(), peekHL());
-        HL((short) (HL() + d));
-        B--;
+        for (; ; ) {
+            ioWrite(BC(), peekHL());
+            HL((short) (HL() + d));
+            B--;
 
-        cycleBudget -= 1;
+            cycleBudget -= 1;
 
-        byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
-        if (B == 0) {
-            f |= FLAG_MASK_Z;
-        }
-        F = f;
+            byte f = (byte) (FLAG_MASK_N | (F & FLAG_MASK_C));
+            if (B == 0) {
+                f |= FLAG_MASK_Z;
+            }
+            F = f;
 
-        if (B != 0) {
-            PC -= 2;
+            if (B == 0) {
+                return;
+            }
             cycleBudget -= 5;
+            if (!tryRepeatInPlace()) {
+                PC -= 2;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Called after an iteration of a repeating block instruction that is to
+     * be repeated, to check whether the next iteration can run right away.
+     * <p>
+     * The regular way of repeating is rewinding the PC, so that the
+     * instruction is fetched again. The next iteration can run in place
+     * instead if it would be the next thing to happen anyway, i.e. there is
+     * budget left and no interrupt would be accepted, see {@link #hasAcceptableInterrupt()}.
+     * In that case the cost of the
+     * skipped re-fetch is charged, so timing stays the same. Callers must
+     * rewind the PC if this returns <code>false</code>.
+     *
+     * @return <code>true</code> if the next iteration may run in place; <code>false</code> otherwise.
+     */
+    private boolean tryRepeatInPlace() {
+        if (cycleBudget <= 0 || hasAcceptableInterrupt()) {
+            return false;
         }
+        R = (byte) ((R & 0b10000000) | ((R + 1) & 0b01111111));
+        cycleBudget -= BLOCK_REFETCH_CYCLES;
+        return true;
+    }
+
+    /**
+     * Whether the specified address range covers the current block
+     * instruction, in which case it must be re-fetched after writing to the
+     * range.
+     */
+    private boolean overlapsInstruction(final int address, final int length) {
+        final int instruction = (PC - 2) & 0xFFFF;
+        return ((instruction - address) & 0xFFFF) < length ||
+                ((instruction + 1 - address) & 0xFFFF) < length;
     }
 
     // --------------------------------------------------------------------- //
 
     private void execute(byte opcode) {
-        RegisterAccess r;
+        int index;
         switch (status) {
             case PARSING_DD:
-                r = registersDD;
+                index = INDEX_IX;
                 break;
             case PARSING_FD:
-                r = registersFD;
+                index = INDEX_IY;
                 break;
             default:
-                r = registers;
+                index = INDEX_HL;
                 break;
         }
 
         for (; ; ) {
             status = Status.RUNNING;
 
-            int x = (opcode & 0b11000000) >>> 6;
-            int y = (opcode & 0b00111000) >>> 3;
-            int z = (opcode & 0b00000111);
-            int p = y >>> 1;
-            int q = y & 1;
-
-            switch (x) {
-                case 0:
-                    switch (z) {
-                        case 0: // Relative jumps and assorted ops
-                            switch (y) {
-                                case 0: // NOP
-                                    return;
-                                case 1: { // EX AF,AF'
-                                    byte t = A;
-                                    A = A2;
-                                    A2 = t;
-                                    t = F;
-                                    F = F2;
-                                    F2 = t;
-                                    return;
-                                }
-                                case 2: { // DJNZ e
-                                    final byte e = read8();
-                                    cycleBudget -= 1;
-                                    if (--B != 0) {
-                                        PC += e;
-                                        cycleBudget -= 5;
-                                    }
-                                    return;
-                                }
-                                case 3: { // JR e
-                                    final byte e = read8();
-                                    PC += e;
-                                    cycleBudget -= 5;
-                                    return;
-                                }
-                                case 4:
-                                case 5:
-                                case 6:
-                                case 7: { // JR cc[y-4],e
-                                    final byte e = read8();
-                                    if (cc[y - 4].apply()) {
-                                        PC += e;
-                                        cycleBudget -= 5;
-                                    }
-                                    return;
-                                }
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 1: // 16-bit load immediate/add
-                            switch (q) {
-                                case 0: // LD rp[p],nn
-                                    r.w16[p].apply(read16());
-                                    return;
-                                case 1: // ADD HL,rp[p]
-                                    r.w16[IDX_HL_IX_IY].apply(add16(r.r16[IDX_HL_IX_IY].apply(), r.r16[p].apply()));
-                                    cycleBudget -= 7;
-                                    return;
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 2: // Indirect loading
-                            switch (q) {
-                                case 0:
-                                    switch (p) {
-                                        case 0: // LD (BC),A
-                                            poke8(BC(), A);
-                                            return;
-                                        case 1: // LD (DE),A
-                                            poke8(DE(), A);
-                                            return;
-                                        case 2: // LD (nn),HL
-                                            poke16(read16(), r.r16[IDX_HL_IX_IY].apply());
-                                            return;
-                                        case 3: // LD (nn),A
-                                            poke8(read16(), A);
-                                            return;
-                                        default:
-                                            throw new IllegalStateException();
-                                    }
-                                case 1:
-                                    switch (p) {
-                                        case 0: // LD A,(BC)
-                                            A = peek8(BC());
-                                            return;
-                                        case 1: // LD A,(DE)
-                                            A = peek8(DE());
-                                            return;
-                                        case 2: // LD HL,(nn)
-                                            r.w16[IDX_HL_IX_IY].apply(peek16(read16()));
-                                            return;
-                                        case 3: // LD A,(nn)
-                                            A = peek8(read16());
-                                            return;
-                                        default:
-                                            throw new IllegalStateException();
-                                    }
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 3: // 16-bit INC/DEC
-                            switch (q) {
-                                case 0: // INC rp[p]
-                                    r.w16[p].apply((short) (r.r16[p].apply() + 1));
-                                    cycleBudget -= 2;
-                                    return;
-                                case 1: // DEC rp[p]
-                                    r.w16[p].apply((short) (r.r16[p].apply() - 1));
-                                    cycleBudget -= 2;
-                                    return;
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 4: // 8-bit INC: INC r[y]
-                            r.rw8[y].apply(this::inc);
-                            return;
-                        case 5: // 8-bit DEC: DEC r[y]
-                            r.rw8[y].apply(this::dec);
-                            return;
-                        case 6: // 8-bit load immediate: LD r[y],n
-                            r.w8[y].apply(this::read8);
-                            return;
-                        case 7: // Assorted operations or accumulator/flags
-                            switch (y) {
-                                case 0: { // RLCA
-                                    final int ua = A & 0xFF;
-                                    final byte carry = (byte) (ua >>> 7);
-                                    A = (byte) ((ua << 1) | carry);
-                                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
-                                    return;
-                                }
-                                case 1: { // RRCA
-                                    final int ua = A & 0xFF;
-                                    final byte carry = (byte) (ua & 1);
-                                    A = (byte) ((ua >>> 1) | (carry << 7));
-                                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
-                                    return;
-                                }
-                                case 2: { // RLA
-                                    final int ua = A & 0xFF;
-                                    final byte carry = (byte) (ua >>> 7);
-                                    A = (byte) ((ua << 1) | (F & FLAG_MASK_C));
-                                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
-                                    return;
-                                }
-                                case 3: { // RRA
-                                    final int ua = A & 0xFF;
-                                    final byte carry = (byte) (ua & 1);
-                                    A = (byte) ((ua >>> 1) | ((F & FLAG_MASK_C) << 7));
-                                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
-                                    return;
-                                }
-                                case 4: { // DAA
-                                    final int a = A & 0xFF;
-                                    final int c;
-                                    int d;
-                                    if (a > 0x99 || FLAG_C()) {
-                                        c = FLAG_MASK_C;
-                                        d = 0x60;
-                                    } else {
-                                        c = d = 0;
-                                    }
-
-                                    if ((a & 0x0f) > 0x09 || FLAG_H()) {
-                                        d += 0x06;
-                                    }
-                                    A += FLAG_N() ? -d : +d;
-
-                                    byte f = 0;
-                                    if (A == 0) {
-                                        f |= FLAG_MASK_Z;
-                                    } else {
-                                        f |= A & FLAG_MASK_S;
-                                    }
-                                    f |= computeParity(A) << FLAG_SHIFT_PV;
-                                    f |= ((A ^ a) & FLAG_MASK_H);
-                                    f |= (F & FLAG_MASK_N);
-                                    f |= c;
-                                    F = f;
-                                    return;
-                                }
-                                case 5: // CPL
-                                    A = (byte) ~A;
-                                    F |= FLAG_MASK_H | FLAG_MASK_N;
-                                    return;
-                                case 6: // SCF
-                                    F &= ~FLAG_MASK_H & ~FLAG_MASK_N;
-                                    F |= FLAG_MASK_C;
-                                    return;
-                                case 7: { // CCF
-                                    final int carry = F & FLAG_MASK_C;
-                                    F &= FLAG_MASK_SZPV;
-                                    F |= carry << FLAG_SHIFT_H;
-                                    F |= carry ^ FLAG_MASK_C;
-                                    return;
-                                }
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        default:
-                            throw new IllegalStateException();
-                    }
-                case 1:
-                    if (z == 6 && y == 6) { // Exception (replaces LD (HL),(HL)): HALT
-                        status = Status.HALTED;
-                        PC -= 1;
-                    } else if (y == 6) { // 8-bit loading: LD (HL),r[z]
-                        r.w8[y].apply(registers.r8[z]);
-                    } else if (z == 6) { // 8-bit loading: LD r[y],(HL)
-                        registers.w8[y].apply(r.r8[z]);
-                    } else { // 8-bit loading: LD r[y],r[z]
-                        r.w8[y].apply(r.r8[z]);
-                    }
+            // Opcodes are dispatched through one flat switch per prefix, which
+            // the JIT compiles to a jump table with the operations inlined.
+            // DD and FD prefixed opcodes share the unprefixed cases, with the
+            // index selecting whether HL, IX or IY is used.
+            switch (opcode & 0xFF) {
+                case 0x00: // NOP
+                    return;
+                case 0x01: // LD BC,nn
+                    BC(read16());
+                    return;
+                case 0x02: // LD (BC),A
+                    poke8(BC(), A);
+                    return;
+                case 0x03: // INC BC
+                    BC((short) (BC() + 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x04: // INC B
+                    B = inc(B);
+                    return;
+                case 0x05: // DEC B
+                    B = dec(B);
+                    return;
+                case 0x06: // LD B,n
+                    B = read8();
                     return;
-                case 2: // Operator on accumulator and register/memory location: alu[y] r[z]
-                    alu[y].apply(r.r8[z].apply());
-                    return;
-                case 3:
-                    switch (z) {
-                        case 0: // Conditional return: RET cc[y]
-                            if (cc[y].apply()) {
-                                PC = pop();
-                            }
-                            cycleBudget -= 1;
-                            return;
-                        case 1: // POP & various ops
-                            switch (q) {
-                                case 0: // POP rp2[p]
-                                    r.w216[p].apply(pop());
-                                    return;
-                                case 1:
-                                    switch (p) {
-                                        case 0: // RET
-                                            PC = pop();
-                                            return;
-                                        case 1: { // EXX
-                                            byte t = B;
-                                            B = B2;
-                                            B2 = t;
-                                            t = C;
-                                            C = C2;
-                                            C2 = t;
-                                            t = D;
-                                            D = D2;
-                                            D2 = t;
-                                            t = E;
-                                            E = E2;
-                                            E2 = t;
-                                            t = H;
-                                            H = H2;
-                                            H2 = t;
-                                            t = L;
-                                            L = L2;
-                                            L2 = t;
-                                            return;
-                                        }
-                                        case 2: // JP (HL)
-                                            PC = r.r16[IDX_HL_IX_IY].apply();
-                                            return;
-                                        case 3: // LD SP,HL
-                                            SP = r.r16[IDX_HL_IX_IY].apply();
-                                            cycleBudget -= 2;
-                                            return;
-                                        default:
-                                            throw new IllegalStateException();
-                                    }
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 2: { // Conditional jump: JP cc[y],nn
-                            final short nn = read16();
-                            if (cc[y].apply()) {
-                                PC = nn;
-                            }
-                            return;
-                        }
-                        case 3: // Assorted operations
-                            switch (y) {
-                                case 0: // JP nn
-                                    PC = read16();
-                                    return;
-                                case 1: { // (CB prefix)
-                                    if (r == registersDD) {
-                                        PC += 1;
-                                        r = registersDDCB;
-                                    } else if (r == registersFD) {
-                                        PC += 1;
-                                        r = registersFDCB;
-                                    }
-
-                                    opcode = read8();
-                                    cycleBudget -= 1;
-                                    x = (opcode & 0b11000000) >>> 6;
-                                    y = (opcode & 0b00111000) >>> 3;
-                                    z = (opcode & 0b00000111);
-
-                                    switch (x) {
-                                        case 0: // Roll/shift register or memory location: rot[y] r[z]
-                                            r.rw8[z].apply(rot[y]);
-                                            return;
-                                        case 1: // Test bit: BIT y,r[z]
-                                            bit(y, r.r8[z].apply());
-                                            return;
-                                        case 2: // Reset bit: RES y,r[z]
-                                            r.rw8[z].apply(res[y]);
-                                            return;
-                                        case 3: // Set bit: SET y,r[z]
-                                            r.rw8[z].apply(set[y]);
-                                            return;
-                                        default:
-                                            throw new IllegalStateException();
-                                    }
-                                }
-                                case 2: // OUT (n),A
-                                    ioWrite((short) (0x0101 * (read8() & 0xFF)), A);
-                                    return;
-                                case 3: // IN A,(n)
-                                    A = ioRead((short) (0x0101 * (read8() & 0xFF)));
-                                    return;
-                                case 4: { // EX (SP), HL
-                                    final short t = r.r16[IDX_HL_IX_IY].apply();
-                                    r.w16[IDX_HL_IX_IY].apply(peek16(SP));
-                                    poke16(SP, t);
-                                    cycleBudget -= 3;
-                                    return;
-                                }
-                                case 5: { // EX DE,HL
-                                    final short t = DE();
-                                    DE(HL());
-                                    HL(t);
-                                    return;
-                                }
-                                case 6: // DI
-                                    IFF1 = IFF2 = false;
-                                    status = Status.AFTER_EI_DI;
-                                    return;
-                                case 7: // EI
-                                    IFF1 = IFF2 = true;
-                                    status = Status.AFTER_EI_DI;
-                                    return;
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 4: { // Conditional call: CALL cc[y],nn
-                            final short nn = read16();
-                            if (cc[y].apply()) {
-                                push(PC);
-                                PC = nn;
-                                cycleBudget -= 1;
-                            }
-                            return;
-                        }
-                        case 5: // PUSH & various ops
-                            switch (q) {
-                                case 0: // PUSH rp2[p]
-                                    push(r.r216[p].apply());
-                                    cycleBudget -= 1;
-                                    return;
-                                case 1:
-                                    switch (p) {
-                                        case 0: { // CALL nn
-                                            final short nn = read16();
-                                            push(PC);
-                                            PC = nn;
-                                            cycleBudget -= 1;
-                                            return;
-                                        }
-                                        case 1: { // (DD prefix)
-                                            status = Status.PARSING_DD;
-                                            if (cycleBudget <= 0) {
-                                                return;
-                                            }
-                                            opcode = read8();
-                                            cycleBudget -= 1;
-                                            r = registersDD;
-                                            continue;
-                                        }
-                                        case 2: { // (ED prefix)
-                                            r = registers;
-                                            opcode = read8();
-                                            cycleBudget -= 1;
-                                            x = (opcode & 0b11000000) >>> 6;
-                                            y = (opcode & 0b00111000) >>> 3;
-                                            z = (opcode & 0b00000111);
-                                            p = y >>> 1;
-                                            q = y & 1;
-
-                                            switch (x) {
-                                                case 1:
-                                                    switch (z) {
-                                                        case 0: { // Input from port with 16-bit address
-                                                            final byte value;
-                                                            if (y != 6) { // IN r[y],(C)
-                                                                r.w8[y].apply(this::ioRead);
-                                                                value = r.r8[y].apply();
-                                                            } else { // IN (C)
-                                                                ioRead();
-                                                                value = 0;
-                                                            }
-
-                                                            byte f = (byte) (F & FLAG_MASK_C);
-                                                            if ((value & 0xFF) == 0) {
-                                                                f |= FLAG_MASK_Z;
-                                                            } else {
-                                                                f |= value & FLAG_MASK_S;
-                                                            }
-                                                            f |= computeParity(value) << FLAG_SHIFT_PV;
-                                                            F = f;
-                                                            return;
-                                                        }
-                                                        case 1: // Output to port with 16-bit address
-                                                            if (y != 6) { // OUT(C),r[y]
-                                                                ioWrite(BC(), r.r8[y].apply());
-                                                            } else { // OUT(C),0
-                                                                ioWrite(BC(), (byte) 0);
-                                                            }
-                                                            return;
-                                                        case 2: // 16-bit add/subtract with carry
-                                                            switch (q) {
-                                                                case 0: // SBC HL,rp[p]
-                                                                    HL(sbc16(HL(), r.r16[p].apply()));
-                                                                    cycleBudget -= 7;
-                                                                    return;
-                                                                case 1: // ADC HL,rp[p]
-                                                                    HL(adc16(HL(), r.r16[p].apply()));
-                                                                    cycleBudget -= 7;
-                                                                    return;
-                                                                default:
-                                                                    throw new IllegalStateException();
-                                                            }
-                                                        case 3: // Retrieve/store register pair from/to immediate address
-                                                            switch (q) {
-                                                                case 0: // LD (nn),rp[p]
-                                                                    poke16(read16(), r.r16[p].apply());
-                                                                    return;
-                                                                case 1: // LD rp[p],(nn)
-                                                                    r.w16[p].apply(peek16(read16()));
-                                                                    return;
-                                                                default:
-                                                                    throw new IllegalStateException();
-                                                            }
-                                                        case 4: // Negate accumulator
-                                                            neg();
-                                                            return;
-                                                        case 5: // Return from interrupt
-                                                            switch (y) {
-                                                                case 1: // RETI
-                                                                    PC = pop();
-                                                                    return;
-                                                                default: // RETN
-                                                                    PC = pop();
-                                                                    IFF1 = IFF2;
-                                                                    return;
-                                                            }
-                                                        case 6: // Set interrupt mode: IM im[y]
-                                                            IM = im[y];
-                                                            return;
-                                                        case 7: // Assorted ops
-                                                            switch (y) {
-                                                                case 0: // LD I,A
-                                                                    I = A;
-                                                                    cycleBudget -= 1;
-                                                                    return;
-                                                                case 1: // LD R,A
-                                                                    R = A;
-                                                                    cycleBudget -= 1;
-                                                                    return;
-                                                                case 2: // LD A,I
-                                                                case 3: { // LD A,R
-                                                                    if (y == 2) {
-                                                                        A = I;
-                                                                    } else {
-                                                                        A = R;
-                                                                    }
-                                                                    cycleBudget -= 1;
-
-                                                                    byte f = (byte) (F & FLAG_MASK_C);
-                                                                    if ((A & 0xFF) == 0) {
-                                                                        f |= FLAG_MASK_Z;
-                                                                    } else {
-                                                                        f |= A & FLAG_MASK_S;
-                                                                    }
-                                                                    if (IFF2) {
-                                                                        f |= FLAG_MASK_PV;
-                                                                    }
-                                                                    F = f;
-                                                                    return;
-                                                                }
-                                                                case 4: // RRD
-                                                                case 5: { // RLD
-                                                                    final int uhl = peekHL() & 0xFF, ua = A & 0xFF; // 0bHHHHLLLL, 0bAAAAaaaa
-                                                                    final int uahl;
-                                                                    if (y == 4) {
-                                                                        uahl = ((ua & 0xF0) << 8) | ((uhl & 0x0F) << 8) | ((A & 0x0F) << 4) | (uhl >> 4); // 0bAAAALLLLaaaaHHHH
-                                                                    } else {
-                                                                        uahl = ((ua & 0xF0) << 8) | (uhl << 4) | (ua & 0x0F); // 0bAAAAHHHHLLLLaaaa
-                                                                    }
-                                                                    cycleBudget -= 4;
-
-                                                                    poke8(HL(), (byte) uahl);
-                                                                    A = (byte) (uahl >>> 8);
-
-                                                                    byte f = (byte) (F & FLAG_MASK_C);
-                                                                    if ((A & 0xFF) == 0) {
-                                                                        f |= FLAG_MASK_Z;
-                                                                    } else {
-                                                                        f |= A & FLAG_MASK_S;
-                                                                    }
-                                                                    f |= computeParity(A) << FLAG_SHIFT_PV;
-                                                                    F = f;
-                                                                    return;
-                                                                }
-                                                                case 6:
-                                                                case 7: // NOP
-                                                                    return;
-                                                                default:
-                                                                    throw new IllegalStateException();
-                                                            }
-                                                        default:
-                                                            throw new IllegalStateException();
-                                                    }
-                                                case 2:
-                                                    if (z <= 3) { // Block instruction: bli[y,z]
-                                                        if (y > 3) {
-                                                            bli[y - 4][z].apply();
-                                                        }
-                                                    } // else: NOP
-                                                    return;
-                                                case 0:
-                                                case 3: // NOP
-                                                    return;
-                                                default:
-                                                    throw new IllegalStateException();
-                                            }
-                                        }
-                                        case 3: // (FD prefix)
-                                            status = Status.PARSING_FD;
-                                            if (cycleBudget <= 0) {
-                                                return;
-                                            }
-                                            opcode = read8();
-                                            cycleBudget -= 1;
-                                            r = registersFD;
-                                            continue;
-                                        default:
-                                            throw new IllegalStateException();
-                                    }
-                                default:
-                                    throw new IllegalStateException();
-                            }
-                        case 6: // Operate on accumulator and immediate operand: alu[y] n
-                            alu[y].apply(read8());
-                            return;
-                        case 7: // Restart: RST y*8
-                            push(PC);
-                            PC = (short) (y * 8);
-                            cycleBudget -= 1;
-                            return;
-                        default:
-                            throw new IllegalStateException();
+                case 0x07: { // RLCA
+                    final int ua = A & 0xFF;
+                    final byte carry = (byte) (ua >>> 7);
+                    A = (byte) ((ua << 1) | carry);
+                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
+                    return;
+                }
+                case 0x08: { // EX AF,AF'
+                    byte t = A;
+                    A = A2;
+                    A2 = t;
+                    t = F;
+                    F = F2;
+                    F2 = t;
+                    return;
+                }
+                case 0x09: // ADD HL,BC
+                    indexRegister(index, add16(indexRegister(index), BC()));
+                    cycleBudget -= 7;
+                    return;
+                case 0x0A: // LD A,(BC)
+                    A = peek8(BC());
+                    return;
+                case 0x0B: // DEC BC
+                    BC((short) (BC() - 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x0C: // INC C
+                    C = inc(C);
+                    return;
+                case 0x0D: // DEC C
+                    C = dec(C);
+                    return;
+                case 0x0E: // LD C,n
+                    C = read8();
+                    return;
+                case 0x0F: { // RRCA
+                    final int ua = A & 0xFF;
+                    final byte carry = (byte) (ua & 1);
+                    A = (byte) ((ua >>> 1) | (carry << 7));
+                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
+                    return;
+                }
+                case 0x10: { // DJNZ e
+                    final byte e = read8();
+                    cycleBudget -= 1;
+                    if (--B != 0) {
+                        PC += e;
+                        cycleBudget -= 5;
                     }
-                default:
-                    throw new IllegalStateException();
-            }
-        }
-    }
-
-    // --------------------------------------------------------------------- //
-    // Glorious lookup tables.
-
-    // Index of HL/IX/IY in 16-bit access tables.
-    private static final int IDX_HL_IX_IY = 2;
-
-    // Standard register access.
-    private final RegisterAccess registers = new RegisterAccess(
-            new ReadAccess8[]{this::B, this::C, this::D, this::E, this::H, this::L, this::peekHL, this::A},
-            new IndirectWriteAccess8[]{this::B, this::C, this::D, this::E, this::H, this::L, this::pokeHL, this::A},
-            new ReadWriteAccess8[]{this::B, this::C, this::D, this::E, this::H, this::L, this::indirectHL, this::A},
-            new ReadAccess16[]{this::BC, this::DE, this::HL, this::SP},
-            new WriteAccess16[]{this::BC, this::DE, this::HL, this::SP},
-            new ReadAccess16[]{this::BC, this::DE, this::HL, this::AF},
-            new WriteAccess16[]{this::BC, this::DE, this::HL, this::AF});
-
-    // DD-prefixed register access.
-    private final RegisterAccess registersDD = new RegisterAccess(
-            withReplacements8(ReadAccess8.class, registers.r8, this::IXH, this::IXL, this::peekIXd),
-            withReplacements8(IndirectWriteAccess8.class, registers.w8, this::IXH, this::IXL, this::pokeIXd),
-            withReplacements8(ReadWriteAccess8.class, registers.rw8, this::IXH, this::IXL, this::indirectIXd),
-            withReplacements16(ReadAccess16.class, registers.r16, this::IX),
-            withReplacements16(WriteAccess16.class, registers.w16, this::IX),
-            withReplacements16(ReadAccess16.class, registers.r216, this::IX),
-            withReplacements16(WriteAccess16.class, registers.w216, this::IX));
-
-    // FD-prefixed register access.
-    private final RegisterAccess registersFD = new RegisterAccess(
-            withReplacements8(ReadAccess8.class, registers.r8, this::IYH, this::IYL, this::peekIYd),
-            withReplacements8(IndirectWriteAccess8.class, registers.w8, this::IYH, this::IYL, this::pokeIYd),
-            withReplacements8(ReadWriteAccess8.class, registers.rw8, this::IYH, this::IYL, this::indirectIYd),
-            withReplacements16(ReadAccess16.class, registers.r16, this::IY),
-            withReplacements16(WriteAccess16.class, registers.w16, this::IY),
-            withReplacements16(ReadAccess16.class, registers.r216, this::IY),
-            withReplacements16(WriteAccess16.class, registers.w216, this::IY));
-
-    // DDCB-prefixed register access.
-    private final RegisterAccess registersDDCB = new RegisterAccess(
-            withReplacements8(ReadAccess8.class, registersDD.r8, this::peekIXdCB),
-            withReplacements8(IndirectWriteAccess8.class, registersDD.w8, this::pokeIXdCB),
-            withReplacements8(ReadWriteAccess8.class, registersDD.rw8, this::indirectIXdCB),
-            registersDD.r16,
-            registersDD.w16,
-            registersDD.r216,
-            registersDD.w216);
-
-    // FDCB-prefixed register access.
-    private final RegisterAccess registersFDCB = new RegisterAccess(
-            withReplacements8(ReadAccess8.class, registersFD.r8, this::peekIYdCB),
-            withReplacements8(IndirectWriteAccess8.class, registersFD.w8, this::pokeIYdCB),
-            withReplacements8(ReadWriteAccess8.class, registersFD.rw8, this::indirectIYdCB),
-            registersFD.r16,
-            registersFD.w16,
-            registersFD.r216,
-            registersFD.w216);
-
-    // Conditions
-    private final Condition[] cc = {this::FLAG_NZ, this::FLAG_Z, this::FLAG_NC, this::FLAG_C, this::FLAG_PO, this::FLAG_PE, this::FLAG_P, this::FLAG_M};
-    // Arithmetic/logic operations
-    private final WriteAccess8[] alu = {this::add, this::adc, this::sub, this::sbc, this::and, this::xor, this::or, this::cp};
-    // Rotation/shift operations
-    private final Transform[] rot = {this::rlc, this::rrc, this::rl, this::rr, this::sla, this::sra, this::sll, this::srl};
-    // Bit reset
-    private final Transform[] res = new Transform[8];
-    // Bit set
-    private final Transform[] set = new Transform[8];
-    // Interrupt modes
-    private final InterruptMode[] im = {InterruptMode.MODE_0, InterruptMode.MODE_0, InterruptMode.MODE_1, InterruptMode.MODE_2, InterruptMode.MODE_0, InterruptMode.MODE_0, InterruptMode.MODE_1, InterruptMode.MODE_2};
-    // Block instructions
-    private final Action[][] bli = {
-            {this::ldi, this::cpi, this::ini, this::outi},
-            {this::ldd, this::cpd, this::ind, this::outd},
-            {this::ldir, this::cpir, this::inir, this::otir},
-            {this::lddr, this::cpdr, this::indr, this::otdr}
-    };
-
-    // There is an overflow if the xor of the carry out and the carry of the
-    // most significant bit is not zero.
-    private static final int[] OVERFLOW_TABLE = {0, FLAG_MASK_PV, FLAG_MASK_PV, 0};
-
-    // --------------------------------------------------------------------- //
-    // Helpers for constructing register access tables reusing lambdas.
-
-    @SuppressWarnings("unchecked")
-    private static <T> T[] withReplacements8(final Class<T> clazz, final T[] source, final T h, final T l, final T indirectHL) {
-        final T[] result = (T[]) Array.newInstance(clazz, source.length);
-        System.arraycopy(source, 0, result, 0, source.length);
-        result[4] = h;
-        result[5] = l;
-        result[6] = indirectHL;
-        return result;
-    }
-
-    @SuppressWarnings("unchecked")
-    private static <T> T[] withReplacements8(final Class<T> clazz, final T[] source, final T indirectHL) {
-        final T[] result = (T[]) Array.newInstance(clazz, source.length);
-        System.arraycopy(source, 0, result, 0, source.length);
-        result[6] = indirectHL;
-        return result;
-    }
-
-    @SuppressWarnings("unchecked")
-    private static <T> T[] withReplacements16(final Class<T> clazz, final T[] source, final T hl) {
-        final T[] result = (T[]) Array.newInstance(clazz, source.length);
-        System.arraycopy(source, 0, result, 0, source.length);
-        result[2] = hl;
-        return result;
-    }
-
-    // --------------------------------------------------------------------- //
-    // Functional interfaces for lookup tables.
-
-    @FunctionalInterface
-    private interface ReadAccess8 {
-        byte apply();
-    }
-
-    @FunctionalInterface
-    private interface ReadAccess16 {
-        short apply();
-    }
-
-    @FunctionalInterface
-    private interface WriteAccess8 {
-        void apply(final byte value);
-    }
-
-    @FunctionalInterface
-    private interface IndirectWriteAccess8 {
-        void apply(final ReadAccess8 value);
-    }
-
-    @FunctionalInterface
-    private interface WriteAccess16 {
-        void apply(final short value);
-    }
-
-    @FunctionalInterface
-    private interface ReadWriteAccess8 {
-        void apply(final Transform transform);
-    }
-
-    @FunctionalInterface
-    private interface Condition {
-        boolean apply();
-    }
-
-    @FunctionalInterface
-    private interface Transform {
-        byte apply(final byte value);
-    }
-
-    // Yes, there's Runnable, but I don't like using it for non-threaded use-cases.
-    @FunctionalInterface
-    private interface Action {
-        void apply();
-    }
-
-    // --------------------------------------------------------------------- //
-
-    /**
-     * Indirection layer for accessing registers. This is used to allow a more
-     * generic implementation that handles both regular opcodes as well as DD
-     * and FD prefixed opcodes.
-     */
-    private static final class RegisterAccess {
-        final ReadAccess8[] r8; // 8-bit registers (read)
-        final IndirectWriteAccess8[] w8; // 8-bit registers (write)
-        final ReadWriteAccess8[] rw8; // 8-bit registers (read-write)
-        final ReadAccess16[] r16; // Register pairs featuring SP (read)
-        final WriteAccess16[] w16; // Register pairs featuring SP (write)
-        final ReadAccess16[] r216; // Register pairs featuring AF (read)
-        final WriteAccess16[] w216; // Register pairs featuring AF (write)
-
-        private RegisterAccess(final ReadAccess8[] r8, final IndirectWriteAccess8[] w8, final ReadWriteAccess8[] rw8, final ReadAccess16[] r16, final WriteAccess16[] w16, final ReadAccess16[] r216, final WriteAccess16[] w216) {
-            this.r8 = r8;
-            this.w8 = w8;
-            this.rw8 = rw8;
-            this.r16 = r16;
-            this.w16 = w16;
-            this.r216 = r216;
-            this.w216 = w216;
-        }
-    }
+                    return;
+                }
+                case 0x11: // LD DE,nn
+                    DE(read16());
+                    return;
+                case 0x12: // LD (DE),A
+                    poke8(DE(), A);
+                    return;
+                case 0x13: // INC DE
+                    DE((short) (DE() + 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x14: // INC D
+                    D = inc(D);
+                    return;
+                case 0x15: // DEC D
+                    D = dec(D);
+                    return;
+                case 0x16: // LD D,n
+                    D = read8();
+                    return;
+                case 0x17: { // RLA
+                    final int ua = A & 0xFF;
+                    final byte carry = (byte) (ua >>> 7);
+                    A = (byte) ((ua << 1) | (F & FLAG_MASK_C));
+                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
+                    return;
+                }
+                case 0x18: // JR e
+                    jr(true);
+                    return;
+                case 0x19: // ADD HL,DE
+                    indexRegister(index, add16(indexRegister(index), DE()));
+                    cycleBudget -= 7;
+                    return;
+                case 0x1A: // LD A,(DE)
+                    A = peek8(DE());
+                    return;
+                case 0x1B: // DEC DE
+                    DE((short) (DE() - 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x1C: // INC E
+                    E = inc(E);
+                    return;
+                case 0x1D: // DEC E
+                    E = dec(E);
+                    return;
+                case 0x1E: // LD E,n
+                    E = read8();
+                    return;
+                case 0x1F: { // RRA
+                    final int ua = A & 0xFF;
+                    final byte carry = (byte) (ua & 1);
+                    A = (byte) ((ua >>> 1) | ((F & FLAG_MASK_C) << 7));
+                    F = (byte) ((F & FLAG_MASK_SZPV) | carry);
+                    return;
+                }
+                case 0x20: // JR NZ,e
+                    jr(FLAG_NZ());
+                    return;
+                case 0x21: // LD HL,nn
+                    indexRegister(index, read16());
+                    return;
+                case 0x22: // LD (nn),HL
+                    poke16(read16(), indexRegister(index));
+                    return;
+                case 0x23: // INC HL
+                    indexRegister(index, (short) (indexRegister(index) + 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x24: // INC H
+                    indexHigh(index, inc(indexHigh(index)));
+                    return;
+                case 0x25: // DEC H
+                    indexHigh(index, dec(indexHigh(index)));
+                    return;
+                case 0x26: // LD H,n
+                    indexHigh(index, read8());
+                    return;
+                case 0x27: // DAA
+                    daa();
+                    return;
+                case 0x28: // JR Z,e
+                    jr(FLAG_Z());
+                    return;
+                case 0x29: // ADD HL,HL
+                    indexRegister(index, add16(indexRegister(index), indexRegister(index)));
+                    cycleBudget -= 7;
+                    return;
+                case 0x2A: // LD HL,(nn)
+                    indexRegister(index, peek16(read16()));
+                    return;
+                case 0x2B: // DEC HL
+                    indexRegister(index, (short) (indexRegister(index) - 1));
+                    cycleBudget -= 2;
+                    return;
+                case 0x2C: // INC L
+                    indexLow(index, inc(indexLow(index)));
+                    return;
+                case 0x2D: // DEC L
+                    indexLow(index, dec(indexLow(index)));
+                    return;
+                case 0x2E: // LD L,n
+                    indexLow(index, read8());
+                    return;
+                case 0x2F: // CPL
+                    A = (byte) ~A;
+                    F |= FLAG_MASK_H | FLAG_MASK_N;
+                    return;
+                case 0x30: // JR NC,e
+                    jr(FLAG_NC());
+                    return;
+                case 0x31: // LD SP,nn
+                    SP = read16();
+                    return;
+                case 0x32: // LD (nn),A
+                    poke8(read16(), A);
+                    return;
+                case 0x33: // INC SP
+                    SP = (short) (SP + 1);
+                    cycleBudget -= 2;
+                    return;
+                case 0x34: { // INC (HL)
+                    final short address = indirectAddressRMW(index);
+                    poke8(address, inc(peek8(address)));
+                    return;
+                }
+                case 0x35: { // DEC (HL)
+                    final short address = indirectAddressRMW(index);
+                    poke8(address, dec(peek8(address)));
+                    return;
+                }
+                case 0x36: { // LD (HL),n
+                    final short address = indirectAddress(index);
+                    poke8(address, read8());
+                    return;
+                }
+                case 0x37: // SCF
+                    F &= ~FLAG_MASK_H & ~FLAG_MASK_N;
+                    F |= FLAG_MASK_C;
+                    return;
+                case 0x38: // JR C,e
+                    jr(FLAG_C());
+                    return;
+                case 0x39: // ADD HL,SP
+                    indexRegister(index, add16(indexRegister(index), SP));
+                    cycleBudget -= 7;
+                    return;
+                case 0x3A: // LD A,(nn)
+                    A = peek8(read16());
+                    return;
+                case 0x3B: // DEC SP
+                    SP = (short) (SP - 1);
+                    cycleBudget -= 2;
+                    return;
+                case 0x3C: // INC A
+                    A = inc(A);
+                    return;
+                case 0x3D: // DEC A
+                    A = dec(A);
+                    return;
+                case 0x3E: // LD A,n
+                    A = read8();
+                    return;
+                case 0x3F: { // CCF
+                    final int carry = F & FLAG_MASK_C;
+                    F &= FLAG_MASK_SZPV;
+                    F |= carry << FLAG_SHIFT_H;
+                    F |= carry ^ FLAG_MASK_C;
+                    return;
+                }
+                case 0x40: // LD B,B
+                    B = B;
+                    return;
+                case 0x41: // LD B,C
+                    B = C;
+                    return;
+                case 0x42: // LD B,D
+                    B = D;
+                    return;
+                case 0x43: // LD B,E
+                    B = E;
+                    return;
+                case 0x44: // LD B,H
+                    B = indexHigh(index);
+                    return;
+                case 0x45: // LD B,L
+                    B = indexLow(index);
+                    return;
+                case 0x46: // LD B,(HL)
+                    B = peek8(indirectAddress(index));
+                    return;
+                case 0x47: // LD B,A
+                    B = A;
+                    return;
+                case 0x48: // LD C,B
+                    C = B;
+                    return;
+                case 0x49: // LD C,C
+                    C = C;
+                    return;
+                case 0x4A: // LD C,D
+                    C = D;
+                    return;
+                case 0x4B: // LD C,E
+                    C = E;
+                    return;
+                case 0x4C: // LD C,H
+                    C = indexHigh(index);
+                    return;
+                case 0x4D: // LD C,L
+                    C = indexLow(index);
+                    return;
+                case 0x4E: // LD C,(HL)
+                    C = peek8(indirectAddress(index));
+                    return;
+                case 0x4F: // LD C,A
+                    C = A;
+                    return;
+                case 0x50: // LD D,B
+                    D = B;
+                    return;
+                case 0x51: // LD D,C
+                    D = C;
+                    return;
+                case 0x52: // LD D,D
+                    D = D;
+                    return;
+                case 0x53: // LD D,E
+                    D = E;
+                    return;
+                case 0x54: // LD D,H
+                    D = indexHigh(index);
+                    return;
+                case 0x55: // LD D,L
+                    D = indexLow(index);
+                    return;
+                case 0x56: // LD D,(HL)
+                    D = peek8(indirectAddress(index));
+                    return;
+                case 0x57: // LD D,A
+                    D = A;
+                    return;
+                case 0x58: // LD E,B
+                    E = B;
+                    return;
+                case 0x59: // LD E,C
+                    E = C;
+                    return;
+                case 0x5A: // LD E,D
+                    E = D;
+                    return;
+                case 0x5B: // LD E,E
+                    E = E;
+                    return;
+                case 0x5C: // LD E,H
+                    E = indexHigh(index);
+                    return;
+                case 0x5D: // LD E,L
+                    E = indexLow(index);
+                    return;
+                case 0x5E: // LD E,(HL)
+                    E = peek8(indirectAddress(index));
+                    return;
+                case 0x5F: // LD E,A
+                    E = A;
+                    return;
+                case 0x60: // LD H,B
+                    indexHigh(index, B);
+                    return;
+                case 0x61: // LD H,C
+                    indexHigh(index, C);
+                    return;
+                case 0x62: // LD H,D
+                    indexHigh(index, D);
+                    return;
+                case 0x63: // LD H,E
+                    indexHigh(index, E);
+                    return;
+                case 0x64: // LD H,H
+                    indexHigh(index, indexHigh(index));
+                    return;
+                case 0x65: // LD H,L
+                    indexHigh(index, indexLow(index));
+                    return;
+                case 0x66: // LD H,(HL)
+                    H = peek8(indirectAddress(index));
+                    return;
+                case 0x67: // LD H,A
+                    indexHigh(index, A);
+                    return;
+                case 0x68: // LD L,B
+                    indexLow(index, B);
+                    return;
+                case 0x69: // LD L,C
+                    indexLow(index, C);
+                    return;
+                case 0x6A: // LD L,D
+                    indexLow(index, D);
+                    return;
+                case 0x6B: // LD L,E
+                    indexLow(index, E);
+                    return;
+                case 0x6C: // LD L,H
+                    indexLow(index, indexHigh(index));
+                    return;
+                case 0x6D: // LD L,L
+                    indexLow(index, indexLow(index));
+                    return;
+                case 0x6E: // LD L,(HL)
+                    L = peek8(indirectAddress(index));
+                    return;
+                case 0x6F: // LD L,A
+                    indexLow(index, A);
+                    return;
+                case 0x70: { // LD (HL),B
+                    final short address = indirectAddress(index);
+                    poke8(address, B);
+                    return;
+                }
+                case 0x71: { // LD (HL),C
+                    final short address = indirectAddress(index);
+                    poke8(address, C);
+                    return;
+                }
+                case 0x72: { // LD (HL),D
+                    final short address = indirectAddress(index);
+                    poke8(address, D);
+                    return;
+                }
+                case 0x73: { // LD (HL),E
+                    final short address = indirectAddress(index);
+                    poke8(address, E);
+                    return;
+                }
+                case 0x74: { // LD (HL),H
+                    final short address = indirectAddress(index);
+                    poke8(address, H);
+                    return;
+                }
+                case 0x75: { // LD (HL),L
+                    final short address = indirectAddress(index);
+                    poke8(address, L);
+                    return;
+                }
+                case 0x76: // HALT
+                    status = Status.HALTED;
+                    PC -= 1;
+                    return;
+                case 0x77: { // LD (HL),A
+                    final short address = indirectAddress(index);
+                    poke8(address, A);
+                    return;
+                }
+                case 0x78: // LD A,B
+                    A = B;
+                    return;
+                case 0x79: // LD A,C
+                    A = C;
+                    return;
+                case 0x7A: // LD A,D
+                    A = D;
+                    return;
+                case 0x7B: // LD A,E
+                    A = E;
+                    return;
+                case 0x7C: // LD A,H
+                    A = indexHigh(index);
+                    return;
+                case 0x7D: // LD A,L
+                    A = indexLow(index);
+                    return;
+                case 0x7E: // LD A,(HL)
+                    A = peek8(indirectAddress(index));
+                    return;
+                case 0x7F: // LD A,A
+                    A = A;
+                    return;
+                case 0x80: // ADD A,B
+                    add(B);
+                    return;
+                case 0x81: // ADD A,C
+                    add(C);
+                    return;
+                case 0x82: // ADD A,D
+                    add(D);
+                    return;
+                case 0x83: // ADD A,E
+                    add(E);
+                    return;
+                case 0x84: // ADD A,H
+                    add(indexHigh(index));
+                    return;
+                case 0x85: // ADD A,L
+                    add(indexLow(index));
+                    return;
+                case 0x86: // ADD A,(HL)
+                    add(peek8(indirectAddress(index)));
+                    return;
+                case 0x87: // ADD A,A
+                    add(A);
+                    return;
+                case 0x88: // ADC A,B
+                    adc(B);
+                    return;
+                case 0x89: // ADC A,C
+                    adc(C);
+                    return;
+                case 0x8A: // ADC A,D
+                    adc(D);
+                    return;
+                case 0x8B: // ADC A,E
+                    adc(E);
+                    return;
+                case 0x8C: // ADC A,H
+                    adc(indexHigh(index));
+                    return;
+                case 0x8D: // ADC A,L
+                    adc(indexLow(index));
+                    return;
+                case 0x8E: // ADC A,(HL)
+                    adc(peek8(indirectAddress(index)));
+                    return;
+                case 0x8F: // ADC A,A
+                    adc(A);
+                    return;
+                case 0x90: // SUB B
+                    sub(B);
+                    return;
+                case 0x91: // SUB C
+                    sub(C);
+                    return;
+                case 0x92: // SUB D
+                    sub(D);
+                    return;
+                case 0x93: // SUB E
+                    sub(E);
+                    return;
+                case 0x94: // SUB H
+                    sub(indexHigh(index));
+                    return;
+                case 0x95: // SUB L
+                    sub(indexLow(index));
+                    return;
+                case 0x96: // SUB (HL)
+                    sub(peek8(indirectAddress(index)));
+                    return;
+                case 0x97: // SUB A
+                    sub(A);
+                    return;
+                case 0x98: // SBC A,B
+                    sbc(B);
+                    return;
+                case 0x99: // SBC A,C
+                    sbc(C);
+                    return;
+                case 0x9A: // SBC A,D
+                    sbc(D);
+                    return;
+                case 0x9B: // SBC A,E
+                    sbc(E);
+                    return;
+                case 0x9C: // SBC A,H
+                    sbc(indexHigh(index));
+                    return;
+                case 0x9D: // SBC A,L
+                    sbc(indexLow(index));
+                    return;
+                case 0x9E: // SBC A,(HL)
+                    sbc(peek8(indirectAddress(index)));
+                    return;
+                case 0x9F: // SBC A,A
+                    sbc(A);
+                    return;
+                case 0xA0: // AND B
+                    and(B);
+                    return;
+                case 0xA1: // AND C
+                    and(C);
+                    return;
+                case 0xA2: // AND D
+                    and(D);
+                    return;
+                case 0xA3: // AND E
+                    and(E);
+                    return;
+                case 0xA4: // AND H
+                    and(indexHigh(index));
+                    return;
+                case 0xA5: // AND L
+                    and(indexLow(index));
+                    return;
+                case 0xA6: // AND (HL)
+                    and(peek8(indirectAddress(index)));
+                    return;
+                case 0xA7: // AND A
+                    and(A);
+                    return;
+                case 0xA8: // XOR B
+                    xor(B);
+                    return;
+                case 0xA9: // XOR C
+                    xor(C);
+                    return;
+                case 0xAA: // XOR D
+                    xor(D);
+                    return;
+                case 0xAB: // XOR E
+                    xor(E);
+                    return;
+                case 0xAC: // XOR H
+                    xor(indexHigh(index));
+                    return;
+                case 0xAD: // XOR L
+                    xor(indexLow(index));
+                    return;
+                case 0xAE: // XOR (HL)
+                    xor(peek8(indirectAddress(index)));
+                    return;
+                case 0xAF: // XOR A
+                    xor(A);
+                    return;
+                case 0xB0: // OR B
+                    or(B);
+                    return;
+                case 0xB1: // OR C
+                    or(C);
+                    return;
+                case 0xB2: // OR D
+                    or(D);
+                    return;
+                case 0xB3: // OR E
+                    or(E);
+                    return;
+                case 0xB4: // OR H
+                    or(indexHigh(index));
+                    return;
+                case 0xB5: // OR L
+                    or(indexLow(index));
+                    return;
+                case 0xB6: // OR (HL)
+                    or(peek8(indirectAddress(index)));
+                    return;
+                case 0xB7: // OR A
+                    or(A);
+                    return;
+                case 0xB8: // CP B
+                    cp(B);
+                    return;
+                case 0xB9: // CP C
+                    cp(C);
+                    return;
+                case 0xBA: // CP D
+                    cp(D);
+                    return;
+                case 0xBB: // CP E
+                    cp(E);
+                    return;
+                case 0xBC: // CP H
+                    cp(indexHigh(index));
+                    return;
+                case 0xBD: // CP L
+                    cp(indexLow(index));
+                    return;
+                case 0xBE: // CP (HL)
+                    cp(peek8(indirectAddress(index)));
+                    return;
+                case 0xBF: // CP A
+                    cp(A);
+                    return;
+                case 0xC0: // RET NZ
+                    ret(FLAG_NZ());
+                    return;
+                case 0xC1: // POP BC
+                    BC(pop());
+                    return;
+                case 0xC2: // JP NZ,nn
+                    jp(FLAG_NZ());
+                    return;
+                case 0xC3: // JP nn
+                    PC = read16();
+                    return;
+                case 0xC4: // CALL NZ,nn
+                    call(FLAG_NZ());
+                    return;
+                case 0xC5: // PUSH BC
+                    push(BC());
+                    cycleBudget -= 1;
+                    return;
+                case 0xC6: // ADD A,n
+                    add(read8());
+                    return;
+                case 0xC7: // RST 00H
+                    rst(0x00);
+                    return;
+                case 0xC8: // RET Z
+                    ret(FLAG_Z());
+                    return;
+                case 0xC9: // RET
+                    PC = pop();
+                    return;
+                case 0xCA: // JP Z,nn
+                    jp(FLAG_Z());
+                    return;
+                case 0xCB: // (CB prefix)
+                    executeCB(index);
+                    return;
+                case 0xCC: // CALL Z,nn
+                    call(FLAG_Z());
+                    return;
+                case 0xCD: // CALL nn
+                    call(true);
+                    return;
+                case 0xCE: // ADC A,n
+                    adc(read8());
+                    return;
+                case 0xCF: // RST 08H
+                    rst(0x08);
+                    return;
+                case 0xD0: // RET NC
+                    ret(FLAG_NC());
+                    return;
+                case 0xD1: // POP DE
+                    DE(pop());
+                    return;
+                case 0xD2: // JP NC,nn
+                    jp(FLAG_NC());
+                    return;
+                case 0xD3: // OUT (n),A
+                    ioWrite((short) (0x0101 * (read8() & 0xFF)), A);
+                    return;
+                case 0xD4: // CALL NC,nn
+                    call(FLAG_NC());
+                    return;
+                case 0xD5: // PUSH DE
+                    push(DE());
+                    cycleBudget -= 1;
+                    return;
+                case 0xD6: // SUB n
+                    sub(read8());
+                    return;
+                case 0xD7: // RST 10H
+                    rst(0x10);
+                    return;
+                case 0xD8: // RET C
+                    ret(FLAG_C());
+                    return;
+                case 0xD9: { // EXX
+                    byte t = B;
+                    B = B2;
+                    B2 = t;
+                    t = C;
+                    C = C2;
+                    C2 = t;
+                    t = D;
+                    D = D2;
+                    D2 = t;
+                    t = E;
+                    E = E2;
+                    E2 = t;
+                    t = H;
+                    H = H2;
+                    H2 = t;
+                    t = L;
+                    L = L2;
+                    L2 = t;
+                    return;
+                }
+                case 0xDA: // JP C,nn
+                    jp(FLAG_C());
+                    return;
+                case 0xDB: // IN A,(n)
+                    A = ioRead((short) (0x0101 * (read8() & 0xFF)));
+                    return;
+                case 0xDC: // CALL C,nn
+                    call(FLAG_C());
+                    return;
+                case 0xDD: // (DD prefix)
+                    status = Status.PARSING_DD;
+                    if (cycleBudget <= 0) {
+                        return;
+                    }
+                    opcode = read8();
+                    cycleBudget -= 1;
+                    index = INDEX_IX;
+                    continue;
+                case 0xDE: // SBC A,n
+                    sbc(read8());
+                    return;
+                case 0xDF: // RST 18H
+                    rst(0x18);
+                    return;
+                case 0xE0: // RET PO
+                    ret(FLAG_PO());
+                    return;
+                case 0xE1: // POP HL
+                    indexRegister(index, pop());
+                    return;
+                case 0xE2: // JP PO,nn
+                    jp(FLAG_PO());
+                    return;
+                case 0xE3: { // EX (SP),HL
+                    final short t = indexRegister(index);
+                    indexRegister(index, peek16(SP));
+                    poke16(SP, t);
+                    cycleBudget -= 3;
+                    return;
+                }
+                case 0xE4: // CALL PO,nn
+                    call(FLAG_PO());
+                    return;
+                case 0xE5: // PUSH HL
+                    push(indexRegister(index));
+                    cycleBudget -= 1;
+                    return;
+                case 0xE6: // AND n
+                    and(read8());
+                    return;
+                case 0xE7: // RST 20H
+                    rst(0x20);
+                    return;
+                case 0xE8: // RET PE
+                    ret(FLAG_PE());
+                    return;
+                case 0xE9: // JP (HL)
+                    PC = indexRegister(index);
+                    return;
+                case 0xEA: // JP PE,nn
+                    jp(FLAG_PE());
+                    return;
+                case 0xEB: { // EX DE,HL
+                    final short t = DE();
+                    DE(HL());
+                    HL(t);
+                    return;
+                }
+                case 0xEC: // CALL PE,nn
+                    call(FLAG_PE());
+                    return;
+                case 0xED: // (ED prefix)
+                    executeED();
+                    return;
+                case 0xEE: // XOR n
+                    xor(read8());
+                    return;
+                case 0xEF: // RST 28H
+                    rst(0x28);
+                    return;
+                case 0xF0: // RET P
+                    ret(FLAG_P());
+                    return;
+                case 0xF1: // POP AF
+                    AF(pop());
+                    return;
+                case 0xF2: // JP P,nn
+                    jp(FLAG_P());
+                    return;
+                case 0xF3: // DI
+                    IFF1 = IFF2 = false;
+                    status = Status.AFTER_EI_DI;
+                    return;
+                case 0xF4: // CALL P,nn
+                    call(FLAG_P());
+                    return;
+                case 0xF5: // PUSH AF
+                    push(AF());
+                    cycleBudget -= 1;
+                    return;
+                case 0xF6: // OR n
+                    or(read8());
+                    return;
+                case 0xF7: // RST 30H
+                    rst(0x30);
+                    return;
+                case 0xF8: // RET M
+                    ret(FLAG_M());
+                    return;
+                case 0xF9: // LD SP,HL
+                    SP = indexRegister(index);
+                    cycleBudget -= 2;
+                    return;
+                case 0xFA: // JP M,nn
+                    jp(FLAG_M());
+                    return;
+                case 0xFB: // EI
+                    IFF1 = IFF2 = true;
+                    status = Status.AFTER_EI_DI;
+                    return;
+                case 0xFC: // CALL M,nn
+                    call(FLAG_M());
+                    return;
+                case 0xFD: // (FD prefix)
+                    status = Status.PARSING_FD;
+                    if (cycleBudget <= 0) {
+                        return;
+                    }
+                    opcode = read8();
+                    cycleBudget -= 1;
+                    index = INDEX_IY;
+                    continue;
+                case 0xFE: // CP n
+                    cp(read8());
+                    return;
+                case 0xFF: // RST 38H
+                    rst(0x38);
+                    return;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    private void executeCB(final int index) {
+        if (index != INDEX_HL) {
+            PC += 1; // Skip displacement, read when computing the address.
+        }
+
+        final byte opcode = read8();
+        cycleBudget -= 1;
+        final int x = (opcode & 0b11000000) >>> 6;
+        final int y = (opcode & 0b00111000) >>> 3;
+        final int z = (opcode & 0b00000111);
+
+        if (z == 6) {
+            final short address;
+            if (index != INDEX_HL) {
+                address = indirectAddressCB(index);
+            } else if (x == 1) {
+                address = HL();
+            } else {
+                address = indirectAddressRMW(INDEX_HL);
+            }
+
+            final byte value = peek8(address);
+            switch (x) {
+                case 0: // Roll/shift memory location: rot[y] (HL)
+                    poke8(address, rot(y, value));
+                    return;
+                case 1: // Test bit: BIT y,(HL)
+                    bit(y, value);
+                    return;
+                case 2: // Reset bit: RES y,(HL)
+                    poke8(address, res(y, value));
+                    return;
+                case 3: // Set bit: SET y,(HL)
+                    poke8(address, set(y, value));
+                    return;
+                default:
+                    throw new IllegalStateException();
+            }
+        } else {
+            final byte value = register8(z, index);
+            switch (x) {
+                case 0: // Roll/shift register: rot[y] r[z]
+                    register8(z, index, rot(y, value));
+                    return;
+                case 1: // Test bit: BIT y,r[z]
+                    bit(y, value);
+                    return;
+                case 2: // Reset bit: RES y,r[z]
+                    register8(z, index, res(y, value));
+                    return;
+                case 3: // Set bit: SET y,r[z]
+                    register8(z, index, set(y, value));
+                    return;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    private void executeED() {
+        final byte opcode = read8();
+        cycleBudget -= 1;
+
+        switch (opcode & 0xFF) {
+            // Input from port with 16-bit address
+            case 0x40: // IN B,(C)
+                B = ioRead();
+                inFlags(B);
+                return;
+            case 0x48: // IN C,(C)
+                C = ioRead();
+                inFlags(C);
+                return;
+            case 0x50: // IN D,(C)
+                D = ioRead();
+                inFlags(D);
+                return;
+            case 0x58: // IN E,(C)
+                E = ioRead();
+                inFlags(E);
+                return;
+            case 0x60: // IN H,(C)
+                H = ioRead();
+                inFlags(H);
+                return;
+            case 0x68: // IN L,(C)
+                L = ioRead();
+                inFlags(L);
+                return;
+            case 0x70: // IN (C)
+                ioRead();
+                inFlags((byte) 0);
+                return;
+            case 0x78: // IN A,(C)
+                A = ioRead();
+                inFlags(A);
+                return;
+
+            // Output to port with 16-bit address
+            case 0x41: // OUT (C),B
+                ioWrite(BC(), B);
+                return;
+            case 0x49: // OUT (C),C
+                ioWrite(BC(), C);
+                return;
+            case 0x51: // OUT (C),D
+                ioWrite(BC(), D);
+                return;
+            case 0x59: // OUT (C),E
+                ioWrite(BC(), E);
+                return;
+            case 0x61: // OUT (C),H
+                ioWrite(BC(), H);
+                return;
+            case 0x69: // OUT (C),L
+                ioWrite(BC(), L);
+                return;
+            case 0x71: // OUT (C),0
+                ioWrite(BC(), (byte) 0);
+                return;
+            case 0x79: // OUT (C),A
+                ioWrite(BC(), A);
+                return;
+
+            // 16-bit add/subtract with carry
+            case 0x42: // SBC HL,BC
+                HL(sbc16(HL(), BC()));
+                cycleBudget -= 7;
+                return;
+            case 0x4A: // ADC HL,BC
+                HL(adc16(HL(), BC()));
+                cycleBudget -= 7;
+                return;
+            case 0x52: // SBC HL,DE
+                HL(sbc16(HL(), DE()));
+                cycleBudget -= 7;
+                return;
+            case 0x5A: // ADC HL,DE
+                HL(adc16(HL(), DE()));
+                cycleBudget -= 7;
+                return;
+            case 0x62: // SBC HL,HL
+                HL(sbc16(HL(), HL()));
+                cycleBudget -= 7;
+                return;
+            case 0x6A: // ADC HL,HL
+                HL(adc16(HL(), HL()));
+                cycleBudget -= 7;
+                return;
+            case 0x72: // SBC HL,SP
+                HL(sbc16(HL(), SP));
+                cycleBudget -= 7;
+                return;
+            case 0x7A: // ADC HL,SP
+                HL(adc16(HL(), SP));
+                cycleBudget -= 7;
+                return;
+
+            // Retrieve/store register pair from/to immediate address
+            case 0x43: // LD (nn),BC
+                poke16(read16(), BC());
+                return;
+            case 0x4B: // LD BC,(nn)
+                BC(peek16(read16()));
+                return;
+            case 0x53: // LD (nn),DE
+                poke16(read16(), DE());
+                return;
+            case 0x5B: // LD DE,(nn)
+                DE(peek16(read16()));
+                return;
+            case 0x63: // LD (nn),HL
+                poke16(read16(), HL());
+                return;
+            case 0x6B: // LD HL,(nn)
+                HL(peek16(read16()));
+                return;
+            case 0x73: // LD (nn),SP
+                poke16(read16(), SP);
+                return;
+            case 0x7B: // LD SP,(nn)
+                SP = peek16(read16());
+                return;
+
+            // Negate accumulator
+            case 0x44:
+            case 0x4C:
+            case 0x54:
+            case 0x5C:
+            case 0x64:
+            case 0x6C:
+            case 0x74:
+            case 0x7C: // NEG
+                neg();
+                return;
+
+            // Return from interrupt
+            case 0x4D: // RETI
+                PC = pop();
+                return;
+            case 0x45:
+            case 0x55:
+            case 0x5D:
+            case 0x65:
+            case 0x6D:
+            case 0x75:
+            case 0x7D: // RETN
+                PC = pop();
+                IFF1 = IFF2;
+                return;
+
+            // Set interrupt mode
+            case 0x46:
+            case 0x4E:
+            case 0x66:
+            case 0x6E: // IM 0
+                IM = InterruptMode.MODE_0;
+                return;
+            case 0x56:
+            case 0x76: // IM 1
+                IM = InterruptMode.MODE_1;
+                return;
+            case 0x5E:
+            case 0x7E: // IM 2
+                IM = InterruptMode.MODE_2;
+                return;
+
+            // Assorted ops
+            case 0x47: // LD I,A
+                I = A;
+                cycleBudget -= 1;
+                return;
+            case 0x4F: // LD R,A
+                R = A;
+                cycleBudget -= 1;
+                return;
+            case 0x57: // LD A,I
+            case 0x5F: { // LD A,R
+                if (opcode == 0x57) {
+                    A = I;
+                } else {
+                    A = R;
+                }
+                cycleBudget -= 1;
+
+                byte f = (byte) (F & FLAG_MASK_C);
+                if ((A & 0xFF) == 0) {
+                    f |= FLAG_MASK_Z;
+                } else {
+                    f |= A & FLAG_MASK_S;
+                }
+                if (IFF2) {
+                    f |= FLAG_MASK_PV;
+                }
+                F = f;
+                return;
+            }
+            case 0x67: // RRD
+            case 0x6F: { // RLD
+                final int uhl = peekHL() & 0xFF, ua = A & 0xFF; // 0bHHHHLLLL, 0bAAAAaaaa
+                final int uahl;
+                if (opcode == 0x67) {
+                    uahl = ((ua & 0xF0) << 8) | ((uhl & 0x0F) << 8) | ((A & 0x0F) << 4) | (uhl >> 4); // 0bAAAALLLLaaaaHHHH
+                } else {
+                    uahl = ((ua & 0xF0) << 8) | (uhl << 4) | (ua & 0x0F); // 0bAAAAHHHHLLLLaaaa
+                }
+                cycleBudget -= 4;
+
+                poke8(HL(), (byte) uahl);
+                A = (byte) (uahl >>> 8);
+
+                byte f = (byte) (F & FLAG_MASK_C);
+                if ((A & 0xFF) == 0) {
+                    f |= FLAG_MASK_Z;
+                } else {
+                    f |= A & FLAG_MASK_S;
+                }
+                f |= computeParity(A) << FLAG_SHIFT_PV;
+                F = f;
+                return;
+            }
+
+            // Block instructions
+            case 0xA0: // LDI
+                ldi();
+                return;
+            case 0xA1: // CPI
+                cpi();
+                return;
+            case 0xA2: // INI
+                ini();
+                return;
+            case 0xA3: // OUTI
+                outi();
+                return;
+            case 0xA8: // LDD
+                ldd();
+                return;
+            case 0xA9: // CPD
+                cpd();
+                return;
+            case 0xAA: // IND
+                ind();
+                return;
+            case 0xAB: // OUTD
+                outd();
+                return;
+            case 0xB0: // LDIR
+                ldir();
+                return;
+            case 0xB1: // CPIR
+                cpir();
+                return;
+            case 0xB2: // INIR
+                inir();
+                return;
+            case 0xB3: // OTIR
+                otir();
+                return;
+            case 0xB8: // LDDR
+                lddr();
+                return;
+            case 0xB9: // CPDR
+                cpdr();
+                return;
+            case 0xBA: // INDR
+                indr();
+                return;
+            case 0xBB: // OTDR
+                otdr();
+                return;
+
+            default: // NOP
+                return;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    // There is an overflow if the xor of the carry out and the carry of the
+    // most significant bit is not zero.
+    private static final int[] OVERFLOW_TABLE = {0, FLAG_MASK_PV, FLAG_MASK_PV, 0};
+
+    // --------------------------------------------------------------------- //
 
     private enum Status {
         /**
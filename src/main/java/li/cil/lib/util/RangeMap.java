@@ -1,10 +1,12 @@
 package li.cil.lib.util;
 
 import li.cil.lib.api.serialization.Serializable;
+import li.cil.lib.api.serialization.SerializationListener;
 import li.cil.lib.api.serialization.Serialize;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -14,15 +16,15 @@ import java.util.Objects;
  * <p>
  * Overlapping intervals are not supported.
  * <p>
- * It heavily relies on the underlying heuristic for good performance, that
- * being that access tends to be clustered. Whenever a point is queried, the
- * interval containing it is moved to the front, making subsequent queries to
- * it much faster.
+ * Intervals are kept sorted by their offset, and cover the full range of the
+ * map (unmapped areas are represented by "null"-intervals). This allows
+ * looking up the interval containing a point via binary search, making
+ * lookups O(log n), independently of access patterns.
  *
  * @param <T> the type of value associated with each interval.
  */
 @Serializable
-public final class RangeMap<T> {
+public final class RangeMap<T> implements SerializationListener {
     /**
      * The total size of the range.
      * <p>
@@ -42,14 +44,10 @@ public final class RangeMap<T> {
     private int nullEntries = 0;
 
     /**
-     * The list of known intervals.
+     * The list of known intervals, sorted by their offset.
      * <p>
-     * Note: LinkedList appears to be the more obvious candidate due to how
-     * this list is used (linear iteration, then moving found value to front).
-     * However, in speed tests this performed better. I'm assuming that this is
-     * more cache-friendly than the linked list approach. Might be worth trying
-     * a custom linked list implementation that pre-allocated entry nodes in
-     * one block for cache-friendliness.
+     * Together the intervals always cover the full range of the map, without
+     * any gaps, so a point lookup is a simple binary search.
      */
     @Serialize
     private final List<Entry<T>> children = new ArrayList<>();
@@ -86,7 +84,7 @@ public final class RangeMap<T> {
      */
     @Nullable
     public T get(final long offset) {
-        return getChildAt(offset).value;
+        return children.get(indexOf(offset)).value;
     }
 
     /**
@@ -118,17 +116,13 @@ public final class RangeMap<T> {
             return false;
         }
 
-        final Entry<T> child = getChildAt(offset);
+        final int index = indexOf(offset);
+        final Entry<T> child = children.get(index);
 
         // Can only add in null-entries.
         if (!child.permitsAdd(offset, length)) {
             return false;
         }
-        children.remove(child);
-        --nullEntries;
-
-        // Add new value.
-        children.add(new Entry<>(offset, length, value));
 
         // Compute remaining interval left and right of added range.
         final long leftOffset = child.offset;
@@ -136,13 +130,17 @@ public final class RangeMap<T> {
         final long rightOffset = offset + length;
         final long rightLength = child.offset - rightOffset + child.length;
 
-        // Add padding null ranges resulting from split.
-        if (leftLength > 0) {
-            children.add(new Entry<>(leftOffset, leftLength, null));
+        // Replace the null-entry with the new value.
+        children.set(index, new Entry<>(offset, length, value));
+        --nullEntries;
+
+        // Add padding null ranges resulting from split, keeping order.
+        if (rightLength > 0) {
+            children.add(index + 1, new Entry<>(rightOffset, rightLength, null));
             ++nullEntries;
         }
-        if (rightLength > 0) {
-            children.add(new Entry<>(rightOffset, rightLength, null));
+        if (leftLength > 0) {
+            children.add(index, new Entry<>(leftOffset, leftLength, null));
             ++nullEntries;
         }
 
@@ -161,10 +159,8 @@ public final class RangeMap<T> {
     public boolean remove(final T value) {
         for (int index = 0; index < children.size(); index++) {
             final Entry<T> child = children.get(index);
-            if (Objects.equals(child.value, value)) {
-                children.set(index, children.get(0));
-                children.set(0, child);
-                removeFirst(child);
+            if (child.value != null && Objects.equals(child.value, value)) {
+                removeAt(index);
                 return true;
             }
         }
@@ -181,9 +177,9 @@ public final class RangeMap<T> {
      * @return <code>true</code> if a value was removed; <code>false</code> otherwise.
      */
     public boolean remove(final long offset) {
-        final Entry<T> entry = getChildAt(offset);
-        if (entry.value != null) {
-            removeFirst(entry);
+        final int index = indexOf(offset);
+        if (children.get(index).value != null) {
+            removeAt(index);
             return true;
         }
         return false;
@@ -198,9 +194,10 @@ public final class RangeMap<T> {
      * @return <code>true</code> if a value was removed; <code>false</code> otherwise.
      */
     public boolean remove(final long offset, final T value) {
-        final Entry<T> entry = getChildAt(offset);
-        if (Objects.equals(entry.value, value)) {
-            removeFirst(entry);
+        final int index = indexOf(offset);
+        final Entry<T> entry = children.get(index);
+        if (entry.value != null && Objects.equals(entry.value, value)) {
+            removeAt(index);
             return true;
         }
         return false;
@@ -217,104 +214,103 @@ public final class RangeMap<T> {
 
     /**
      * Returns an iterator over all empty intervals in the range map.
+     * <p>
+     * Intervals are returned in order of increasing offset.
      *
      * @return the iterator over empty intervals.
      */
     public Iterator<Interval> gapIterator() {
         return children.stream().
                 filter(e -> e.value == null).
-                sorted((o1, o2) -> (int) (o1.offset - o2.offset)).
                 map(Entry::toInterval).
                 iterator();
     }
 
+    // --------------------------------------------------------------------- //
+    // SerializationListener
+
+    @Override
+    public void onBeforeSerialization() {
+    }
+
+    @Override
+    public void onAfterSerialization() {
+    }
+
+    @Override
+    public void onBeforeDeserialization() {
+    }
+
+    @Override
+    public void onAfterDeserialization() {
+        // Older versions stored intervals in most-recently-used order.
+        children.sort(Comparator.comparingLong(e -> e.offset));
+    }
+
     // --------------------------------------------------------------------- //
 
     /**
-     * Finds the entry containing the specified offset and moves it to the
-     * front of the {@link #children} list.
+     * Finds the index of the entry containing the specified offset.
      *
      * @param offset the offset to get the entry for.
-     * @return the entry containing the specified offset.
+     * @return the index of the entry containing the specified offset.
+     * @throws IndexOutOfBoundsException if the offset is outside the range of the map.
      */
-    private Entry<T> getChildAt(final long offset) {
-        // If we have a result, move it to the front of the list. The heuristic
-        // here is that multiple accesses will typically happen in close
-        // proximity. I.e. the next access will probably be close to this one.
-        // So moving this to the front will reduce the next search time.
-        int index = 0;
-        Entry<T> previous = children.get(index);
-        for (; ; ) {
-            if (previous.contains(offset)) {
-                children.set(0, previous);
-                return previous;
-            }
-            if (++index >= children.size()) {
-                break;
+    private int indexOf(final long offset) {
+        int low = 0;
+        int high = children.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Entry<T> child = children.get(mid);
+            if (offset < child.offset) {
+                high = mid - 1;
+            } else if (offset - child.offset >= child.length) {
+                low = mid + 1;
+            } else {
+                return mid;
             }
-            final Entry<T> child = children.get(index);
-            children.set(index, previous);
-            previous = child;
         }
 
         // We have full coverage of our range via our children (including null
         // ranges), so this means we got an index that is out of our bounds.
-        children.set(0, previous); // But avoid corrupting the list.
         throw new IndexOutOfBoundsException();
     }
 
     /**
-     * Remove the entry that is currently at the front of the {@link #children}
-     * list. The value itself is passed for convenience and readability.
+     * Remove the entry at the specified index, replacing it with a null-entry
+     * that is merged with adjacent null-entries.
      *
-     * @param entry the value to remove, which must be at the front of the list.
+     * @param index the index of the entry to remove.
      */
-    private void removeFirst(final Entry<T> entry) {
-        assert children.get(0) == entry;
-
-        children.set(0, children.get(children.size() - 1));
-        children.remove(children.size() - 1);
+    private void removeAt(final int index) {
+        final Entry<T> entry = children.get(index);
 
         long offset = entry.offset;
         long length = entry.length;
-
-        // Try to find adjacent null ranges and merge with those.
-        final Iterator<Entry<T>> it = children.iterator();
-        int candidates = 2;
-        while (it.hasNext()) {
-            final Entry<T> other = it.next();
-
-            // Check left.
-            if (other.offset == offset - other.length) {
-                if (other.value == null) {
-                    it.remove();
-                    --nullEntries;
-
-                    offset = other.offset;
-                    length += other.length;
-
-                    if (--candidates == 0) {
-                        break;
-                    }
-                }
+        int first = index;
+        int last = index;
+
+        // Merge with adjacent null ranges.
+        if (index + 1 < children.size()) {
+            final Entry<T> right = children.get(index + 1);
+            if (right.value == null) {
+                length += right.length;
+                last = index + 1;
+                --nullEntries;
             }
-
-            // Check right.
-            else if (offset == other.offset - length) {
-                if (other.value == null) {
-                    it.remove();
-                    --nullEntries;
-
-                    length += other.length;
-
-                    if (--candidates == 0) {
-                        break;
-                    }
-                }
+        }
+        if (index > 0) {
+            final Entry<T> left = children.get(index - 1);
+            if (left.value == null) {
+                offset = left.offset;
+                length += left.length;
+                first = index - 1;
+                --nullEntries;
             }
         }
 
-        children.add(new Entry<>(offset, length, null));
+        children.subList(first + 1, last + 1).clear();
+        children.set(first, new Entry<>(offset, length, null));
         ++nullEntries;
     }
 
@@ -0,0 +1,135 @@
+package li.cil.circuity.server.bus.controller;
+
+import li.cil.circuity.api.bus.device.AbstractBusDevice;
+import li.cil.circuity.api.bus.device.AddressBlock;
+import li.cil.circuity.api.bus.device.DirectMemoryRegion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BusArbiterTest {
+    @Test
+    public void writesAreVisibleAfterQuantum() throws Exception {
+        final BusArbiter arbiter = new BusArbiter();
+        arbiter.setSlotCount(2);
+        final Memory region = new Memory(1000);
+        final byte[] memory = region.getDirectMemory();
+        final BusArbiter.Slot first = arbiter.getSlot(0);
+        final BusArbiter.Slot second = arbiter.getSlot(1);
+
+        arbiter.beginQuantum();
+        first.write(region, memory, 999, (byte) 1);
+        second.write(region, memory, 999, (byte) 2);
+        second.write(region, memory, 3, (byte) 3);
+
+        // Each tickable sees its own writes, but nobody else's.
+        assertEquals(1, first.read(memory, 999));
+        assertEquals(2, second.read(memory, 999));
+        assertEquals(0, first.read(memory, 3));
+        assertEquals(0, memory[999]);
+
+        first.exit();
+        second.exit();
+        arbiter.endQuantum();
+
+        // Applied in slot order, so the later slot wins.
+        assertEquals(2, memory[999]);
+        assertEquals(3, memory[3]);
+        assertEquals(2, region.dirtyCount);
+
+        arbiter.beginQuantum();
+        assertEquals(2, first.read(memory, 999));
+        first.exit();
+        second.exit();
+        arbiter.endQuantum();
+
+        assertEquals(2, region.dirtyCount);
+    }
+
+    @Test
+    public void busIsAcquiredInOrder() throws Exception {
+        final BusArbiter arbiter = new BusArbiter();
+        final int slotCount = 4;
+        arbiter.setSlotCount(slotCount);
+        final List<Integer> accesses = new ArrayList<>();
+        final List<Integer> commands = new ArrayList<>();
+
+        for (int quantum = 0; quantum < 50; quantum++) {
+            arbiter.beginQuantum();
+
+            // Start in reverse order, so later slots try to get the bus first.
+            final List<Thread> threads = new ArrayList<>();
+            for (int i = slotCount - 1; i >= 0; i--) {
+                final BusArbiter.Slot slot = arbiter.getSlot(i);
+                final int index = i;
+                final Thread thread = new Thread(() -> {
+                    slot.enter();
+                    try {
+                        slot.defer(() -> commands.add(index));
+                        slot.acquireBus();
+                        synchronized (accesses) {
+                            accesses.add(index);
+                        }
+                    } finally {
+                        slot.exit();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+
+            arbiter.endQuantum();
+        }
+
+        assertEquals(50 * slotCount, accesses.size());
+        for (int i = 0; i < accesses.size(); i++) {
+            assertEquals(i % slotCount, (int) accesses.get(i));
+            assertEquals(i % slotCount, (int) commands.get(i));
+        }
+    }
+
+    private static final class Memory extends AbstractBusDevice implements DirectMemoryRegion {
+        private final byte[] memory;
+        private int dirtyCount;
+
+        private Memory(final int size) {
+            memory = new byte[size];
+        }
+
+        @Override
+        public byte[] getDirectMemory() {
+            return memory;
+        }
+
+        @Override
+        public boolean isDirectMemoryReadOnly() {
+            return false;
+        }
+
+        @Override
+        public void markDirectMemoryDirty() {
+            ++dirtyCount;
+        }
+
+        @Override
+        public AddressBlock getPreferredAddressBlock(final AddressBlock memory) {
+            return memory.take(0, this.memory.length);
+        }
+
+        @Override
+        public int read(final long address) {
+            return memory[(int) address] & 0xFF;
+        }
+
+        @Override
+        public void write(final long address, final int value) {
+            memory[(int) address] = (byte) value;
+        }
+    }
+}
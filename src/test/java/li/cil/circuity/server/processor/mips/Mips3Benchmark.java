@@ -0,0 +1,198 @@
+package li.cil.circuity.server.processor.mips;
+
+import li.cil.circuity.server.processor.BusControllerAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures raw emulation speed of the {@link Mips3} by running a tight loop
+ * of ALU operations, loads and stores, once from cached unmapped kernel
+ * memory (kseg0) and once from TLB mapped memory (kuseg), the latter also
+ * translating every fetch and data access through the TLB.
+ * <p>
+ * Memory is a flat array behind a {@link BusControllerAccess} without a bus
+ * controller. Each operation emulates one million cycles, so the reported
+ * throughput in operations per second equals the emulated clock rate in MHz.
+ * Run via the <code>jmh</code> Gradle task or the main method of this class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class Mips3Benchmark {
+    private static final int CYCLES_PER_OPERATION = 1_000_000;
+    private static final int MEMORY_SIZE = 64 * 1024;
+
+    /**
+     * Physical memory layout. The loop runs at the same offset in both
+     * segments; the TLB maps the first 8K of kuseg to the first 8K of
+     * physical memory.
+     */
+    private static final int BOOT_ADDRESS = 0x0000;
+    private static final int LOOP_ADDRESS = 0x1000;
+
+    private static final int KSEG0 = 0x8000;
+    private static final int KUSEG = 0x0000;
+
+    // --------------------------------------------------------------------- //
+
+    private Mips3 cached;
+    private Mips3 mapped;
+
+    // --------------------------------------------------------------------- //
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Mips3Benchmark.class.getSimpleName()).build()).run();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @Setup
+    public void setup() {
+        cached = new Mips3(createMemory(KSEG0));
+        mapped = new Mips3(createMemory(KUSEG));
+    }
+
+    @Benchmark
+    public void cachedLoop() {
+        cached.run(CYCLES_PER_OPERATION);
+    }
+
+    @Benchmark
+    public void mappedLoop() {
+        mapped.run(CYCLES_PER_OPERATION);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Creates memory with a boot stub at the reset vector, which maps the
+     * first 8K of kuseg via the TLB and jumps to the loop in the specified
+     * segment, and the loop itself.
+     *
+     * @param segment the upper half of the segment to run the loop in.
+     */
+    private static Memory createMemory(final int segment) {
+        final Memory memory = new Memory();
+        put(memory, BOOT_ADDRESS,
+                0x40802800,             /* MTC0 $0,PageMask */
+                0x40800000,             /* MTC0 $0,Index */
+                0x40805000,             /* MTC0 $0,EntryHi */
+                0x3408001F,             /* ORI $8,$0,001Fh (PFN 0, cached, D, V, G) */
+                0x40881000,             /* MTC0 $8,EntryLo0 */
+                0x3408005F,             /* ORI $8,$0,005Fh (PFN 1, cached, D, V, G) */
+                0x40881800,             /* MTC0 $8,EntryLo1 */
+                0x42000002,             /* TLBWI */
+                0x3C100000 | segment,   /* LUI $16,segment */
+                0x36081000,             /* ORI $8,$16,1000h */
+                0x36101800,             /* ORI $16,$16,1800h */
+                0x01000008,             /* JR $8 */
+                0x00000000              /* NOP */
+        );
+        put(memory, LOOP_ADDRESS,
+                0x24840001,             /* ADDIU $4,$4,1 */
+                0x00A42821,             /* ADDU $5,$5,$4 */
+                0x00053080,             /* SLL $6,$5,2 */
+                0x00C53826,             /* XOR $7,$6,$5 */
+                0x00E4402A,             /* SLT $8,$7,$4 */
+                0x34E9F00F,             /* ORI $9,$7,F00Fh */
+                0x01295024,             /* AND $10,$9,$9 */
+                0x308B00FC,             /* ANDI $11,$4,00FCh */
+                0x01705821,             /* ADDU $11,$11,$16 */
+                0xAD650000,             /* SW $5,0($11) */
+                0x8D6C0000,             /* LW $12,0($11) */
+                0x018D6821,             /* ADDU $13,$12,$13 */
+                0x1000FFF3,             /* BEQ $0,$0,loop */
+                0x00000000              /* NOP */
+        );
+        return memory;
+    }
+
+    private static void put(final Memory memory, final int address, final int... words) {
+        for (int i = 0; i < words.length; i++) {
+            memory.write32(address + i * 4, words[i]);
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static final class Memory extends BusControllerAccess {
+        private final byte[] data = new byte[MEMORY_SIZE];
+
+        private Memory() {
+            super(() -> null, 0);
+        }
+
+        @Override
+        public int read(final int address) {
+            return data[address & (MEMORY_SIZE - 1)] & 0xFF;
+        }
+
+        @Override
+        public void write(final int address, final int value) {
+            data[address & (MEMORY_SIZE - 1)] = (byte) value;
+        }
+
+        @Override
+        public void read(final int address, final byte[] buffer, final int offset, final int length) {
+            for (int i = 0; i < length; i++) {
+                buffer[offset + i] = (byte) read(address + i);
+            }
+        }
+
+        @Override
+        public void write(final int address, final byte[] buffer, final int offset, final int length) {
+            for (int i = 0; i < length; i++) {
+                write(address + i, buffer[offset + i] & 0xFF);
+            }
+        }
+
+        @Override
+        public int read16(final int address) {
+            return read(address) | (read(address + 1) << 8);
+        }
+
+        @Override
+        public int read32(final int address) {
+            return read16(address) | (read16(address + 2) << 16);
+        }
+
+        @Override
+        public long read64(final int address) {
+            return (read32(address) & 0xFFFFFFFFL) | ((long) read32(address + 4) << 32);
+        }
+
+        @Override
+        public void write16(final int address, final int value) {
+            write(address, value & 0xFF);
+            write(address + 1, (value >>> 8) & 0xFF);
+        }
+
+        @Override
+        public void write32(final int address, final int value) {
+            write16(address, value);
+            write16(address + 2, value >>> 16);
+        }
+
+        @Override
+        public void write64(final int address, final long value) {
+            write32(address, (int) value);
+            write32(address + 4, (int) (value >>> 32));
+        }
+    }
+}
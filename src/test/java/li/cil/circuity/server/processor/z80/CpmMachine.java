@@ -0,0 +1,154 @@
+package li.cil.circuity.server.processor.z80;
+
+import li.cil.circuity.server.processor.BusAccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Minimal CP/M environment for running programs such as the zexdoc and
+ * zexall instruction exercisers directly against the {@link Z80}, without a
+ * world, bus controller or any other Minecraft infrastructure.
+ * <p>
+ * Memory is a flat 64K array, with the program loaded at the usual TPA
+ * offset of <code>0x0100</code>. Calls to the BDOS entry point at
+ * <code>0x0005</code> trap into the harness via an <code>IN</code> from a
+ * dedicated port, which supports console output (functions 2 and 9), all
+ * the exercisers need. Warm boots, i.e. jumps to <code>0x0000</code>, halt
+ * the CPU.
+ */
+public final class CpmMachine {
+    public static final String ZEXDOC = "src/test/resources/zexdoc.com";
+
+    private static final int MEMORY_SIZE = 0x10000;
+    private static final int PROGRAM_OFFSET = 0x0100;
+    private static final int BDOS_PORT = 0x30;
+
+    private static final int BDOS_CONSOLE_OUTPUT = 2;
+    private static final int BDOS_PRINT_STRING = 9;
+
+    private static final byte[] BIOS = {
+            (byte) 0x76, /* HLT */
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0x00,
+            (byte) 0xDB, /* IN A, N */
+            (byte) BDOS_PORT,
+            (byte) 0xC9  /* RET */
+    };
+
+    // --------------------------------------------------------------------- //
+
+    private final byte[] program;
+    private final byte[] memory = new byte[MEMORY_SIZE];
+    private final StringBuilder output = new StringBuilder();
+    private final Z80 cpu = new Z80(new Memory(), new Bdos());
+
+    // --------------------------------------------------------------------- //
+
+    public CpmMachine(final byte[] program) {
+        if (program.length > MEMORY_SIZE - PROGRAM_OFFSET) {
+            throw new IllegalArgumentException("Program too large.");
+        }
+        this.program = program;
+        reset();
+    }
+
+    public static CpmMachine load(final String path) throws IOException {
+        return new CpmMachine(Files.readAllBytes(Paths.get(path)));
+    }
+
+    // --------------------------------------------------------------------- //
+
+    /**
+     * Restore memory to its initial state, clear the output and restart the
+     * program.
+     */
+    public void reset() {
+        Arrays.fill(memory, (byte) 0);
+        System.arraycopy(BIOS, 0, memory, 0, BIOS.length);
+        System.arraycopy(program, 0, memory, PROGRAM_OFFSET, program.length);
+        output.setLength(0);
+        cpu.reset(PROGRAM_OFFSET);
+    }
+
+    /**
+     * Run the CPU for the specified number of cycles.
+     *
+     * @param cycles the number of cycles to emulate.
+     * @return <code>true</code> if the program is still running; <code>false</code> if it exited.
+     */
+    public boolean run(final int cycles) {
+        return cpu.run(cycles);
+    }
+
+    /**
+     * Run the program until it exits.
+     *
+     * @return the console output of the program.
+     */
+    public String runToCompletion() {
+        //noinspection StatementWithEmptyBody
+        while (run(1_000_000)) {
+        }
+        return getOutput();
+    }
+
+    public String getOutput() {
+        return output.toString();
+    }
+
+    public Z80 getCpu() {
+        return cpu;
+    }
+
+    public byte[] getMemory() {
+        return memory;
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private void handleBdosCall() {
+        switch (cpu.C()) {
+            case BDOS_CONSOLE_OUTPUT:
+                output.append((char) cpu.E());
+                break;
+            case BDOS_PRINT_STRING:
+                for (int address = cpu.DE() & 0xFFFF; memory[address] != '$'; address = (address + 1) & 0xFFFF) {
+                    output.append((char) memory[address]);
+                }
+                break;
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private final class Memory implements BusAccess {
+        @Override
+        public int read(final int address) {
+            return memory[address & 0xFFFF] & 0xFF;
+        }
+
+        @Override
+        public void write(final int address, final int value) {
+            memory[address & 0xFFFF] = (byte) value;
+        }
+    }
+
+    private final class Bdos implements BusAccess {
+        @Override
+        public int read(final int address) {
+            if ((address & 0xFF) == BDOS_PORT) {
+                handleBdosCall();
+            }
+            return 0xFF;
+        }
+
+        @Override
+        public void write(final int address, final int value) {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package li.cil.circuity.server.processor.z80;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures raw emulation speed of the {@link Z80} by running programs in a
+ * {@link CpmMachine}: zexdoc, which mostly exercises ALU operations, and a
+ * small bytecode interpreter loop, typical for guest programs spending their
+ * time in tight loops with many jumps and memory accesses.
+ * <p>
+ * Each operation emulates one million cycles, so the reported throughput in
+ * operations per second equals the emulated clock rate in MHz. Run via the
+ * <code>jmh</code> Gradle task or the main method of this class.
+ * <p>
+ * Memory of the {@link CpmMachine} is a plain array, so fetching opcodes and
+ * operands is cheaper than via the {@link li.cil.circuity.server.processor.BusControllerAccess}
+ * processors use in game. Changes to the fetch path should also be measured
+ * with memory accessed through the latter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class Z80Benchmark {
+    private static final int CYCLES_PER_OPERATION = 1_000_000;
+
+    /**
+     * Memory layout of the interpreter program.
+     */
+    private static final int INTERPRETER_ENTRY = 0x0100;
+    private static final int INTERPRETER_DISPATCH_TABLE = 0x0200;
+    private static final int INTERPRETER_HANDLERS = 0x0300;
+    private static final int INTERPRETER_BYTECODE = 0x8000;
+
+    // --------------------------------------------------------------------- //
+
+    private CpmMachine zexdoc;
+    private CpmMachine interpreter;
+
+    // --------------------------------------------------------------------- //
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Z80Benchmark.class.getSimpleName()).build()).run();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @Setup
+    public void setup() throws IOException {
+        zexdoc = CpmMachine.load(CpmMachine.ZEXDOC);
+        interpreter = new CpmMachine(createInterpreter());
+    }
+
+    @Benchmark
+    public void zexdoc() {
+        run(zexdoc);
+    }
+
+    @Benchmark
+    public void interpreter() {
+        run(interpreter);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static void run(final CpmMachine machine) {
+        if (!machine.run(CYCLES_PER_OPERATION)) {
+            machine.reset();
+        }
+    }
+
+    /**
+     * Creates a program interpreting an endless loop of bytecode, updating an
+     * accumulator in memory. Each bytecode is dispatched via a jump table.
+     */
+    private static byte[] createInterpreter() {
+        final byte[] program = new byte[INTERPRETER_BYTECODE + 0x100 - INTERPRETER_ENTRY];
+        put(program, INTERPRETER_ENTRY,
+                0xDD, 0x21, 0x00, 0x90, /* LD IX,9000h */
+                0x21, 0x00, 0x80,       /* LD HL,8000h */
+                // next:
+                0x7E,                   /* LD A,(HL) */
+                0x23,                   /* INC HL */
+                0x87,                   /* ADD A,A */
+                0x5F,                   /* LD E,A */
+                0x16, 0x02,             /* LD D,02h */
+                0x1A,                   /* LD A,(DE) */
+                0x4F,                   /* LD C,A */
+                0x13,                   /* INC DE */
+                0x1A,                   /* LD A,(DE) */
+                0x47,                   /* LD B,A */
+                0xC5,                   /* PUSH BC */
+                0xC9                    /* RET */
+        );
+        put(program, INTERPRETER_DISPATCH_TABLE,
+                0x00, 0x03,
+                0x10, 0x03,
+                0x20, 0x03
+        );
+        // 0: add the next byte to the accumulator.
+        put(program, INTERPRETER_HANDLERS,
+                0x7E,                   /* LD A,(HL) */
+                0x23,                   /* INC HL */
+                0xDD, 0x86, 0x00,       /* ADD A,(IX+0) */
+                0xDD, 0x77, 0x00,       /* LD (IX+0),A */
+                0xC3, 0x07, 0x01        /* JP next */
+        );
+        // 1: restart the bytecode.
+        put(program, INTERPRETER_HANDLERS + 0x10,
+                0x21, 0x00, 0x80,       /* LD HL,8000h */
+                0xC3, 0x07, 0x01        /* JP next */
+        );
+        // 2: scramble the accumulator.
+        put(program, INTERPRETER_HANDLERS + 0x20,
+                0xDD, 0x7E, 0x00,       /* LD A,(IX+0) */
+                0xEE, 0x5A,             /* XOR 5Ah */
+                0xDD, 0x77, 0x00,       /* LD (IX+0),A */
+                0xC3, 0x07, 0x01        /* JP next */
+        );
+        put(program, INTERPRETER_BYTECODE,
+                0x00, 0x07, 0x02, 0x00, 0x03, 0x02, 0x00, 0x01, 0x01
+        );
+        return program;
+    }
+
+    private static void put(final byte[] program, final int address, final int... data) {
+        for (int i = 0; i < data.length; i++) {
+            program[address - INTERPRETER_ENTRY + i] = (byte) data[i];
+        }
+    }
+}
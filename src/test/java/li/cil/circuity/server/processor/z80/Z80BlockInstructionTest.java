@@ -0,0 +1,113 @@
+package li.cil.circuity.server.processor.z80;
+
+import li.cil.circuity.server.processor.BusAccess;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Z80BlockInstructionTest {
+    private static final int LDIR = 0xB0;
+    private static final int LDDR = 0xB8;
+
+    @Test
+    public void ldirFill() {
+        // Classic fill: copy a byte onto its successor, repeatedly.
+        final byte[] memory = run(LDIR, 0x1000, 0x1001, 0x0FFF, true, 1000);
+        for (int address = 0x1000; address < 0x2000; address++) {
+            assertEquals(0x55, memory[address] & 0xFF);
+        }
+    }
+
+    @Test
+    public void bulkMatchesSingleAccesses() {
+        // Various overlaps, wrap-arounds and budgets, the latter making the
+        // budget run out at different points during the instruction.
+        final int[][] cases = {
+                {0x1000, 0x1001, 0x0FFF},
+                {0x1001, 0x1000, 0x0FFF},
+                {0x1000, 0x8000, 0x0000},
+                {0xFF00, 0x0100, 0x0200},
+                {0x0100, 0xFF80, 0x0100},
+                {0x2000, 0x0000, 0x0100},
+        };
+        for (final int[] c : cases) {
+            for (final int slice : new int[]{1, 20, 21, 22, 1000, 100000}) {
+                for (final int opcode : new int[]{LDIR, LDDR}) {
+                    final byte[] expected = run(opcode, c[0], c[1], c[2], false, slice);
+                    final byte[] actual = run(opcode, c[0], c[1], c[2], true, slice);
+                    assertArrayEquals(expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a block copy until the CPU halts, using the specified budget per
+     * call to {@link Z80#run(int)}, and returns the resulting memory followed
+     * by the register state after each call.
+     */
+    private static byte[] run(final int opcode, final int hl, final int de, final int bc, final boolean allowCopy, final int slice) {
+        final Memory memory = new Memory(allowCopy);
+        new Random(1234).nextBytes(memory.data);
+        memory.data[hl] = 0x55;
+
+        final int[] program = {
+                0x21, hl & 0xFF, hl >>> 8, /* LD HL,nn */
+                0x11, de & 0xFF, de >>> 8, /* LD DE,nn */
+                0x01, bc & 0xFF, bc >>> 8, /* LD BC,nn */
+                0xED, opcode,
+                0x76 /* HLT */
+        };
+        final int pc = 0x4000;
+        for (int i = 0; i < program.length; i++) {
+            memory.data[pc + i] = (byte) program[i];
+        }
+
+        final Z80 cpu = new Z80(memory, new Memory(false));
+        cpu.reset(pc);
+
+        final StringBuilder state = new StringBuilder();
+        while (cpu.run(slice)) {
+            state.append(cpu.BC()).append(',').append(cpu.DE()).append(',').append(cpu.HL()).append(',').append(cpu.AF()).append(';');
+        }
+
+        final byte[] trace = state.toString().getBytes();
+        final byte[] result = new byte[memory.data.length + trace.length];
+        System.arraycopy(memory.data, 0, result, 0, memory.data.length);
+        System.arraycopy(trace, 0, result, memory.data.length, trace.length);
+        return result;
+    }
+
+    private static final class Memory implements BusAccess {
+        private final byte[] data = new byte[0x10000];
+        private final boolean allowCopy;
+
+        private Memory(final boolean allowCopy) {
+            this.allowCopy = allowCopy;
+        }
+
+        @Override
+        public int read(final int address) {
+            return data[address & 0xFFFF] & 0xFF;
+        }
+
+        @Override
+        public void write(final int address, final int value) {
+            data[address & 0xFFFF] = (byte) value;
+        }
+
+        @Override
+        public boolean copy(final int source, final int destination, final int length, final int step) {
+            if (!allowCopy) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                data[(destination + i * step) & 0xFFFF] = data[(source + i * step) & 0xFFFF];
+            }
+            return true;
+        }
+    }
+}
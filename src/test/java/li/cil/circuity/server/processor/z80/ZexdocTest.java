@@ -0,0 +1,60 @@
+package li.cil.circuity.server.processor.z80;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZexdocTest {
+    /**
+     * Address of the zero terminated list of tests run by zexdoc.
+     */
+    private static final int TEST_TABLE_ADDRESS = 0x013A;
+
+    /**
+     * Range of tests run in the quick test. These are the INC/DEC and most
+     * of the load tests, which cover all addressing modes including indexed
+     * ones, and only take a few seconds in total, unlike the exhaustive ALU
+     * tests.
+     */
+    private static final int QUICK_TESTS_BEGIN = 13;
+    private static final int QUICK_TESTS_END = 49;
+
+    @Test
+    public void quick() throws IOException {
+        final CpmMachine machine = CpmMachine.load(CpmMachine.ZEXDOC);
+
+        // Move the selected tests to the start of the test table and
+        // terminate it after them.
+        final byte[] memory = machine.getMemory();
+        final int count = QUICK_TESTS_END - QUICK_TESTS_BEGIN;
+        System.arraycopy(memory, TEST_TABLE_ADDRESS + QUICK_TESTS_BEGIN * 2, memory, TEST_TABLE_ADDRESS, count * 2);
+        memory[TEST_TABLE_ADDRESS + count * 2] = 0;
+        memory[TEST_TABLE_ADDRESS + count * 2 + 1] = 0;
+
+        final String output = machine.runToCompletion();
+        assertFalse(output, output.contains("ERROR"));
+        assertEquals(output, count, countMatches(output, "OK"));
+        assertTrue(output, output.contains("Tests complete"));
+    }
+
+    @Ignore("Takes a few minutes, enable as necessary.")
+    @Test
+    public void full() throws IOException {
+        final String output = CpmMachine.load(CpmMachine.ZEXDOC).runToCompletion();
+        assertFalse(output, output.contains("ERROR"));
+        assertTrue(output, output.contains("Tests complete"));
+    }
+
+    private static int countMatches(final String value, final String pattern) {
+        int count = 0;
+        for (int index = value.indexOf(pattern); index >= 0; index = value.indexOf(pattern, index + pattern.length())) {
+            count++;
+        }
+        return count;
+    }
+}
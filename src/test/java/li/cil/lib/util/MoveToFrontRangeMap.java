@@ -0,0 +1,95 @@
+package li.cil.lib.util;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The previous implementation of {@link RangeMap}, kept as a baseline for
+ * {@link RangeMapBenchmark}. Reduced to adding and looking up values.
+ * <p>
+ * Intervals are kept in an unordered list. Whenever a point is queried, the
+ * interval containing it is moved to the front, relying on access being
+ * clustered for good performance.
+ *
+ * @param <T> the type of value associated with each interval.
+ */
+final class MoveToFrontRangeMap<T> {
+    private final List<Entry<T>> children = new ArrayList<>();
+
+    MoveToFrontRangeMap(final long length) {
+        children.add(new Entry<>(0, length, null));
+    }
+
+    @Nullable
+    T get(final long offset) {
+        return getChildAt(offset).value;
+    }
+
+    void add(final T value, final long offset, final long length) {
+        final Entry<T> child = getChildAt(offset);
+
+        if (!child.permitsAdd(offset, length)) {
+            throw new IllegalArgumentException("value overlaps existing item");
+        }
+        children.remove(child);
+
+        children.add(new Entry<>(offset, length, value));
+
+        final long leftOffset = child.offset;
+        final long leftLength = offset - leftOffset;
+        final long rightOffset = offset + length;
+        final long rightLength = child.offset - rightOffset + child.length;
+
+        if (leftLength > 0) {
+            children.add(new Entry<>(leftOffset, leftLength, null));
+        }
+        if (rightLength > 0) {
+            children.add(new Entry<>(rightOffset, rightLength, null));
+        }
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private Entry<T> getChildAt(final long offset) {
+        int index = 0;
+        Entry<T> previous = children.get(index);
+        for (; ; ) {
+            if (previous.contains(offset)) {
+                children.set(0, previous);
+                return previous;
+            }
+            if (++index >= children.size()) {
+                break;
+            }
+            final Entry<T> child = children.get(index);
+            children.set(index, previous);
+            previous = child;
+        }
+
+        children.set(0, previous);
+        throw new IndexOutOfBoundsException();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static final class Entry<T> {
+        final long offset;
+        final long length;
+        final T value;
+
+        Entry(final long offset, final long length, @Nullable final T value) {
+            this.offset = offset;
+            this.length = length;
+            this.value = value;
+        }
+
+        boolean contains(final long offset) {
+            return offset >= this.offset && offset - this.offset < length;
+        }
+
+        boolean permitsAdd(final long offset, final long length) {
+            return value == null && contains(offset) && contains(offset + length - 1);
+        }
+    }
+}
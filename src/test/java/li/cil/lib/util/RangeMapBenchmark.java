@@ -0,0 +1,155 @@
+package li.cil.lib.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Compares lookup speed of the {@link RangeMap} against the previous,
+ * move-to-front implementation kept in {@link MoveToFrontRangeMap}.
+ * <p>
+ * The map is filled with small, mostly adjacent intervals, like the layout of
+ * devices on a bus. Each operation performs the same set of lookups in one of
+ * three orders: clustered, i.e. many lookups into one interval before moving
+ * on to the next, as a single processor would; interleaved, i.e. several such
+ * clustered streams taking turns, as multiple processors sharing a bus would;
+ * and random. Run via the <code>jmh</code> Gradle task or the main method of
+ * this class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class RangeMapBenchmark {
+    private static final int RANGE_LENGTH = 0x10000;
+    private static final int LOOKUPS_PER_ENTRY = 50;
+    private static final int INTERLEAVED_STREAMS = 4;
+
+    // --------------------------------------------------------------------- //
+
+    @Param({"sorted", "moveToFront"})
+    public String implementation;
+
+    private LongFunction<String> map;
+    private long[] clustered;
+    private long[] interleaved;
+    private long[] random;
+
+    // --------------------------------------------------------------------- //
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RangeMapBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    // --------------------------------------------------------------------- //
+
+    @Setup
+    public void setup() {
+        final Random rng = new Random(12345);
+
+        final RangeMap<String> sorted = new RangeMap<>(RANGE_LENGTH);
+        final MoveToFrontRangeMap<String> moveToFront = new MoveToFrontRangeMap<>(RANGE_LENGTH);
+
+        // Fill both maps with the same random entries, remembering one lookup
+        // cluster per entry.
+        final long[] lookups = new long[RANGE_LENGTH / 10 * LOOKUPS_PER_ENTRY];
+        int lookupCount = 0;
+        {
+            final byte[] buffer = new byte[32];
+            int offset = 0;
+            while (offset < RANGE_LENGTH - 50) {
+                if (rng.nextBoolean()) {
+                    offset += 5 + rng.nextInt(25);
+                }
+
+                rng.nextBytes(buffer);
+                final String value = UUID.nameUUIDFromBytes(buffer).toString();
+                final int length = 10 + rng.nextInt(10);
+                sorted.add(value, offset, length);
+                moveToFront.add(value, offset, length);
+
+                for (int i = 0; i < LOOKUPS_PER_ENTRY; i++) {
+                    lookups[lookupCount++] = offset + rng.nextInt(length);
+                }
+
+                offset += length;
+            }
+        }
+
+        clustered = new long[lookupCount];
+        System.arraycopy(lookups, 0, clustered, 0, lookupCount);
+
+        // Each stream walks its own part of the clustered lookups.
+        final int lookupsPerStream = lookupCount / INTERLEAVED_STREAMS;
+        interleaved = new long[lookupsPerStream * INTERLEAVED_STREAMS];
+        for (int i = 0; i < lookupsPerStream; i++) {
+            for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+                interleaved[i * INTERLEAVED_STREAMS + stream] = clustered[stream * lookupsPerStream + i];
+            }
+        }
+
+        random = clustered.clone();
+        for (int i = random.length - 1; i > 0; i--) {
+            final int j = rng.nextInt(i + 1);
+            final long tmp = random[i];
+            random[i] = random[j];
+            random[j] = tmp;
+        }
+
+        switch (implementation) {
+            case "sorted":
+                map = sorted::get;
+                break;
+            case "moveToFront":
+                map = moveToFront::get;
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    @Benchmark
+    public int clustered() {
+        return lookup(map, clustered);
+    }
+
+    @Benchmark
+    public int interleaved() {
+        return lookup(map, interleaved);
+    }
+
+    @Benchmark
+    public int random() {
+        return lookup(map, random);
+    }
+
+    // --------------------------------------------------------------------- //
+
+    private static int lookup(final LongFunction<String> map, final long[] offsets) {
+        int hits = 0;
+        for (final long offset : offsets) {
+            if (map.apply(offset) != null) {
+                ++hits;
+            }
+        }
+        return hits;
+    }
+}
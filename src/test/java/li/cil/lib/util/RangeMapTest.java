@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
@@ -132,6 +133,25 @@ public class RangeMapTest {
         }
     }
 
+    @Test
+    public void gapsAreOrdered() throws Exception {
+        final RangeMap<String> list = new RangeMap<>(1000);
+
+        list.add("c", 900, 100);
+        list.add("a", 100, 100);
+        list.add("b", 500, 100);
+
+        final Iterator<RangeMap.Interval> it = list.gapIterator();
+        final long[] expected = {0, 100, 200, 300, 600, 300};
+        for (int i = 0; i < expected.length; i += 2) {
+            assertTrue(it.hasNext());
+            final RangeMap.Interval gap = it.next();
+            assertEquals(expected[i], gap.offset);
+            assertEquals(expected[i + 1], gap.length);
+        }
+        assertFalse(it.hasNext());
+    }
+
     @Test
     public void remove() throws Exception {
         final RangeMap<String> list = new RangeMap<>(1000);